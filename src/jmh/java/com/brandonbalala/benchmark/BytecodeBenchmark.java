@@ -0,0 +1,67 @@
+package com.brandonbalala.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.BytecodeCompiler;
+import com.brandonbalala.logic.CompiledExpression;
+import com.brandonbalala.logic.Formula;
+
+/**
+ * Compares the stack interpreter of CompiledExpression with the bytecode
+ * generated by BytecodeCompiler for the same expression. The automatic switch
+ * to bytecode is turned off in the forked JVM so the interpreter stays
+ * interpreted.
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar BytecodeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dcom.brandonbalala.compileThreshold=0")
+public class BytecodeBenchmark {
+	@Param({ "price*qty-discount", "(x+1)/(x-1)*y-(z*0.5+x*y)/(1.25-z)",
+			"(((((56.9*a)))))/((3-b)-(79-c)/(3/d))/0.5-2+(360-e)/(2*(3-f)+62)*(1+g/3+(a*b))" })
+	public String expression;
+
+	private CompiledExpression compiled;
+	private Formula formula;
+	private double[] bindings;
+	private double[] stack;
+
+	@Setup
+	public void setup() throws InfixParsingException, PostfixParsingException {
+		compiled = CompiledExpression.compile(expression);
+		formula = BytecodeCompiler.compile(compiled);
+
+		bindings = new double[compiled.getVariableCount()];
+		for (int slot = 0; slot < bindings.length; slot++)
+			bindings[slot] = 1.5 + slot;
+		stack = new double[compiled.getMaxStackDepth()];
+	}
+
+	@Benchmark
+	public double interpreter() {
+		return compiled.evaluate(bindings, stack);
+	}
+
+	@Benchmark
+	public double bytecode() {
+		return formula.evaluate(bindings);
+	}
+}
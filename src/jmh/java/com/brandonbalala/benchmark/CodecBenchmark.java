@@ -0,0 +1,82 @@
+package com.brandonbalala.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.CompiledExpression;
+import com.brandonbalala.logic.Evaluator;
+import com.brandonbalala.logic.ProgramLibrary;
+
+/**
+ * Milliseconds to get a library of formulas ready: compiling every one from
+ * its text, decoding every one from a ProgramLibrary, and only loading the
+ * library so that formulas are decoded when first used.
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar CodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+	private static final int LIBRARY_SIZE = 100000;
+	private static final String[] FORMULAS = { "price*qty-discount", "(a+b)*(c-d)/(a*e)+(b-c)*2.5-d/(e+1)",
+			"max(x,y*2,-z)+1", "-rate*(base_2+10)-rate", "68+(2+9-18)/1.2*5.3*x" };
+
+	private Evaluator evaluator;
+	private List<String> texts;
+	private ByteBuffer library;
+
+	@Setup
+	public void setup() throws InfixParsingException, PostfixParsingException {
+		evaluator = new Evaluator();
+		texts = new ArrayList<String>(LIBRARY_SIZE);
+		List<CompiledExpression> expressions = new ArrayList<CompiledExpression>(LIBRARY_SIZE);
+		for (int cntr = 0; cntr < LIBRARY_SIZE; cntr++) {
+			String text = FORMULAS[cntr % FORMULAS.length] + "+" + cntr;
+			texts.add(text);
+			expressions.add(evaluator.compile(text));
+		}
+
+		library = ProgramLibrary.write(expressions);
+	}
+
+	@Benchmark
+	public CompiledExpression[] compileFromText() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression[] expressions = new CompiledExpression[LIBRARY_SIZE];
+		for (int cntr = 0; cntr < LIBRARY_SIZE; cntr++)
+			expressions[cntr] = evaluator.compile(texts.get(cntr));
+		return expressions;
+	}
+
+	@Benchmark
+	public CompiledExpression[] decodeLibrary() {
+		ProgramLibrary loaded = ProgramLibrary.load(library);
+		CompiledExpression[] expressions = new CompiledExpression[LIBRARY_SIZE];
+		for (int cntr = 0; cntr < LIBRARY_SIZE; cntr++)
+			expressions[cntr] = loaded.get(cntr);
+		return expressions;
+	}
+
+	@Benchmark
+	public ProgramLibrary loadLibrary() {
+		return ProgramLibrary.load(library);
+	}
+}
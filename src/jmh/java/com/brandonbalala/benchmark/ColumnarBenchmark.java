@@ -0,0 +1,97 @@
+package com.brandonbalala.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.ColumnarEvaluator;
+import com.brandonbalala.logic.CompiledExpression;
+import com.brandonbalala.logic.Infix;
+import com.brandonbalala.logic.Postfix;
+
+/**
+ * Per row throughput of evaluating one formula over columns of values.
+ * Compares splicing the values into the infix string and solving every row,
+ * evaluating the CompiledExpression row by row and the ColumnarEvaluator.
+ * Scores are rows per microsecond.
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar ColumnarBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColumnarBenchmark {
+	private static final String FORMULA = "(price*qty-discount)*(1+tax)/fx";
+	private static final int ROWS = 65536;
+	private static final int SPLICED_ROWS = 256;
+
+	private CompiledExpression expression;
+	private double[][] columns;
+	private double[] out;
+
+	@Setup
+	public void setup() throws InfixParsingException, PostfixParsingException {
+		expression = CompiledExpression.compile(FORMULA);
+		columns = new double[expression.getVariableCount()][ROWS];
+		out = new double[ROWS];
+
+		Random random = new Random(42);
+		for (double[] column : columns) {
+			for (int row = 0; row < ROWS; row++)
+				column[row] = 1 + Math.round(random.nextDouble() * 10000) / 100.0;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SPLICED_ROWS)
+	public double splicedStringPerRow() throws InfixParsingException, PostfixParsingException {
+		double sum = 0;
+		for (int row = 0; row < SPLICED_ROWS; row++) {
+			String infixString = "(" + columns[0][row] + "*" + columns[1][row] + "-" + columns[2][row] + ")*(1+"
+					+ columns[3][row] + ")/" + columns[4][row];
+
+			Infix infix = new Infix();
+			infix.setInfixQueue(infixString);
+			Postfix postfix = new Postfix();
+			postfix.parsePostfix(infix);
+			sum += postfix.solvePostfixExpression();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public double compiledPerRow() {
+		double[] bindings = new double[columns.length];
+		double sum = 0;
+		for (int row = 0; row < ROWS; row++) {
+			for (int slot = 0; slot < bindings.length; slot++)
+				bindings[slot] = columns[slot][row];
+			sum += expression.evaluate(bindings);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public double[] columnar() {
+		ColumnarEvaluator.evaluate(expression, columns, out);
+		return out;
+	}
+}
@@ -0,0 +1,70 @@
+package com.brandonbalala.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.CompiledExpression;
+import com.brandonbalala.logic.Evaluator;
+import com.brandonbalala.logic.Infix;
+import com.brandonbalala.logic.Postfix;
+
+/**
+ * Throughput of one Evaluator and one CompiledExpression shared by every
+ * benchmark thread, against creating an Infix and a Postfix per call. Run it
+ * with an increasing number of threads to check the scaling, for example
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar EvaluatorBenchmark -t 1
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar EvaluatorBenchmark -t 4
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar EvaluatorBenchmark -t max
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class EvaluatorBenchmark {
+	private static final String EXPRESSION = "(500*1.7/-5.3)+2-0.75/1.45";
+
+	private Evaluator evaluator;
+	private CompiledExpression compiled;
+
+	@Setup
+	public void setup() throws InfixParsingException, PostfixParsingException {
+		evaluator = new Evaluator();
+		compiled = evaluator.compile(EXPRESSION);
+	}
+
+	@Benchmark
+	public Double newInfixAndPostfixPerCall() throws InfixParsingException, PostfixParsingException {
+		Infix infix = new Infix();
+		infix.setInfixQueue(EXPRESSION);
+		Postfix postfix = new Postfix();
+		postfix.parsePostfix(infix);
+		return postfix.solvePostfixExpression();
+	}
+
+	@Benchmark
+	public double sharedEvaluator() throws InfixParsingException, PostfixParsingException {
+		return evaluator.evaluate(EXPRESSION);
+	}
+
+	@Benchmark
+	public double sharedCompiledExpression() {
+		return compiled.evaluate();
+	}
+}
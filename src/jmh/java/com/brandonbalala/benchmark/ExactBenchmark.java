@@ -0,0 +1,73 @@
+package com.brandonbalala.benchmark;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.CompiledExpression;
+import com.brandonbalala.logic.ExactExpression;
+
+/**
+ * Cost of the exact BigDecimal mode against the double path for the same
+ * expressions and bindings. The double path stays in the interpreter, the
+ * automatic switch to bytecode is turned off in the forked JVM. Add -prof gc
+ * for the objects created by the exact mode:
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar ExactBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dcom.brandonbalala.compileThreshold=0")
+public class ExactBenchmark {
+	@Param({ "price*qty-discount", "(price*qty-discount)*(1+rate/100)/periods" })
+	public String expression;
+
+	@Param({ "16", "34" })
+	public int precision;
+
+	private CompiledExpression compiled;
+	private ExactExpression exact;
+	private double[] doubleBindings;
+	private BigDecimal[] exactBindings;
+
+	@Setup
+	public void setup() throws InfixParsingException, PostfixParsingException {
+		compiled = CompiledExpression.compile(expression);
+		exact = ExactExpression.compile(expression, new MathContext(precision));
+
+		String[] values = { "19.99", "3", "0.97", "4.5", "12" };
+		doubleBindings = new double[compiled.getVariableCount()];
+		exactBindings = new BigDecimal[compiled.getVariableCount()];
+		for (int slot = 0; slot < doubleBindings.length; slot++) {
+			doubleBindings[slot] = Double.parseDouble(values[slot]);
+			exactBindings[slot] = new BigDecimal(values[slot]);
+		}
+	}
+
+	@Benchmark
+	public double doublePath() {
+		return compiled.evaluate(doubleBindings);
+	}
+
+	@Benchmark
+	public BigDecimal exactPath() {
+		return exact.evaluate(exactBindings);
+	}
+}
@@ -0,0 +1,113 @@
+package com.brandonbalala.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generates valid infix expressions of a chosen shape for the benchmarks.
+ * The same arguments always give the same expressions.
+ */
+public final class ExpressionCorpus {
+	private static final char[] OPERATORS = { '+', '-', '*', '/' };
+
+	/**
+	 * Constructor, only static methods
+	 */
+	private ExpressionCorpus() {
+	}
+
+	/**
+	 * Generates expressions
+	 *
+	 * @param count
+	 *            number of expressions
+	 * @param operands
+	 *            number of operands of each expression, its length
+	 * @param maxDepth
+	 *            deepest nesting of parentheses
+	 * @param literalDigits
+	 *            digits of every number literal, the literal density of the
+	 *            expression
+	 * @param seed
+	 * @return the expressions
+	 */
+	public static String[] generate(int count, int operands, int maxDepth, int literalDigits, long seed) {
+		Random random = new Random(seed);
+		String[] expressions = new String[count];
+
+		for (int cntr = 0; cntr < count; cntr++)
+			expressions[cntr] = generate(random, operands, maxDepth, literalDigits);
+
+		return expressions;
+	}
+
+	/**
+	 * Generates one expression
+	 */
+	private static String generate(Random random, int operands, int maxDepth, int literalDigits) {
+		StringBuilder sb = new StringBuilder();
+		int depth = 0;
+
+		for (int operand = 0; operand < operands; operand++) {
+			if (operand > 0)
+				sb.append(OPERATORS[random.nextInt(OPERATORS.length)]);
+
+			// Open parentheses, leaving enough operands to close them
+			while (depth < maxDepth && operands - operand > depth + 1 && random.nextInt(3) == 0) {
+				sb.append('(');
+				depth++;
+			}
+
+			appendLiteral(random, sb, literalDigits);
+
+			// Close parentheses, never right after opening them
+			while (depth > 0 && sb.charAt(sb.length() - literalLength(sb) - 1) != '(' && random.nextInt(3) == 0) {
+				sb.append(')');
+				depth--;
+			}
+		}
+
+		while (depth-- > 0)
+			sb.append(')');
+
+		return sb.toString();
+	}
+
+	/**
+	 * Appends a number literal that is never 0, so no expression divides by
+	 * zero. A third of the literals are negative and half of them have
+	 * decimals.
+	 */
+	private static void appendLiteral(Random random, StringBuilder sb, int digits) {
+		if (random.nextInt(3) == 0)
+			sb.append('-');
+
+		sb.append((char) ('1' + random.nextInt(9)));
+
+		int decimals = digits > 1 && random.nextBoolean() ? random.nextInt(digits - 1) + 1 : 0;
+		for (int cntr = 1; cntr < digits; cntr++) {
+			if (cntr == digits - decimals)
+				sb.append('.');
+			sb.append((char) ('0' + random.nextInt(10)));
+		}
+	}
+
+	/**
+	 * Get the length of the literal at the end of the builder
+	 */
+	private static int literalLength(StringBuilder sb) {
+		int length = 0;
+		while (length < sb.length()) {
+			char theChar = sb.charAt(sb.length() - length - 1);
+			if ((theChar < '0' || theChar > '9') && theChar != '.' && theChar != '-')
+				break;
+			// A - after an operand is the subtraction, not a sign
+			if (theChar == '-' && length < sb.length() - 1) {
+				char previous = sb.charAt(sb.length() - length - 2);
+				if (previous == ')' || (previous >= '0' && previous <= '9'))
+					break;
+			}
+			length++;
+		}
+		return length;
+	}
+}
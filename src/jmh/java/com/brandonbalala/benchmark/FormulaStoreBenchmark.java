@@ -0,0 +1,72 @@
+package com.brandonbalala.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.CompiledExpression;
+import com.brandonbalala.logic.FormulaStore;
+
+/**
+ * Milliseconds to open a FormulaStore of 500k formulas and evaluate one of
+ * them, the startup of a process that used to compile them all from text.
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar FormulaStoreBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormulaStoreBenchmark {
+	private static final int STORE_SIZE = 500000;
+	private static final String[] FORMULAS = { "price*qty-discount", "(a+b)*(c-d)/(a*e)+(b-c)*2.5-d/(e+1)",
+			"max(x,y*2,-z)+1", "-rate*(base_2+10)-rate", "68+(2+9-18)/1.2*5.3*x" };
+
+	private Path file;
+	private double[] bindings = { 1, 2, 3, 4, 5 };
+
+	@Setup
+	public void setup() throws IOException, InfixParsingException, PostfixParsingException {
+		file = Files.createTempFile("formulas", ".store");
+		Files.delete(file);
+
+		Map<String, CompiledExpression> formulas = new LinkedHashMap<String, CompiledExpression>();
+		for (int cntr = 0; cntr < STORE_SIZE; cntr++)
+			formulas.put("formula-" + cntr, CompiledExpression.compile(FORMULAS[cntr % FORMULAS.length] + "+" + cntr));
+
+		try (FormulaStore store = FormulaStore.open(file)) {
+			store.append(formulas);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public double openAndEvaluate() throws IOException {
+		try (FormulaStore store = FormulaStore.open(file)) {
+			return store.evaluate("formula-123456", bindings);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.brandonbalala.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.BytecodeCompiler;
+import com.brandonbalala.logic.CompiledExpression;
+import com.brandonbalala.logic.Evaluator;
+import com.brandonbalala.logic.Formula;
+import com.brandonbalala.utility.OperatorRegistry;
+
+/**
+ * Compares function calls with operators doing the same amount of work, in
+ * the interpreter and in the generated bytecode. hyp is a function registered
+ * through the FunctionBody SPI, it has no bytecode and stays interpreted in
+ * both benchmarks.
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar FunctionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dcom.brandonbalala.compileThreshold=0")
+public class FunctionBenchmark {
+	@Param({ "x*y+z", "max(x,y)+z", "x^y+z", "pow(x,y)+z", "-x+z", "abs(x)+z", "sqrt(x)+z", "hyp(x,y)+z" })
+	public String expression;
+
+	private CompiledExpression compiled;
+	private Formula formula;
+	private double[] bindings;
+	private double[] stack;
+
+	@Setup
+	public void setup() throws InfixParsingException, PostfixParsingException {
+		OperatorRegistry registry = new OperatorRegistry();
+		registry.registerFunction("hyp", 2, 2,
+				(arguments, offset, count) -> Math.sqrt(arguments[offset] * arguments[offset]
+						+ arguments[offset + 1] * arguments[offset + 1]));
+
+		compiled = new Evaluator(registry).compile(expression);
+		formula = BytecodeCompiler.compile(compiled);
+		if (formula == null)
+			formula = compiled::evaluate;
+
+		bindings = new double[compiled.getVariableCount()];
+		for (int slot = 0; slot < bindings.length; slot++)
+			bindings[slot] = 1.5 + slot;
+		stack = new double[compiled.getMaxStackDepth()];
+	}
+
+	@Benchmark
+	public double interpreter() {
+		return compiled.evaluate(bindings, stack);
+	}
+
+	@Benchmark
+	public double bytecode() {
+		return formula.evaluate(bindings);
+	}
+}
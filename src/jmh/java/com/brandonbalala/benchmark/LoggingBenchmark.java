@@ -0,0 +1,86 @@
+package com.brandonbalala.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.Evaluator;
+
+/**
+ * Expressions per microsecond of a shared Evaluator with logging turned off
+ * and at the level of the production configuration. The scores should be the
+ * same, the debug and trace messages of the evaluation are never built below
+ * their level.
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar LoggingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark {
+	@Param({ "OFF", "INFO" })
+	public String level;
+
+	private Evaluator evaluator;
+	private Level previousLevel;
+
+	@Setup
+	public void setup() {
+		previousLevel = setRootLevel(Level.toLevel(level));
+		evaluator = new Evaluator();
+	}
+
+	@TearDown
+	public void tearDown() {
+		setRootLevel(previousLevel);
+	}
+
+	@Benchmark
+	public double validExpression() throws InfixParsingException, PostfixParsingException {
+		return evaluator.evaluate("(500*1.7/-5.3)+2-0.75/1.45");
+	}
+
+	@Benchmark
+	public String rejectedExpression() throws PostfixParsingException {
+		try {
+			evaluator.evaluate("(500*1.7/-5.3)+2-0.75/0");
+			return null;
+		} catch (InfixParsingException e) {
+			return e.getMessage();
+		}
+	}
+
+	/**
+	 * Changes the level of the root logger of the current configuration
+	 *
+	 * @param newLevel
+	 * @return the previous level
+	 */
+	private static Level setRootLevel(Level newLevel) {
+		LoggerContext context = (LoggerContext) LogManager.getContext(false);
+		Level oldLevel = context.getConfiguration().getLoggerConfig(LogManager.ROOT_LOGGER_NAME).getLevel();
+
+		context.getConfiguration().getLoggerConfig(LogManager.ROOT_LOGGER_NAME).setLevel(newLevel);
+		context.updateLoggers();
+		return oldLevel;
+	}
+}
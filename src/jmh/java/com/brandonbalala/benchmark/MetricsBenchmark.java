@@ -0,0 +1,81 @@
+package com.brandonbalala.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.Evaluator;
+import com.brandonbalala.logic.Infix;
+import com.brandonbalala.logic.Postfix;
+import com.brandonbalala.metrics.EvaluatorMetrics;
+
+/**
+ * Cost of EvaluatorMetrics on parsing and solving, with the metrics off and
+ * on. The flag is read once when EvaluatorMetrics is loaded, every value of
+ * the parameter runs in its own fork and sets the system property before the
+ * class is loaded.
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar MetricsBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+	private static final String EXPRESSION = "(500*1.7/-5.3)+2-0.75/1.45";
+
+	@Param({ "false", "true" })
+	public boolean metrics;
+
+	private Infix infix;
+	private Postfix parsingPostfix;
+	private Postfix solvingPostfix;
+	private Evaluator evaluator;
+
+	@Setup
+	public void setup() throws InfixParsingException, PostfixParsingException {
+		System.setProperty("com.brandonbalala.metrics", String.valueOf(metrics));
+		if (EvaluatorMetrics.ENABLED != metrics)
+			throw new IllegalStateException("EvaluatorMetrics was loaded before the flag was set");
+
+		infix = new Infix();
+		parsingPostfix = new Postfix();
+
+		Infix solvingInfix = new Infix();
+		solvingInfix.setInfixQueue(EXPRESSION);
+		solvingPostfix = new Postfix();
+		solvingPostfix.parsePostfix(solvingInfix);
+		evaluator = new Evaluator();
+	}
+
+	@Benchmark
+	public Postfix parse() throws InfixParsingException, PostfixParsingException {
+		infix.setInfixQueue(EXPRESSION);
+		parsingPostfix.parsePostfix(infix);
+		return parsingPostfix;
+	}
+
+	@Benchmark
+	public Double solve() throws PostfixParsingException {
+		return solvingPostfix.solvePostfixExpression();
+	}
+
+	@Benchmark
+	public double evaluate() throws InfixParsingException, PostfixParsingException {
+		return evaluator.evaluate(EXPRESSION);
+	}
+}
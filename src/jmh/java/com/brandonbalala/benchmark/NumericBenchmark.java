@@ -0,0 +1,115 @@
+package com.brandonbalala.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.logic.Infix;
+import com.brandonbalala.utility.EvaluatorUtility;
+
+/**
+ * Compares the exception free EvaluatorUtility.isNumeric and parseNumber
+ * against the original Double.parseDouble based versions, over the tokens of
+ * realistic infix expressions, operators and parentheses included.
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar NumericBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumericBenchmark {
+	private static final String[] EXPRESSIONS = { "(500*1.7/-5.3)+2-0.75/1.45", "(-96/7)+(0.99*70)/(1.07*2)",
+			"68+(2+9-18)/1.2*5.3", "-99+3+1-2/(-4+0.5)", "(100/0.3*0.5+4)*0.75", "30/(50+0.5)*10/-5",
+			"(((((56.9*0.09)))))/((3-4.4)-(79-0.3)/(3/2.4))/0.5-2", "1+255/3+(1*2)",
+			"(360-2.50)/(2*(3-2)+62)", "3.6+-0.2-4*9" };
+
+	private String[] tokens;
+	private String[] numbers;
+
+	@Setup
+	public void setup() throws InfixParsingException {
+		List<String> allTokens = new ArrayList<String>();
+		List<String> numberTokens = new ArrayList<String>();
+
+		for (String expression : EXPRESSIONS) {
+			Infix infix = new Infix();
+			infix.setInfixQueue(expression);
+			for (String token : infix.getInfixQueue()) {
+				allTokens.add(token);
+				if (EvaluatorUtility.isNumeric(token))
+					numberTokens.add(token);
+			}
+		}
+
+		tokens = allTokens.toArray(new String[allTokens.size()]);
+		numbers = numberTokens.toArray(new String[numberTokens.size()]);
+	}
+
+	@Benchmark
+	public int legacyIsNumeric() {
+		int count = 0;
+		for (String token : tokens) {
+			if (legacyIsNumeric(token))
+				count++;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int isNumeric() {
+		int count = 0;
+		for (String token : tokens) {
+			if (EvaluatorUtility.isNumeric(token))
+				count++;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public double legacyParseDouble() {
+		double sum = 0;
+		for (String number : numbers) {
+			sum += Double.parseDouble(number);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double parseNumber() {
+		double sum = 0;
+		for (String number : numbers) {
+			sum += EvaluatorUtility.parseNumber(number);
+		}
+		return sum;
+	}
+
+	/**
+	 * EvaluatorUtility.isNumeric as it was before being rewritten
+	 *
+	 * @param string
+	 * @return true if numeric, false otherwise
+	 */
+	private static boolean legacyIsNumeric(String string) {
+		try {
+			Double.parseDouble(string);
+		} catch (NumberFormatException nfe) {
+			return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,70 @@
+package com.brandonbalala.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.logic.BatchResult;
+import com.brandonbalala.logic.ParallelEvaluator;
+
+/**
+ * Expressions per microsecond of ParallelEvaluator for pools of an
+ * increasing number of workers. Should grow close to linearly up to the
+ * number of cores.
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar ParallelBatchBenchmark -p parallelism=1,2,4,8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBatchBenchmark {
+	private static final int BATCH_SIZE = 100000;
+	private static final String[] EXPRESSIONS = { "(500*1.7/-5.3)+2-0.75/1.45", "(-96/7)+(0.99*70)/(1.07*2)",
+			"68+(2+9-18)/1.2*5.3", "-99+3+1-2/(-4+0.5)", "(100/0.3*0.5+4)*0.75", "30/(50+0.5)*10/-5" };
+
+	@Param({ "1", "2", "4" })
+	public int parallelism;
+
+	private ForkJoinPool pool;
+	private ParallelEvaluator parallelEvaluator;
+	private List<String> batch;
+
+	@Setup
+	public void setup() {
+		pool = new ForkJoinPool(parallelism);
+		parallelEvaluator = new ParallelEvaluator(pool);
+
+		batch = new ArrayList<String>(BATCH_SIZE);
+		for (int cntr = 0; cntr < BATCH_SIZE; cntr++)
+			batch.add(EXPRESSIONS[cntr % EXPRESSIONS.length]);
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public BatchResult evaluateAll() {
+		return parallelEvaluator.evaluateAll(batch);
+	}
+}
@@ -0,0 +1,124 @@
+package com.brandonbalala.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.Infix;
+import com.brandonbalala.logic.Postfix;
+import com.brandonbalala.utility.EvaluatorUtility;
+
+/**
+ * Hot paths of every stage, over generated corpora of varied length, nesting
+ * depth and literal density. Every benchmark op goes through the next
+ * expression of the corpus. Reports throughput and average latency, add
+ * -prof gc for the allocation rate:
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar ParsingBenchmark -prof gc
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar ParsingBenchmark -p operands=64 -p maxDepth=8
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+	private static final int CORPUS_SIZE = 256;
+
+	@Param({ "4", "32", "256" })
+	public int operands;
+
+	@Param({ "0", "4" })
+	public int maxDepth;
+
+	@Param({ "1", "8" })
+	public int literalDigits;
+
+	private String[] expressions;
+	private List<String>[] infixTokens;
+	private Postfix[] postfixes;
+	private Postfix reusedPostfix;
+	private int next;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void setup() throws InfixParsingException, PostfixParsingException {
+		expressions = ExpressionCorpus.generate(CORPUS_SIZE, operands, maxDepth, literalDigits, 42);
+		infixTokens = new List[CORPUS_SIZE];
+		postfixes = new Postfix[CORPUS_SIZE];
+		reusedPostfix = new Postfix();
+
+		for (int cntr = 0; cntr < CORPUS_SIZE; cntr++) {
+			Infix infix = new Infix();
+			infix.setInfixQueue(expressions[cntr]);
+			infixTokens[cntr] = new ArrayList<String>(infix.getInfixQueue());
+
+			postfixes[cntr] = new Postfix();
+			postfixes[cntr].parsePostfix(infix);
+		}
+	}
+
+	/**
+	 * Index of the expression of the next op
+	 */
+	private int next() {
+		next = (next + 1) & (CORPUS_SIZE - 1);
+		return next;
+	}
+
+	@Benchmark
+	public Queue<String> infixParse() throws InfixParsingException {
+		Infix infix = new Infix();
+		infix.setInfixQueue(expressions[next()]);
+		return infix.getInfixQueue();
+	}
+
+	@Benchmark
+	public Postfix postfixParse() throws PostfixParsingException {
+		Postfix postfix = new Postfix();
+		postfix.parsePostfix(new ArrayDeque<String>(infixTokens[next()]));
+		return postfix;
+	}
+
+	@Benchmark
+	public Postfix postfixParseReused() throws PostfixParsingException {
+		reusedPostfix.parsePostfix(new ArrayDeque<String>(infixTokens[next()]));
+		return reusedPostfix;
+	}
+
+	@Benchmark
+	public Double postfixSolve() throws PostfixParsingException {
+		return postfixes[next()].solvePostfixExpression();
+	}
+
+	@Benchmark
+	public void isNumeric(Blackhole blackhole) {
+		for (String token : infixTokens[next()])
+			blackhole.consume(EvaluatorUtility.isNumeric(token));
+	}
+
+	@Benchmark
+	public void isOperator(Blackhole blackhole) {
+		for (String token : infixTokens[next()])
+			blackhole.consume(EvaluatorUtility.isOperator(token));
+	}
+}
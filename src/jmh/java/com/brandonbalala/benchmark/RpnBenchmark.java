@@ -0,0 +1,68 @@
+package com.brandonbalala.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.CompiledExpression;
+import com.brandonbalala.logic.Evaluator;
+import com.brandonbalala.logic.RpnEvaluator;
+
+/**
+ * Expressions per microsecond evaluated from their infix text by an Evaluator
+ * and from the same expression in postfix by an RpnEvaluator, as a string and
+ * as bytes.
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar RpnBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RpnBenchmark {
+	private static final String INFIX = "(500*1.7/-5.3)+2-0.75/1.45*(68+(2+9-18)/1.2*5.3)";
+
+	private Evaluator evaluator;
+	private RpnEvaluator rpnEvaluator;
+	private String rpn;
+	private ByteBuffer rpnBytes;
+
+	@Setup
+	public void setup() throws InfixParsingException, PostfixParsingException {
+		evaluator = new Evaluator();
+		rpnEvaluator = new RpnEvaluator();
+		rpn = CompiledExpression.compile(INFIX).toString();
+		rpnBytes = ByteBuffer.wrap(rpn.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	@Benchmark
+	public double infix() throws InfixParsingException, PostfixParsingException {
+		return evaluator.evaluate(INFIX);
+	}
+
+	@Benchmark
+	public double rpnString() throws PostfixParsingException {
+		return rpnEvaluator.evaluate(rpn);
+	}
+
+	@Benchmark
+	public double rpnBytes() throws PostfixParsingException {
+		rpnBytes.rewind();
+		return rpnEvaluator.evaluate(rpnBytes);
+	}
+}
@@ -0,0 +1,126 @@
+package com.brandonbalala.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.Infix;
+import com.brandonbalala.logic.Postfix;
+import com.brandonbalala.utility.EvaluatorUtility;
+
+/**
+ * Compares Postfix.solvePostfixExpression on its primitive double stack with
+ * the original version that kept every operand as a String and went through
+ * Double.parseDouble and String.valueOf for every operator.
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar SolveBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolveBenchmark {
+	@Param({ "(2*3/1)+2", "(500*1.7/-5.3)+2-0.75/1.45",
+			"(((((56.9*0.09)))))/((3-4.4)-(79-0.3)/(3/2.4))/0.5-2+(360-2.50)/(2*(3-2)+62)*(1+255/3+(1*2))" })
+	public String expression;
+
+	private Postfix postfix;
+	private List<String> postfixTokens;
+
+	@Setup
+	public void setup() throws InfixParsingException, PostfixParsingException {
+		Infix infix = new Infix();
+		infix.setInfixQueue(expression);
+
+		postfix = new Postfix();
+		postfix.parsePostfix(infix);
+		postfixTokens = new ArrayList<String>(postfix.getPostFixQueue());
+	}
+
+	@Benchmark
+	public Double legacyStringStack() {
+		return legacySolve(postfixTokens);
+	}
+
+	@Benchmark
+	public Double primitiveStack() throws PostfixParsingException {
+		return postfix.solvePostfixExpression();
+	}
+
+	/**
+	 * Postfix.solvePostfixExpression as it was before being rewritten, except
+	 * that it does not consume the postfix tokens
+	 *
+	 * @param postfixTokens
+	 * @return the result
+	 */
+	private static Double legacySolve(List<String> postfixTokens) {
+		Deque<String> operandStack = new ArrayDeque<String>();
+		Deque<String> expressionDeque = new ArrayDeque<String>();
+
+		for (String element : postfixTokens) {
+			if (legacyIsNumeric(element)) {
+				operandStack.push(element);
+			} else if (EvaluatorUtility.isOperator(element)) {
+				expressionDeque.offer(element);
+				expressionDeque.offerLast(operandStack.pop());
+				expressionDeque.offerFirst(operandStack.pop());
+
+				operandStack.push(legacyEvaluateExpression(expressionDeque));
+			}
+		}
+
+		double result = Double.parseDouble(operandStack.pop());
+		return result;
+	}
+
+	private static String legacyEvaluateExpression(Deque<String> expressionDeque) {
+		Double firstOperand = Double.parseDouble(expressionDeque.pollFirst());
+		Double lastOperand = Double.parseDouble(expressionDeque.pollLast());
+		String operator = expressionDeque.poll();
+		Double result = null;
+
+		switch (operator) {
+		case EvaluatorUtility.ADDITION:
+			result = firstOperand + lastOperand;
+			break;
+		case EvaluatorUtility.SUBTRACTION:
+			result = firstOperand - lastOperand;
+			break;
+		case EvaluatorUtility.MULTIPLICATION:
+			result = firstOperand * lastOperand;
+			break;
+		case EvaluatorUtility.DIVISION:
+			result = firstOperand / lastOperand;
+			break;
+		}
+		return String.valueOf(result);
+	}
+
+	private static boolean legacyIsNumeric(String string) {
+		try {
+			Double.parseDouble(string);
+		} catch (NumberFormatException nfe) {
+			return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,83 @@
+package com.brandonbalala.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.CompiledExpression;
+import com.brandonbalala.logic.TreeEvaluator;
+
+/**
+ * Microseconds to evaluate one sum of products of an increasing number of
+ * terms, left to right with CompiledExpression and split over the workers of
+ * a pool with TreeEvaluator. The speedup of TreeEvaluator should grow with
+ * the size of the expression up to the number of workers.
+ *
+ * java -jar target/Evaluator-0.0.1-SNAPSHOT.jar TreeBenchmark -p terms=1000,100000 -p parallelism=1,4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeBenchmark {
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int terms;
+
+	@Param({ "1", "2", "4" })
+	public int parallelism;
+
+	private ForkJoinPool pool;
+	private CompiledExpression expression;
+	private TreeEvaluator tree;
+	private TreeEvaluator compensatedTree;
+	private double[] bindings;
+
+	@Setup
+	public void setup() throws InfixParsingException, PostfixParsingException {
+		StringBuilder sb = new StringBuilder("x*y");
+		for (int cntr = 1; cntr < terms; cntr++)
+			sb.append(cntr % 3 == 0 ? '-' : '+').append(cntr % 97).append(".5*x*(y-").append(cntr % 13).append(')');
+
+		pool = new ForkJoinPool(parallelism);
+		expression = CompiledExpression.compile(sb.toString());
+		tree = new TreeEvaluator(expression, pool, 4096, false);
+		compensatedTree = new TreeEvaluator(expression, pool, 4096, true);
+		bindings = new double[] { 1.25, 0.75 };
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public double sequential() {
+		return expression.evaluate(bindings);
+	}
+
+	@Benchmark
+	public double tree() {
+		return tree.evaluate(bindings);
+	}
+
+	@Benchmark
+	public double compensatedTree() {
+		return compensatedTree.evaluate(bindings);
+	}
+}
@@ -0,0 +1,249 @@
+package com.brandonbalala.cli;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.Evaluator;
+
+/**
+ * Command line entry point that evaluates a file holding one infix
+ * expression per line. The file is streamed, only the current line is kept in
+ * memory, and every result or error message is written on its own line in
+ * the same order as the expressions. A line longer than the maximum line
+ * length is skipped without being kept and reported as an error.
+ *
+ * java -jar Evaluator.jar [input file|-] [output file|-]
+ *
+ * Reads standard input and writes standard output when a file is not given
+ * or is -. The number of lines and lines per second are reported on standard
+ * error once done.
+ */
+public final class ExpressionFileEvaluator {
+	static final String ERROR_PREFIX = "ERROR: ";
+	static final String LINE_LENGTH_ERR_MSG = "Line too long, not evaluated";
+	static final int DEFAULT_MAX_LINE_LENGTH = 1 << 20;
+	private static final String STANDARD_STREAM = "-";
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final Evaluator evaluator;
+	private final int maxLineLength;
+	private long lineCount;
+	private long errorCount;
+
+	// Characters read ahead of the current line
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+	private int limit;
+	// Whether the last line ended with a carriage return, which may be
+	// followed by a line feed
+	private boolean skipLineFeed;
+	private final StringBuilder line = new StringBuilder();
+
+	/**
+	 * Constructor, lines are limited to DEFAULT_MAX_LINE_LENGTH characters
+	 */
+	public ExpressionFileEvaluator() {
+		this(DEFAULT_MAX_LINE_LENGTH);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param maxLineLength
+	 *            most characters of a line that is evaluated
+	 */
+	public ExpressionFileEvaluator(int maxLineLength) {
+		if (maxLineLength < 1)
+			throw new IllegalArgumentException("The maximum line length must be at least 1, got " + maxLineLength);
+
+		evaluator = new Evaluator();
+		this.maxLineLength = maxLineLength;
+	}
+
+	/**
+	 * Evaluates every line of the input and writes the results to the output
+	 *
+	 * @param input
+	 * @param output
+	 * @throws IOException
+	 */
+	public void evaluate(Reader input, Writer output) throws IOException {
+		long length;
+
+		while ((length = readLine(input)) >= 0) {
+			lineCount++;
+
+			if (length > maxLineLength) {
+				writeError(output, LINE_LENGTH_ERR_MSG);
+			} else {
+				try {
+					output.write(Double.toString(evaluator.evaluate(line.toString())));
+				} catch (InfixParsingException | PostfixParsingException e) {
+					writeError(output, e.getMessage());
+				}
+			}
+
+			output.write('\n');
+		}
+
+		output.flush();
+	}
+
+	/**
+	 * Reads the next line into line, without its terminator. Lines end like
+	 * for BufferedReader.readLine. Only the first maxLineLength characters
+	 * are kept, the rest of the line is read and dropped.
+	 *
+	 * @param input
+	 * @return the length of the whole line, -1 at the end of the input
+	 * @throws IOException
+	 */
+	private long readLine(Reader input) throws IOException {
+		line.setLength(0);
+
+		if (skipLineFeed) {
+			skipLineFeed = false;
+			if (!fill(input))
+				return -1;
+			if (buffer[position] == '\n')
+				position++;
+		}
+
+		if (!fill(input))
+			return -1;
+
+		long length = 0;
+		do {
+			int start = position;
+			while (position < limit && buffer[position] != '\n' && buffer[position] != '\r')
+				position++;
+
+			int count = position - start;
+			if (length < maxLineLength)
+				line.append(buffer, start, (int) Math.min(count, maxLineLength - length));
+			length += count;
+
+			if (position < limit) {
+				skipLineFeed = buffer[position++] == '\r';
+				return length;
+			}
+		} while (fill(input));
+
+		return length;
+	}
+
+	/**
+	 * Reads more of the input if every character read so far is used
+	 *
+	 * @param input
+	 * @return false at the end of the input
+	 * @throws IOException
+	 */
+	private boolean fill(Reader input) throws IOException {
+		if (position < limit)
+			return true;
+
+		int count = input.read(buffer, 0, buffer.length);
+		position = 0;
+		limit = Math.max(count, 0);
+		return count > 0;
+	}
+
+	/**
+	 * Writes the error message of an expression
+	 *
+	 * @param output
+	 * @param message
+	 * @throws IOException
+	 */
+	private void writeError(Writer output, String message) throws IOException {
+		errorCount++;
+		output.write(ERROR_PREFIX);
+		output.write(message);
+	}
+
+	/**
+	 * Get the number of lines evaluated so far
+	 *
+	 * @return lineCount
+	 */
+	public long getLineCount() {
+		return lineCount;
+	}
+
+	/**
+	 * Get the number of lines that were not proper expressions
+	 *
+	 * @return errorCount
+	 */
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * Opens the input, a file or standard input. It is not buffered further,
+	 * evaluate reads it in large blocks.
+	 *
+	 * @param name
+	 * @return the reader
+	 * @throws IOException
+	 */
+	private static Reader openInput(String name) throws IOException {
+		if (name == null || name.equals(STANDARD_STREAM))
+			return Channels.newReader(Channels.newChannel(System.in), StandardCharsets.UTF_8.newDecoder(), -1);
+
+		return Files.newBufferedReader(Paths.get(name), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Opens the output, a file or standard output
+	 *
+	 * @param name
+	 * @return the writer
+	 * @throws IOException
+	 */
+	private static Writer openOutput(String name) throws IOException {
+		if (name == null || name.equals(STANDARD_STREAM))
+			return new BufferedWriter(
+					Channels.newWriter(Channels.newChannel(System.out), StandardCharsets.UTF_8.newEncoder(), -1),
+					BUFFER_SIZE);
+
+		return Files.newBufferedWriter(Paths.get(name), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Evaluates the input file into the output file
+	 *
+	 * @param args
+	 *            input file and output file, both optional
+	 */
+	public static void main(String[] args) {
+		if (args.length > 2) {
+			System.err.println("Usage: java -jar Evaluator.jar [input file|-] [output file|-]");
+			System.exit(2);
+		}
+
+		ExpressionFileEvaluator fileEvaluator = new ExpressionFileEvaluator();
+		long start = System.nanoTime();
+
+		try (Reader input = openInput(args.length > 0 ? args[0] : null);
+				Writer output = openOutput(args.length > 1 ? args[1] : null)) {
+			fileEvaluator.evaluate(input, output);
+		} catch (IOException e) {
+			System.err.println("Could not evaluate the file: " + e.getMessage());
+			System.exit(1);
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.err.printf("Evaluated %d lines (%d errors) in %.3f s, %.0f lines/s%n", fileEvaluator.getLineCount(),
+				fileEvaluator.getErrorCount(), seconds, fileEvaluator.getLineCount() / seconds);
+	}
+}
@@ -0,0 +1,16 @@
+package com.brandonbalala.exception;
+
+public class CircularReferenceException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	//Parameterless Constructor
+	public CircularReferenceException() {
+		super("Invalid formula, circular reference");
+	}
+
+	//Constructor that accepts a message
+	public CircularReferenceException(String message)
+	{
+		super(message);
+	}
+}
@@ -0,0 +1,395 @@
+package com.brandonbalala.graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.brandonbalala.exception.CircularReferenceException;
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.CompiledExpression;
+import com.brandonbalala.logic.Evaluator;
+import com.brandonbalala.utility.EvaluatorUtility;
+
+/**
+ * A spreadsheet of named cells. A cell either holds a value or a formula,
+ * and the variables of a formula are the names of the cells it refers to. A
+ * cell that is referred to before being set holds 0, like an empty cell.
+ *
+ * Changing a cell only marks the cells downstream of it dirty. The dirty cells
+ * are recomputed in waves: a wave holds every dirty cell whose references are
+ * all up to date, so the cells of a wave are independent and are computed in
+ * parallel on a ForkJoinPool. A formula that would make a cell depend on
+ * itself is rejected.
+ *
+ * Instances are not thread-safe, only the recalculation runs on many threads.
+ */
+public final class FormulaGraph {
+	static final int DEFAULT_THRESHOLD = 64;
+
+	private final ForkJoinPool pool;
+	private final Evaluator evaluator;
+	private final int threshold;
+
+	private final Map<String, Cell> cells = new HashMap<String, Cell>();
+	private final Set<Cell> dirtyCells = new LinkedHashSet<Cell>();
+
+	/**
+	 * Constructor, uses the common pool
+	 */
+	public FormulaGraph() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param pool
+	 */
+	public FormulaGraph(ForkJoinPool pool) {
+		this(pool, DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param pool
+	 * @param threshold
+	 *            number of cells of a wave below which it is not split anymore
+	 */
+	public FormulaGraph(ForkJoinPool pool, int threshold) {
+		if (threshold < 1)
+			throw new IllegalArgumentException("The threshold must be at least 1, got " + threshold);
+
+		this.pool = pool;
+		this.evaluator = new Evaluator();
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Sets the formula of a cell, the cell and every cell downstream of it
+	 * become dirty. The graph is left unchanged if the formula is rejected.
+	 *
+	 * @param name
+	 * @param formula
+	 *            infix expression whose variables are names of cells
+	 * @throws InfixParsingException,
+	 *             if string does not represent a proper mathematical equation
+	 * @throws PostfixParsingException
+	 * @throws CircularReferenceException
+	 *             if the cell would depend on itself
+	 */
+	public void setFormula(String name, String formula)
+			throws InfixParsingException, PostfixParsingException, CircularReferenceException {
+		checkName(name);
+		CompiledExpression expression = evaluator.compile(formula);
+
+		Cell cell = cells.get(name);
+		List<String> path = findPath(expression.getVariables(), name);
+		if (path != null) {
+			StringBuilder sb = new StringBuilder(EvaluatorUtility.CIRCULAR_REFERENCE_ERR_MSG).append(": ").append(name);
+			for (String step : path)
+				sb.append(" -> ").append(step);
+			throw new CircularReferenceException(sb.toString());
+		}
+
+		if (cell == null)
+			cell = createCell(name);
+
+		unlink(cell);
+		cell.expression = expression;
+		cell.references = new Cell[expression.getVariableCount()];
+		cell.bindings = new double[expression.getVariableCount()];
+		for (int slot = 0; slot < cell.references.length; slot++) {
+			String reference = expression.getVariables().get(slot);
+			Cell referenced = cells.get(reference);
+			if (referenced == null)
+				referenced = createCell(reference);
+
+			cell.references[slot] = referenced;
+			referenced.dependents.add(cell);
+		}
+
+		markDirty(cell);
+	}
+
+	/**
+	 * Sets the value of a cell, replacing its formula if it had one. Every
+	 * cell downstream of it becomes dirty.
+	 *
+	 * @param name
+	 * @param value
+	 */
+	public void setValue(String name, double value) {
+		checkName(name);
+
+		Cell cell = cells.get(name);
+		if (cell == null)
+			cell = createCell(name);
+
+		unlink(cell);
+		cell.value = value;
+
+		dirtyCells.remove(cell);
+		cell.dirty = false;
+		for (Cell dependent : cell.dependents)
+			markDirty(dependent);
+	}
+
+	/**
+	 * Get the value of a cell, recalculating the dirty cells first
+	 *
+	 * @param name
+	 * @return the value
+	 */
+	public double getValue(String name) {
+		Cell cell = cells.get(name);
+		if (cell == null)
+			throw new IllegalArgumentException("No cell named " + name);
+
+		if (cell.dirty)
+			recalculate();
+
+		return cell.value;
+	}
+
+	/**
+	 * Get the formula of a cell
+	 *
+	 * @param name
+	 * @return the compiled formula, null if the cell holds a value
+	 */
+	public CompiledExpression getFormula(String name) {
+		Cell cell = cells.get(name);
+		return cell == null ? null : cell.expression;
+	}
+
+	/**
+	 * Get the names of the cells
+	 *
+	 * @return the names
+	 */
+	public Set<String> getCellNames() {
+		return Collections.unmodifiableSet(cells.keySet());
+	}
+
+	/**
+	 * Get the number of cells waiting to be recalculated
+	 *
+	 * @return number of dirty cells
+	 */
+	public int getDirtyCount() {
+		return dirtyCells.size();
+	}
+
+	/**
+	 * Recomputes every dirty cell, wave after wave
+	 *
+	 * @return the number of waves
+	 */
+	public int recalculate() {
+		// References still dirty of every dirty cell, a cell is ready once
+		// they are all computed
+		List<Cell> wave = new ArrayList<Cell>();
+		for (Cell cell : dirtyCells) {
+			cell.pendingReferences = 0;
+			for (Cell reference : cell.references) {
+				if (reference.dirty)
+					cell.pendingReferences++;
+			}
+			if (cell.pendingReferences == 0)
+				wave.add(cell);
+		}
+
+		int waves = 0;
+		while (!wave.isEmpty()) {
+			Cell[] cellsOfWave = wave.toArray(new Cell[wave.size()]);
+			if (cellsOfWave.length <= threshold)
+				compute(cellsOfWave, 0, cellsOfWave.length);
+			else
+				pool.invoke(new WaveTask(cellsOfWave, 0, cellsOfWave.length));
+			waves++;
+
+			wave.clear();
+			for (Cell cell : cellsOfWave) {
+				cell.dirty = false;
+				for (Cell dependent : cell.dependents) {
+					if (dependent.dirty && --dependent.pendingReferences == 0)
+						wave.add(dependent);
+				}
+			}
+		}
+
+		dirtyCells.clear();
+		return waves;
+	}
+
+	/**
+	 * Computes a range of the cells of a wave
+	 *
+	 * @param cellsOfWave
+	 * @param from
+	 * @param to
+	 */
+	private static void compute(Cell[] cellsOfWave, int from, int to) {
+		for (int cntr = from; cntr < to; cntr++) {
+			Cell cell = cellsOfWave[cntr];
+			for (int slot = 0; slot < cell.references.length; slot++)
+				cell.bindings[slot] = cell.references[slot].value;
+
+			cell.value = cell.expression.evaluate(cell.bindings);
+		}
+	}
+
+	/**
+	 * Finds a path of references from the given cells to a cell
+	 *
+	 * @param references
+	 *            names of the cells to start from
+	 * @param target
+	 * @return the names of the cells from a reference to the target, null if
+	 *         there is no such path
+	 */
+	private List<String> findPath(List<String> references, String target) {
+		// Iterative depth first search over the references, remembering how
+		// every cell was reached
+		Map<String, String> reachedFrom = new HashMap<String, String>();
+		Deque<String> stack = new ArrayDeque<String>();
+		for (String reference : references) {
+			if (!reachedFrom.containsKey(reference)) {
+				reachedFrom.put(reference, null);
+				stack.push(reference);
+			}
+		}
+
+		while (!stack.isEmpty()) {
+			String name = stack.pop();
+
+			if (name.equals(target)) {
+				List<String> path = new ArrayList<String>();
+				for (String step = name; step != null; step = reachedFrom.get(step))
+					path.add(step);
+				Collections.reverse(path);
+				return path;
+			}
+
+			Cell cell = cells.get(name);
+			if (cell == null || cell.expression == null)
+				continue;
+
+			for (Cell reference : cell.references) {
+				if (!reachedFrom.containsKey(reference.name)) {
+					reachedFrom.put(reference.name, name);
+					stack.push(reference.name);
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Marks a cell and every cell downstream of it dirty
+	 *
+	 * @param cell
+	 */
+	private void markDirty(Cell cell) {
+		Deque<Cell> stack = new ArrayDeque<Cell>();
+		stack.push(cell);
+
+		while (!stack.isEmpty()) {
+			Cell current = stack.pop();
+			if (current.dirty)
+				continue;
+
+			current.dirty = true;
+			dirtyCells.add(current);
+			for (Cell dependent : current.dependents)
+				stack.push(dependent);
+		}
+	}
+
+	/**
+	 * Removes the formula of a cell from the cells it refers to
+	 *
+	 * @param cell
+	 */
+	private static void unlink(Cell cell) {
+		for (Cell reference : cell.references)
+			reference.dependents.remove(cell);
+
+		cell.expression = null;
+		cell.references = Cell.NO_REFERENCES;
+		cell.bindings = null;
+	}
+
+	private Cell createCell(String name) {
+		Cell cell = new Cell(name);
+		cells.put(name, cell);
+		return cell;
+	}
+
+	private static void checkName(String name) {
+		if (name == null || name.startsWith(EvaluatorUtility.SUBTRACTION) || !EvaluatorUtility.isVariable(name))
+			throw new IllegalArgumentException(EvaluatorUtility.CELL_NAME_ERR_MSG + ", got " + name);
+	}
+
+	/**
+	 * Computes a range of the cells of a wave, split in halves until small
+	 * enough
+	 */
+	private final class WaveTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Cell[] cellsOfWave;
+		private final int from;
+		private final int to;
+
+		private WaveTask(Cell[] cellsOfWave, int from, int to) {
+			this.cellsOfWave = cellsOfWave;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= threshold) {
+				FormulaGraph.compute(cellsOfWave, from, to);
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new WaveTask(cellsOfWave, from, middle), new WaveTask(cellsOfWave, middle, to));
+			}
+		}
+	}
+
+	/**
+	 * A value or a formula and the cells linked to it
+	 */
+	private static final class Cell {
+		private static final Cell[] NO_REFERENCES = new Cell[0];
+
+		private final String name;
+		private final Set<Cell> dependents = new LinkedHashSet<Cell>();
+
+		private CompiledExpression expression;
+		private Cell[] references = NO_REFERENCES;
+		private double[] bindings;
+
+		// Written by one worker of a wave, read after the pool joined it
+		private double value;
+		private boolean dirty;
+		private int pendingReferences;
+
+		private Cell(String name) {
+			this.name = name;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.brandonbalala.logic;
+
+/**
+ * Results of a batch of expressions, in the same order as the expressions.
+ * Every expression either has a value or the message of the exception that
+ * stopped it.
+ */
+public final class BatchResult {
+	private final double[] values;
+	private final String[] errors;
+	private int errorCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param size
+	 *            number of expressions
+	 */
+	BatchResult(int size) {
+		values = new double[size];
+		errors = new String[size];
+	}
+
+	/**
+	 * Sets the value of an expression
+	 *
+	 * @param index
+	 * @param value
+	 */
+	void setValue(int index, double value) {
+		values[index] = value;
+	}
+
+	/**
+	 * Sets the error message of an expression
+	 *
+	 * @param index
+	 * @param message
+	 */
+	void setError(int index, String message) {
+		errors[index] = message;
+	}
+
+	/**
+	 * Counts the errors once every expression is done
+	 */
+	void countErrors() {
+		errorCount = 0;
+		for (String error : errors) {
+			if (error != null)
+				errorCount++;
+		}
+	}
+
+	/**
+	 * Get the number of expressions
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return values.length;
+	}
+
+	/**
+	 * Check that the expression was evaluated
+	 *
+	 * @param index
+	 * @return true if it has a value, false if it has an error
+	 */
+	public boolean isSuccess(int index) {
+		return errors[index] == null;
+	}
+
+	/**
+	 * Get the value of an expression
+	 *
+	 * @param index
+	 * @return the value, 0 if the expression has an error
+	 */
+	public double getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Get the error message of an expression
+	 *
+	 * @param index
+	 * @return the message, null if the expression was evaluated
+	 */
+	public String getError(int index) {
+		return errors[index];
+	}
+
+	/**
+	 * Get the number of expressions that have an error
+	 *
+	 * @return errorCount
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+}
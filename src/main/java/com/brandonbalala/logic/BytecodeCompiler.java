@@ -0,0 +1,374 @@
+package com.brandonbalala.logic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.brandonbalala.utility.OperatorRegistry;
+
+/**
+ * Turns the program of a compiled expression into a class implementing
+ * Formula. Its evaluate method is the expression as straight-line double
+ * arithmetic on the JVM operand stack, without a loop or a switch, so the JIT
+ * can inline it and keep every intermediate value in a register.
+ *
+ * The class file is written directly, the programs only need a handful of
+ * instructions and no branch. The built-in functions are calls to the static
+ * methods of Math the JIT treats as intrinsics. Programs using an operator or
+ * a function registered besides the built-in ones are not compiled, they stay
+ * interpreted, as does any program whose class the JVM refuses. Every class gets its own class loader so it is
+ * unloaded with the last reference to its formula.
+ */
+public final class BytecodeCompiler {
+	private static final String FORMULA_NAME = Formula.class.getName().replace('.', '/');
+	private static final String CLASS_NAME_PREFIX = "com/brandonbalala/logic/GeneratedFormula";
+	private static final AtomicLong CLASS_COUNT = new AtomicLong();
+
+	// Limits of the class file format
+	private static final int MAX_CODE_LENGTH = 65535;
+	private static final int MAX_POOL_SIZE = 65535;
+
+	// Constant pool tags
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	// Constant pool entries shared by every generated class
+	private static final int THIS_CLASS = 2;
+	private static final int OBJECT_CLASS = 4;
+	private static final int FORMULA_CLASS = 6;
+	private static final int INIT_NAME = 7;
+	private static final int INIT_DESCRIPTOR = 8;
+	private static final int OBJECT_INIT = 10;
+	private static final int EVALUATE_NAME = 11;
+	private static final int EVALUATE_DESCRIPTOR = 12;
+	private static final int CODE_NAME = 13;
+	private static final int MATH_CLASS = 15;
+	private static final int UNARY_DESCRIPTOR = 16;
+	private static final int BINARY_DESCRIPTOR = 17;
+	// Name, name and type and method reference of every method of Math, in
+	// the order of the ids of the built-in functions
+	private static final String[] MATH_METHODS = { "abs", "sqrt", "log", "pow", "min", "max" };
+	private static final int FIRST_MATH_METHOD = 18;
+	private static final int FIRST_DOUBLE = FIRST_MATH_METHOD + 3 * MATH_METHODS.length;
+
+	// Opcodes of the JVM
+	private static final int ICONST_0 = 0x03;
+	private static final int DCONST_0 = 0x0E;
+	private static final int DCONST_1 = 0x0F;
+	private static final int BIPUSH = 0x10;
+	private static final int SIPUSH = 0x11;
+	private static final int LDC2_W = 0x14;
+	private static final int ALOAD_0 = 0x2A;
+	private static final int ALOAD_1 = 0x2B;
+	private static final int DALOAD = 0x31;
+	private static final int DADD = 0x63;
+	private static final int DSUB = 0x67;
+	private static final int DMUL = 0x6B;
+	private static final int DDIV = 0x6F;
+	private static final int DREM = 0x73;
+	private static final int DNEG = 0x77;
+	private static final int DRETURN = 0xAF;
+	private static final int RETURN = 0xB1;
+	private static final int INVOKESPECIAL = 0xB7;
+	private static final int INVOKESTATIC = 0xB8;
+
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+
+	/**
+	 * Constructor, only static methods
+	 */
+	private BytecodeCompiler() {
+	}
+
+	/**
+	 * Compiles an expression to bytecode
+	 *
+	 * @param expression
+	 * @return the formula, null if the program does not fit in one method,
+	 *         uses a registered operator or function or the JVM refuses the
+	 *         generated class
+	 */
+	public static Formula compile(CompiledExpression expression) {
+		String className = CLASS_NAME_PREFIX + CLASS_COUNT.incrementAndGet();
+		byte[] classFile = generate(expression, className);
+		if (classFile == null)
+			return null;
+
+		return load(className, classFile);
+	}
+
+	/**
+	 * Defines a generated class and creates its formula
+	 *
+	 * @param className
+	 *            internal name of the class
+	 * @param classFile
+	 * @return the formula, null if the class cannot be loaded, linked, verified
+	 *         or instantiated
+	 */
+	static Formula load(String className, byte[] classFile) {
+		try {
+			Class<?> formulaClass = new FormulaClassLoader().define(className.replace('/', '.'), classFile);
+			return (Formula) formulaClass.getConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			//The expression stays interpreted
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the class file of a formula
+	 *
+	 * @param expression
+	 * @param className
+	 *            internal name of the class
+	 * @return the class file, null if the program does not fit in one method or
+	 *         uses a registered operator or function
+	 */
+	static byte[] generate(CompiledExpression expression, String className) {
+		int[] program = expression.getCode();
+		double[] constants = expression.getConstants();
+
+		// Doubles of the constant pool by their bits, each entry takes two
+		// indexes
+		Map<Long, Integer> doubleIndexes = new HashMap<Long, Integer>();
+		ByteArrayOutputStream doubles = new ByteArrayOutputStream();
+		int poolSize = FIRST_DOUBLE;
+
+		ByteArrayOutputStream code = new ByteArrayOutputStream(program.length * 4 + 1);
+		int depth = 0;
+		int maxStack = 2;
+
+		for (int instruction : program) {
+			int operand = instruction >>> CompiledExpression.OPERAND_SHIFT;
+
+			switch (instruction & CompiledExpression.OPCODE_MASK) {
+			case CompiledExpression.PUSH_CONSTANT:
+				long bits = Double.doubleToRawLongBits(constants[operand]);
+				if (bits == 0) {
+					code.write(DCONST_0);
+				} else if (constants[operand] == 1) {
+					code.write(DCONST_1);
+				} else {
+					Integer index = doubleIndexes.get(bits);
+					if (index == null) {
+						if (poolSize + 2 > MAX_POOL_SIZE)
+							return null;
+
+						index = poolSize;
+						doubleIndexes.put(bits, index);
+						poolSize += 2;
+
+						doubles.write(CONSTANT_DOUBLE);
+						writeLong(doubles, bits);
+					}
+					code.write(LDC2_W);
+					writeShort(code, index);
+				}
+				depth += 2;
+				break;
+			case CompiledExpression.PUSH_VARIABLE:
+			case CompiledExpression.PUSH_NEGATED_VARIABLE:
+				// Array and index on top of the operands before daload
+				maxStack = Math.max(maxStack, depth + 2);
+
+				code.write(ALOAD_1);
+				if (operand <= 5) {
+					code.write(ICONST_0 + operand);
+				} else if (operand <= Byte.MAX_VALUE) {
+					code.write(BIPUSH);
+					code.write(operand);
+				} else if (operand <= Short.MAX_VALUE) {
+					code.write(SIPUSH);
+					writeShort(code, operand);
+				} else {
+					return null;
+				}
+				code.write(DALOAD);
+
+				if ((instruction & CompiledExpression.OPCODE_MASK) == CompiledExpression.PUSH_NEGATED_VARIABLE)
+					code.write(DNEG);
+				depth += 2;
+				break;
+			case CompiledExpression.ADD:
+				code.write(DADD);
+				depth -= 2;
+				break;
+			case CompiledExpression.SUBTRACT:
+				code.write(DSUB);
+				depth -= 2;
+				break;
+			case CompiledExpression.MULTIPLY:
+				code.write(DMUL);
+				depth -= 2;
+				break;
+			case CompiledExpression.DIVIDE:
+				code.write(DDIV);
+				depth -= 2;
+				break;
+			case CompiledExpression.REMAINDER:
+				code.write(DREM);
+				depth -= 2;
+				break;
+			case CompiledExpression.POWER:
+				invokeMath(code, OperatorRegistry.POW);
+				depth -= 2;
+				break;
+			case CompiledExpression.APPLY:
+				return null;
+			case CompiledExpression.CALL:
+				int functionId = expression.getFunction(instruction).getId();
+				if (functionId >= OperatorRegistry.BUILT_IN_FUNCTION_COUNT)
+					return null;
+
+				// Variadic functions fold their arguments two by two, a
+				// single argument is the result
+				int count = CompiledExpression.getArgumentCount(instruction);
+				int calls = functionId < OperatorRegistry.POW ? 1 : count - 1;
+				for (int cntr = 0; cntr < calls; cntr++)
+					invokeMath(code, functionId);
+				depth -= 2 * (count - 1);
+				break;
+			default:
+				throw new IllegalStateException("Unknown opcode " + (instruction & CompiledExpression.OPCODE_MASK));
+			}
+
+			maxStack = Math.max(maxStack, depth);
+			if (code.size() >= MAX_CODE_LENGTH || maxStack > MAX_CODE_LENGTH)
+				return null;
+		}
+		code.write(DRETURN);
+
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(code.size() + doubles.size() + 256);
+			DataOutputStream out = new DataOutputStream(bytes);
+
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(52);
+
+			out.writeShort(poolSize);
+			writeUtf8(out, className);
+			writeClass(out, 1);
+			writeUtf8(out, "java/lang/Object");
+			writeClass(out, 3);
+			writeUtf8(out, FORMULA_NAME);
+			writeClass(out, 5);
+			writeUtf8(out, "<init>");
+			writeUtf8(out, "()V");
+			out.writeByte(CONSTANT_NAME_AND_TYPE);
+			out.writeShort(INIT_NAME);
+			out.writeShort(INIT_DESCRIPTOR);
+			out.writeByte(CONSTANT_METHODREF);
+			out.writeShort(OBJECT_CLASS);
+			out.writeShort(9);
+			writeUtf8(out, "evaluate");
+			writeUtf8(out, "([D)D");
+			writeUtf8(out, "Code");
+			writeUtf8(out, "java/lang/Math");
+			writeClass(out, 14);
+			writeUtf8(out, "(D)D");
+			writeUtf8(out, "(DD)D");
+			for (int id = 0; id < MATH_METHODS.length; id++) {
+				int index = FIRST_MATH_METHOD + 3 * id;
+				writeUtf8(out, MATH_METHODS[id]);
+				out.writeByte(CONSTANT_NAME_AND_TYPE);
+				out.writeShort(index);
+				out.writeShort(id < OperatorRegistry.POW ? UNARY_DESCRIPTOR : BINARY_DESCRIPTOR);
+				out.writeByte(CONSTANT_METHODREF);
+				out.writeShort(MATH_CLASS);
+				out.writeShort(index + 1);
+			}
+			doubles.writeTo(out);
+
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(THIS_CLASS);
+			out.writeShort(OBJECT_CLASS);
+			out.writeShort(1);
+			out.writeShort(FORMULA_CLASS);
+			out.writeShort(0);
+
+			out.writeShort(2);
+			writeMethod(out, INIT_NAME, INIT_DESCRIPTOR, 1, 1,
+					new byte[] { (byte) ALOAD_0, (byte) INVOKESPECIAL, 0, OBJECT_INIT, (byte) RETURN });
+			writeMethod(out, EVALUATE_NAME, EVALUATE_DESCRIPTOR, maxStack, 2, code.toByteArray());
+
+			out.writeShort(0);
+			out.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			// Never thrown by a ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes a public method with its Code attribute
+	 */
+	private static void writeMethod(DataOutputStream out, int name, int descriptor, int maxStack, int maxLocals,
+			byte[] code) throws IOException {
+		out.writeShort(ACC_PUBLIC);
+		out.writeShort(name);
+		out.writeShort(descriptor);
+		out.writeShort(1);
+
+		out.writeShort(CODE_NAME);
+		out.writeInt(12 + code.length);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.length);
+		out.write(code);
+		// No exception table and no attribute
+		out.writeShort(0);
+		out.writeShort(0);
+	}
+
+	/**
+	 * Writes a call to the method of Math of a built-in function
+	 */
+	private static void invokeMath(ByteArrayOutputStream code, int functionId) {
+		code.write(INVOKESTATIC);
+		writeShort(code, FIRST_MATH_METHOD + 3 * functionId + 2);
+	}
+
+	private static void writeUtf8(DataOutputStream out, String value) throws IOException {
+		out.writeByte(CONSTANT_UTF8);
+		out.writeUTF(value);
+	}
+
+	private static void writeClass(DataOutputStream out, int nameIndex) throws IOException {
+		out.writeByte(CONSTANT_CLASS);
+		out.writeShort(nameIndex);
+	}
+
+	private static void writeShort(ByteArrayOutputStream out, int value) {
+		out.write(value >>> 8);
+		out.write(value);
+	}
+
+	private static void writeLong(ByteArrayOutputStream out, long value) {
+		for (int shift = 56; shift >= 0; shift -= 8)
+			out.write((int) (value >>> shift));
+	}
+
+	/**
+	 * Class loader of one generated formula
+	 */
+	private static final class FormulaClassLoader extends ClassLoader {
+		private FormulaClassLoader() {
+			super(Formula.class.getClassLoader());
+		}
+
+		private Class<?> define(String name, byte[] classFile) {
+			return defineClass(name, classFile, 0, classFile.length);
+		}
+	}
+}
@@ -0,0 +1,300 @@
+package com.brandonbalala.logic;
+
+import com.brandonbalala.utility.MathFunction;
+import com.brandonbalala.utility.Operator;
+import com.brandonbalala.utility.OperatorRegistry;
+
+/**
+ * Evaluates a compiled expression over whole columns of values at once.
+ * Column i holds the values of the variable in slot i, one per row.
+ *
+ * Rows are processed in chunks. Each instruction of the program runs as one
+ * simple loop over the chunk instead of once per row, which leaves the JIT
+ * free to unroll and vectorize it. Constants stay scalars and are never
+ * expanded into a column. The built-in functions of one argument run as
+ * loops over the chunk as well, any other function and the operators
+ * registered besides the built-in ones are called once per row.
+ */
+public final class ColumnarEvaluator {
+	static final int CHUNK_SIZE = 1024;
+
+	/**
+	 * Constructor, only static methods
+	 */
+	private ColumnarEvaluator() {
+	}
+
+	/**
+	 * Evaluates the expression for every row of the columns
+	 *
+	 * @param expression
+	 * @param columns
+	 *            values of the variables, indexed by slot then by row
+	 * @param out
+	 *            receives the result of every row, its length is the number
+	 *            of rows evaluated
+	 */
+	public static void evaluate(CompiledExpression expression, double[][] columns, double[] out) {
+		if (columns.length < expression.getVariableCount())
+			throw new IllegalArgumentException(
+					"Expected " + expression.getVariableCount() + " columns, got " + columns.length);
+
+		for (int slot = 0; slot < expression.getVariableCount(); slot++) {
+			if (columns[slot].length < out.length)
+				throw new IllegalArgumentException("Column " + slot + " has fewer than " + out.length + " rows");
+		}
+
+		int[] code = expression.getCode();
+		double[] constants = expression.getConstants();
+		int depth = expression.getMaxStackDepth();
+
+		// Every stack entry is either a scalar or a chunk of a column,
+		// results of operators go to the scratch column of their depth
+		double[][] scratch = new double[depth][CHUNK_SIZE];
+		double[][] arrays = new double[depth][];
+		int[] offsets = new int[depth];
+		double[] scalars = new double[depth];
+		double[] arguments = new double[expression.getMaxArgumentCount()];
+
+		for (int chunkStart = 0; chunkStart < out.length; chunkStart += CHUNK_SIZE) {
+			int length = Math.min(CHUNK_SIZE, out.length - chunkStart);
+			int top = -1;
+
+			for (int instruction : code) {
+				int opcode = instruction & CompiledExpression.OPCODE_MASK;
+
+				switch (opcode) {
+				case CompiledExpression.PUSH_CONSTANT:
+					top++;
+					arrays[top] = null;
+					scalars[top] = constants[instruction >>> CompiledExpression.OPERAND_SHIFT];
+					break;
+				case CompiledExpression.PUSH_VARIABLE:
+					top++;
+					arrays[top] = columns[instruction >>> CompiledExpression.OPERAND_SHIFT];
+					offsets[top] = chunkStart;
+					break;
+				case CompiledExpression.PUSH_NEGATED_VARIABLE:
+					top++;
+					negate(columns[instruction >>> CompiledExpression.OPERAND_SHIFT], chunkStart, scratch[top],
+							length);
+					arrays[top] = scratch[top];
+					offsets[top] = 0;
+					break;
+				case CompiledExpression.CALL:
+					int count = CompiledExpression.getArgumentCount(instruction);
+					top -= count - 1;
+					if (call(expression.getFunction(instruction), arrays, offsets, scalars, top, count, arguments,
+							scratch[top], length)) {
+						arrays[top] = scratch[top];
+						offsets[top] = 0;
+					}
+					break;
+				default:
+					top--;
+					double[] left = arrays[top];
+					double[] right = arrays[top + 1];
+
+					if (left == null && right == null) {
+						scalars[top] = expression.apply(instruction, scalars[top], scalars[top + 1]);
+					} else if (opcode == CompiledExpression.APPLY) {
+						applyPerRow(expression.getOperator(instruction), left, offsets[top], scalars[top], right,
+								offsets[top + 1], scalars[top + 1], scratch[top], length);
+					} else if (right == null) {
+						applyScalarRight(opcode, left, offsets[top], scalars[top + 1], scratch[top], length);
+					} else if (left == null) {
+						applyScalarLeft(opcode, scalars[top], right, offsets[top + 1], scratch[top], length);
+					} else {
+						apply(opcode, left, offsets[top], right, offsets[top + 1], scratch[top], length);
+					}
+
+					if (left != null || right != null) {
+						arrays[top] = scratch[top];
+						offsets[top] = 0;
+					}
+				}
+			}
+
+			if (arrays[0] == null) {
+				for (int row = 0; row < length; row++)
+					out[chunkStart + row] = scalars[0];
+			} else {
+				System.arraycopy(arrays[0], offsets[0], out, chunkStart, length);
+			}
+		}
+	}
+
+	/**
+	 * Negates a chunk of a column
+	 */
+	private static void negate(double[] column, int offset, double[] result, int length) {
+		for (int row = 0; row < length; row++)
+			result[row] = -column[offset + row];
+	}
+
+	/**
+	 * Calls a function on the entries of the stack from first to first +
+	 * count - 1
+	 *
+	 * @return true if the result is in the result chunk, false if it is a
+	 *         scalar left in scalars[first]
+	 */
+	private static boolean call(MathFunction function, double[][] arrays, int[] offsets, double[] scalars,
+			int first, int count, double[] arguments, double[] result, int length) {
+		boolean scalar = true;
+		for (int cntr = first; cntr < first + count; cntr++)
+			scalar &= arrays[cntr] == null;
+
+		if (scalar) {
+			scalars[first] = CompiledExpression.call(function, scalars, first, count);
+			return false;
+		}
+
+		double[] column = arrays[first];
+		int offset = offsets[first];
+
+		switch (count == 1 ? function.getId() : -1) {
+		case OperatorRegistry.ABS:
+			for (int row = 0; row < length; row++)
+				result[row] = Math.abs(column[offset + row]);
+			break;
+		case OperatorRegistry.SQRT:
+			for (int row = 0; row < length; row++)
+				result[row] = Math.sqrt(column[offset + row]);
+			break;
+		case OperatorRegistry.LOG:
+			for (int row = 0; row < length; row++)
+				result[row] = Math.log(column[offset + row]);
+			break;
+		default:
+			for (int row = 0; row < length; row++) {
+				for (int cntr = 0; cntr < count; cntr++) {
+					double[] argument = arrays[first + cntr];
+					arguments[cntr] = argument == null ? scalars[first + cntr]
+							: argument[offsets[first + cntr] + row];
+				}
+				result[row] = CompiledExpression.call(function, arguments, 0, count);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Applies a registered operator row by row, a null chunk stands for its
+	 * scalar
+	 */
+	private static void applyPerRow(Operator operator, double[] left, int leftOffset, double leftScalar,
+			double[] right, int rightOffset, double rightScalar, double[] result, int length) {
+		for (int row = 0; row < length; row++) {
+			result[row] = operator.apply(left == null ? leftScalar : left[leftOffset + row],
+					right == null ? rightScalar : right[rightOffset + row]);
+		}
+	}
+
+	/**
+	 * Applies an operator to two chunks, one loop per operator so every loop
+	 * stays simple enough to be vectorized
+	 */
+	private static void apply(int opcode, double[] left, int leftOffset, double[] right, int rightOffset,
+			double[] result, int length) {
+		switch (opcode) {
+		case CompiledExpression.ADD:
+			for (int row = 0; row < length; row++)
+				result[row] = left[leftOffset + row] + right[rightOffset + row];
+			break;
+		case CompiledExpression.SUBTRACT:
+			for (int row = 0; row < length; row++)
+				result[row] = left[leftOffset + row] - right[rightOffset + row];
+			break;
+		case CompiledExpression.MULTIPLY:
+			for (int row = 0; row < length; row++)
+				result[row] = left[leftOffset + row] * right[rightOffset + row];
+			break;
+		case CompiledExpression.DIVIDE:
+			for (int row = 0; row < length; row++)
+				result[row] = left[leftOffset + row] / right[rightOffset + row];
+			break;
+		case CompiledExpression.REMAINDER:
+			for (int row = 0; row < length; row++)
+				result[row] = left[leftOffset + row] % right[rightOffset + row];
+			break;
+		case CompiledExpression.POWER:
+			for (int row = 0; row < length; row++)
+				result[row] = Math.pow(left[leftOffset + row], right[rightOffset + row]);
+			break;
+		default:
+			throw new IllegalStateException("Unknown opcode " + opcode);
+		}
+	}
+
+	/**
+	 * Applies an operator to a chunk and a scalar right operand
+	 */
+	private static void applyScalarRight(int opcode, double[] left, int leftOffset, double right, double[] result,
+			int length) {
+		switch (opcode) {
+		case CompiledExpression.ADD:
+			for (int row = 0; row < length; row++)
+				result[row] = left[leftOffset + row] + right;
+			break;
+		case CompiledExpression.SUBTRACT:
+			for (int row = 0; row < length; row++)
+				result[row] = left[leftOffset + row] - right;
+			break;
+		case CompiledExpression.MULTIPLY:
+			for (int row = 0; row < length; row++)
+				result[row] = left[leftOffset + row] * right;
+			break;
+		case CompiledExpression.DIVIDE:
+			for (int row = 0; row < length; row++)
+				result[row] = left[leftOffset + row] / right;
+			break;
+		case CompiledExpression.REMAINDER:
+			for (int row = 0; row < length; row++)
+				result[row] = left[leftOffset + row] % right;
+			break;
+		case CompiledExpression.POWER:
+			for (int row = 0; row < length; row++)
+				result[row] = Math.pow(left[leftOffset + row], right);
+			break;
+		default:
+			throw new IllegalStateException("Unknown opcode " + opcode);
+		}
+	}
+
+	/**
+	 * Applies an operator to a scalar left operand and a chunk
+	 */
+	private static void applyScalarLeft(int opcode, double left, double[] right, int rightOffset, double[] result,
+			int length) {
+		switch (opcode) {
+		case CompiledExpression.ADD:
+			for (int row = 0; row < length; row++)
+				result[row] = left + right[rightOffset + row];
+			break;
+		case CompiledExpression.SUBTRACT:
+			for (int row = 0; row < length; row++)
+				result[row] = left - right[rightOffset + row];
+			break;
+		case CompiledExpression.MULTIPLY:
+			for (int row = 0; row < length; row++)
+				result[row] = left * right[rightOffset + row];
+			break;
+		case CompiledExpression.DIVIDE:
+			for (int row = 0; row < length; row++)
+				result[row] = left / right[rightOffset + row];
+			break;
+		case CompiledExpression.REMAINDER:
+			for (int row = 0; row < length; row++)
+				result[row] = left % right[rightOffset + row];
+			break;
+		case CompiledExpression.POWER:
+			for (int row = 0; row < length; row++)
+				result[row] = Math.pow(left, right[rightOffset + row]);
+			break;
+		default:
+			throw new IllegalStateException("Unknown opcode " + opcode);
+		}
+	}
+}
@@ -0,0 +1,557 @@
+package com.brandonbalala.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.EvaluatorUtility;
+import com.brandonbalala.utility.MathFunction;
+import com.brandonbalala.utility.Operator;
+import com.brandonbalala.utility.OperatorRegistry;
+
+/**
+ * An expression parsed once into a flat program that can be evaluated any
+ * number of times. The program is an array of instructions in postfix order
+ * plus a pool of the number constants, so evaluating it does not parse,
+ * create strings or allocate.
+ *
+ * Every variable of the expression is given a slot when compiling, in order
+ * of first appearance. The values of the variables are passed to evaluate as
+ * an array indexed by slot, so one compiled expression can be evaluated
+ * against any number of bindings.
+ *
+ * The program never changes and instances can be shared between threads. The
+ * only mutable state is an evaluation count and the bytecode formula: an
+ * expression evaluated COMPILE_THRESHOLD times is compiled once by
+ * BytecodeCompiler and evaluated through it from then on, or kept interpreted
+ * for good if it cannot be compiled. The threshold is read from the
+ * com.brandonbalala.compileThreshold system property, 0 turns it off.
+ */
+public final class CompiledExpression {
+	// Opcodes, an instruction is the opcode in the low byte and its operand
+	// in the upper bits. The built-in operators are ADD plus their id in the
+	// registry, any other operator is APPLY with its id as operand. CALL
+	// takes the function id and the argument count as operand.
+	static final int PUSH_CONSTANT = 0;
+	static final int PUSH_VARIABLE = 1;
+	static final int PUSH_NEGATED_VARIABLE = 2;
+	static final int ADD = 3;
+	static final int SUBTRACT = 4;
+	static final int MULTIPLY = 5;
+	static final int DIVIDE = 6;
+	static final int REMAINDER = 7;
+	static final int POWER = 8;
+	static final int APPLY = 9;
+	static final int CALL = 10;
+
+	static final int OPCODE_MASK = 0xFF;
+	static final int OPERAND_SHIFT = 8;
+	// Bits of the argument count in the operand of a CALL, the function id
+	// takes the others
+	static final int ARGUMENT_COUNT_BITS = 12;
+	static final int ARGUMENT_COUNT_MASK = (1 << ARGUMENT_COUNT_BITS) - 1;
+
+	// Scratch operand stack of each thread, shared by all the expressions
+	private static final ThreadLocal<double[]> STACKS = new ThreadLocal<double[]>() {
+		@Override
+		protected double[] initialValue() {
+			return new double[16];
+		}
+	};
+
+	private static final double[] NO_BINDINGS = new double[0];
+
+	// Evaluations before compiling to bytecode
+	static final int COMPILE_THRESHOLD = Integer.getInteger("com.brandonbalala.compileThreshold", 10000);
+
+	private final int[] code;
+	private final double[] constants;
+	private final String[] variables;
+	private final int maxStackDepth;
+	private final OperatorRegistry registry;
+
+	// Bytecode of the expression once it is hot, the count is only a hint
+	// and may miss increments between threads
+	private volatile Formula formula;
+	private int evaluationCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param code
+	 * @param constants
+	 * @param variables
+	 *            names of the variables, indexed by slot
+	 * @param maxStackDepth
+	 * @param registry
+	 *            operators of the APPLY instructions
+	 */
+	CompiledExpression(int[] code, double[] constants, String[] variables, int maxStackDepth,
+			OperatorRegistry registry) {
+		this.code = code;
+		this.constants = constants;
+		this.variables = variables;
+		this.maxStackDepth = maxStackDepth;
+		this.registry = registry;
+	}
+
+	/**
+	 * Parses an infix expression and compiles it
+	 *
+	 * @param expression
+	 * @return the compiled expression
+	 * @throws InfixParsingException,
+	 *             if string does not represent a proper mathematical equation
+	 * @throws PostfixParsingException
+	 */
+	public static CompiledExpression compile(String expression)
+			throws InfixParsingException, PostfixParsingException {
+		Infix infix = new Infix();
+		infix.setInfixQueue(expression);
+
+		Postfix postfix = new Postfix();
+		postfix.parsePostfix(infix);
+
+		return compile(postfix);
+	}
+
+	/**
+	 * Compiles the postfix program of an already parsed Postfix. The Postfix
+	 * is left untouched and can still be solved.
+	 *
+	 * @param postfix
+	 * @return the compiled expression
+	 * @throws PostfixParsingException
+	 *             if no postfix expression has been set on the Postfix
+	 */
+	public static CompiledExpression compile(Postfix postfix) throws PostfixParsingException {
+		TokenBuffer program = postfix.getProgram();
+		OperatorRegistry registry = postfix.getRegistry();
+
+		if (program.size() == 0)
+			throw new PostfixParsingException(EvaluatorUtility.SOLVE_ERROR_MSG);
+
+		int[] code = new int[program.size()];
+		double[] constants = new double[program.size()];
+		List<String> variables = new ArrayList<String>();
+		int codeSize = 0;
+		int constantCount = 0;
+		int depth = 0;
+		int maxDepth = 0;
+
+		for (int cntr = 0; cntr < program.size(); cntr++) {
+			byte kind = program.getKind(cntr);
+
+			if (kind == TokenBuffer.NUMBER) {
+				constants[constantCount] = postfix.getNumber(cntr);
+				code[codeSize++] = PUSH_CONSTANT | (constantCount << OPERAND_SHIFT);
+				constantCount++;
+
+				depth++;
+				maxDepth = Math.max(maxDepth, depth);
+			} else if (kind == TokenBuffer.VARIABLE) {
+				int start = program.getStart(cntr);
+				boolean negated = program.getSource().charAt(start) == '-';
+				String name = program.getSource().subSequence(negated ? start + 1 : start, program.getEnd(cntr))
+						.toString();
+
+				int slot = variables.indexOf(name);
+				if (slot < 0) {
+					slot = variables.size();
+					variables.add(name);
+				}
+				code[codeSize++] = (negated ? PUSH_NEGATED_VARIABLE : PUSH_VARIABLE) | (slot << OPERAND_SHIFT);
+
+				depth++;
+				maxDepth = Math.max(maxDepth, depth);
+			} else if (kind == TokenBuffer.FUNCTION) {
+				int argumentCount = postfix.getArgumentCount(cntr);
+				int functionId = postfix.getFunctionId(cntr);
+				if (argumentCount > ARGUMENT_COUNT_MASK
+						|| functionId >= 1 << (32 - OPERAND_SHIFT - ARGUMENT_COUNT_BITS))
+					throw new PostfixParsingException(EvaluatorUtility.ARITY_ERR_MSG);
+
+				code[codeSize++] = CALL
+						| (((functionId << ARGUMENT_COUNT_BITS) | argumentCount) << OPERAND_SHIFT);
+				depth -= argumentCount - 1;
+			} else {
+				code[codeSize++] = toInstruction(registry.get(program.getOperator(cntr)));
+				depth--;
+			}
+		}
+
+		return new CompiledExpression(Arrays.copyOf(code, codeSize), Arrays.copyOf(constants, constantCount),
+				variables.toArray(new String[variables.size()]), maxDepth, registry);
+	}
+
+	/**
+	 * Get the instruction of an operator
+	 *
+	 * @param operator
+	 * @return the instruction
+	 * @throws PostfixParsingException
+	 *             if not an operator
+	 */
+	private static int toInstruction(Operator operator) throws PostfixParsingException {
+		if (operator == null)
+			throw new PostfixParsingException(EvaluatorUtility.CHARACTER_ERR_MSG);
+
+		if (operator.getId() < OperatorRegistry.BUILT_IN_COUNT)
+			return ADD + operator.getId();
+
+		return APPLY | (operator.getId() << OPERAND_SHIFT);
+	}
+
+	/**
+	 * Get the operator of an operator instruction
+	 *
+	 * @param instruction
+	 * @return the operator
+	 */
+	Operator getOperator(int instruction) {
+		int opcode = instruction & OPCODE_MASK;
+		return registry.get(opcode == APPLY ? instruction >>> OPERAND_SHIFT : opcode - ADD);
+	}
+
+	/**
+	 * Get the function of a CALL instruction
+	 *
+	 * @param instruction
+	 * @return the function
+	 */
+	MathFunction getFunction(int instruction) {
+		return registry.getFunction(instruction >>> (OPERAND_SHIFT + ARGUMENT_COUNT_BITS));
+	}
+
+	/**
+	 * Get the number of arguments of a CALL instruction
+	 *
+	 * @param instruction
+	 * @return the argument count
+	 */
+	static int getArgumentCount(int instruction) {
+		return (instruction >>> OPERAND_SHIFT) & ARGUMENT_COUNT_MASK;
+	}
+
+	/**
+	 * Get the largest number of arguments of a call in the program
+	 *
+	 * @return the argument count, 0 without calls
+	 */
+	int getMaxArgumentCount() {
+		int maxCount = 0;
+		for (int instruction : code) {
+			if ((instruction & OPCODE_MASK) == CALL)
+				maxCount = Math.max(maxCount, getArgumentCount(instruction));
+		}
+
+		return maxCount;
+	}
+
+	/**
+	 * Calls a function. The built-in functions are plain calls to Math the
+	 * JIT can turn into intrinsics, any other function goes through its body.
+	 *
+	 * @param function
+	 * @param arguments
+	 * @param offset
+	 *            index of the first argument
+	 * @param count
+	 *            number of arguments
+	 * @return the result
+	 */
+	static double call(MathFunction function, double[] arguments, int offset, int count) {
+		double result;
+
+		switch (function.getId()) {
+		case OperatorRegistry.ABS:
+			return Math.abs(arguments[offset]);
+		case OperatorRegistry.SQRT:
+			return Math.sqrt(arguments[offset]);
+		case OperatorRegistry.LOG:
+			return Math.log(arguments[offset]);
+		case OperatorRegistry.POW:
+			return Math.pow(arguments[offset], arguments[offset + 1]);
+		case OperatorRegistry.MIN:
+			result = arguments[offset];
+			for (int cntr = 1; cntr < count; cntr++)
+				result = Math.min(result, arguments[offset + cntr]);
+			return result;
+		case OperatorRegistry.MAX:
+			result = arguments[offset];
+			for (int cntr = 1; cntr < count; cntr++)
+				result = Math.max(result, arguments[offset + cntr]);
+			return result;
+		default:
+			return function.apply(arguments, offset, count);
+		}
+	}
+
+	/**
+	 * Applies the operator of an instruction to its two operands
+	 *
+	 * @param instruction
+	 * @param left
+	 * @param right
+	 * @return the result
+	 */
+	double apply(int instruction, double left, double right) {
+		switch (instruction & OPCODE_MASK) {
+		case ADD:
+			return left + right;
+		case SUBTRACT:
+			return left - right;
+		case MULTIPLY:
+			return left * right;
+		case DIVIDE:
+			return left / right;
+		case REMAINDER:
+			return left % right;
+		case POWER:
+			return Math.pow(left, right);
+		case APPLY:
+			return registry.get(instruction >>> OPERAND_SHIFT).apply(left, right);
+		default:
+			throw new IllegalStateException("Unknown opcode " + (instruction & OPCODE_MASK));
+		}
+	}
+
+	/**
+	 * Get the largest number of operands on the stack while evaluating
+	 *
+	 * @return maxStackDepth
+	 */
+	public int getMaxStackDepth() {
+		return maxStackDepth;
+	}
+
+	/**
+	 * Creates an expression with the same variables and another program
+	 *
+	 * @param code
+	 * @param constants
+	 * @param maxStackDepth
+	 * @return the new expression
+	 */
+	CompiledExpression withProgram(int[] code, double[] constants, int maxStackDepth) {
+		return new CompiledExpression(code, constants, variables, maxStackDepth, registry);
+	}
+
+	/**
+	 * Get the instructions, not a copy, must not be modified
+	 *
+	 * @return code
+	 */
+	int[] getCode() {
+		return code;
+	}
+
+	/**
+	 * Get the constant pool, not a copy, must not be modified
+	 *
+	 * @return constants
+	 */
+	double[] getConstants() {
+		return constants;
+	}
+
+	/**
+	 * Get the names of the variables, indexed by slot
+	 *
+	 * @return the variable names
+	 */
+	public List<String> getVariables() {
+		return Collections.unmodifiableList(Arrays.asList(variables));
+	}
+
+	/**
+	 * Get the slot of a variable, the index of its value in the bindings
+	 *
+	 * @param name
+	 * @return the slot, -1 if the expression has no such variable
+	 */
+	public int getSlot(String name) {
+		for (int slot = 0; slot < variables.length; slot++) {
+			if (variables[slot].equals(name))
+				return slot;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Get the number of variables, the length of the bindings to evaluate with
+	 *
+	 * @return number of variables
+	 */
+	public int getVariableCount() {
+		return variables.length;
+	}
+
+	/**
+	 * Evaluates an expression without variables, using the operand stack of
+	 * the current thread
+	 *
+	 * @return the result
+	 */
+	public double evaluate() {
+		return evaluate(NO_BINDINGS);
+	}
+
+	/**
+	 * Evaluates the expression, using the operand stack of the current thread
+	 *
+	 * @param bindings
+	 *            values of the variables, indexed by slot
+	 * @return the result
+	 */
+	public double evaluate(double[] bindings) {
+		double[] stack = STACKS.get();
+		if (stack.length < maxStackDepth) {
+			stack = new double[maxStackDepth];
+			STACKS.set(stack);
+		}
+
+		return evaluate(bindings, stack);
+	}
+
+	/**
+	 * Evaluates the expression on the given operand stack
+	 *
+	 * @param bindings
+	 *            values of the variables, indexed by slot
+	 * @param stack
+	 *            scratch space of at least getMaxStackDepth() elements
+	 * @return the result
+	 */
+	public double evaluate(double[] bindings, double[] stack) {
+		if (bindings.length < variables.length)
+			throw new IllegalArgumentException("Expected " + variables.length + " bindings, got " + bindings.length);
+
+		Formula compiled = formula;
+		if (compiled != null)
+			return compiled.evaluate(bindings);
+
+		//The count stops at the threshold, so compiling is only tried once
+		if (evaluationCount < COMPILE_THRESHOLD && ++evaluationCount == COMPILE_THRESHOLD) {
+			compiled = BytecodeCompiler.compile(this);
+			if (compiled != null) {
+				formula = compiled;
+				return compiled.evaluate(bindings);
+			}
+		}
+
+		return interpret(bindings, stack, 0, code.length);
+	}
+
+	/**
+	 * Runs a range of the program that computes one value, such as a
+	 * subexpression, on the given operand stack
+	 *
+	 * @param bindings
+	 * @param stack
+	 * @param from
+	 *            index of the first instruction
+	 * @param to
+	 *            index following the last instruction
+	 * @return the value
+	 */
+	double interpret(double[] bindings, double[] stack, int from, int to) {
+		int top = -1;
+
+		for (int cntr = from; cntr < to; cntr++) {
+			int instruction = code[cntr];
+			switch (instruction & OPCODE_MASK) {
+			case PUSH_CONSTANT:
+				stack[++top] = constants[instruction >>> OPERAND_SHIFT];
+				break;
+			case PUSH_VARIABLE:
+				stack[++top] = bindings[instruction >>> OPERAND_SHIFT];
+				break;
+			case PUSH_NEGATED_VARIABLE:
+				stack[++top] = -bindings[instruction >>> OPERAND_SHIFT];
+				break;
+			case ADD:
+				top--;
+				stack[top] = stack[top] + stack[top + 1];
+				break;
+			case SUBTRACT:
+				top--;
+				stack[top] = stack[top] - stack[top + 1];
+				break;
+			case MULTIPLY:
+				top--;
+				stack[top] = stack[top] * stack[top + 1];
+				break;
+			case DIVIDE:
+				top--;
+				stack[top] = stack[top] / stack[top + 1];
+				break;
+			case REMAINDER:
+				top--;
+				stack[top] = stack[top] % stack[top + 1];
+				break;
+			case POWER:
+				top--;
+				stack[top] = Math.pow(stack[top], stack[top + 1]);
+				break;
+			case APPLY:
+				top--;
+				stack[top] = registry.get(instruction >>> OPERAND_SHIFT).apply(stack[top], stack[top + 1]);
+				break;
+			case CALL:
+				int count = getArgumentCount(instruction);
+				top -= count - 1;
+				stack[top] = call(getFunction(instruction), stack, top, count);
+				break;
+			}
+		}
+
+		// The top of the stack, as returned by the bytecode of the expression
+		return stack[top];
+	}
+
+	/**
+	 * Get the bytecode of the expression
+	 *
+	 * @return the formula, null until the expression is compiled to bytecode
+	 */
+	Formula getFormula() {
+		return formula;
+	}
+
+	/**
+	 * Get the program in postfix notation, elements separated by spaces
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		for (int instruction : code) {
+			if (sb.length() > 0)
+				sb.append(' ');
+
+			switch (instruction & OPCODE_MASK) {
+			case PUSH_CONSTANT:
+				sb.append(constants[instruction >>> OPERAND_SHIFT]);
+				break;
+			case PUSH_VARIABLE:
+				sb.append(variables[instruction >>> OPERAND_SHIFT]);
+				break;
+			case PUSH_NEGATED_VARIABLE:
+				sb.append(EvaluatorUtility.SUBTRACTION).append(variables[instruction >>> OPERAND_SHIFT]);
+				break;
+			case CALL:
+				sb.append(getFunction(instruction).getName());
+				break;
+			default:
+				sb.append(getOperator(instruction).getSymbol());
+			}
+		}
+
+		return sb.toString();
+	}
+}
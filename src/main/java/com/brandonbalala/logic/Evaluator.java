@@ -0,0 +1,164 @@
+package com.brandonbalala.logic;
+
+import java.math.MathContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.OperatorRegistry;
+
+/**
+ * Entry point to evaluate expressions from any number of threads. An
+ * Evaluator holds no state of its own, every thread gets its own Infix and
+ * Postfix the first time it uses it and reuses them for every following
+ * expression, so a single instance can be shared by a whole application.
+ *
+ * Rejected expressions are logged at debug level and results at trace level.
+ * Both are checked for being enabled first, so nothing is formatted or boxed
+ * when they are off.
+ */
+public final class Evaluator {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private final OperatorRegistry registry;
+	private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>() {
+		@Override
+		protected Workspace initialValue() {
+			return new Workspace(registry);
+		}
+	};
+
+	/**
+	 * Constructor, uses the operators of the default registry
+	 */
+	public Evaluator() {
+		this(OperatorRegistry.getDefault());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param registry
+	 *            operators the expressions may use
+	 */
+	public Evaluator(OperatorRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Parses and solves an infix expression
+	 *
+	 * @param expression
+	 * @return the result
+	 * @throws InfixParsingException,
+	 *             if string does not represent a proper mathematical equation
+	 * @throws PostfixParsingException
+	 */
+	public double evaluate(String expression) throws InfixParsingException, PostfixParsingException {
+		Workspace workspace = workspaces.get();
+
+		try {
+			workspace.infix.setInfixQueue(expression);
+			workspace.postfix.parsePostfix(workspace.infix);
+			double result = workspace.postfix.solvePostfixExpression();
+
+			if (log.isTraceEnabled())
+				log.trace("Evaluated {} = {}", expression, result);
+			return result;
+		} catch (InfixParsingException | PostfixParsingException e) {
+			logRejected(expression, e);
+			throw e;
+		} finally {
+			workspace.reset();
+		}
+	}
+
+	/**
+	 * Parses an infix expression into a CompiledExpression, which can be
+	 * shared between threads and evaluated any number of times
+	 *
+	 * @param expression
+	 * @return the compiled expression
+	 * @throws InfixParsingException,
+	 *             if string does not represent a proper mathematical equation
+	 * @throws PostfixParsingException
+	 */
+	public CompiledExpression compile(String expression) throws InfixParsingException, PostfixParsingException {
+		Workspace workspace = workspaces.get();
+
+		try {
+			workspace.infix.setInfixQueue(expression);
+			workspace.postfix.parsePostfix(workspace.infix);
+			return CompiledExpression.compile(workspace.postfix);
+		} catch (InfixParsingException | PostfixParsingException e) {
+			logRejected(expression, e);
+			throw e;
+		} finally {
+			workspace.reset();
+		}
+	}
+
+	/**
+	 * Parses an infix expression into an ExactExpression, evaluated in
+	 * BigDecimal under the given MathContext
+	 *
+	 * @param expression
+	 * @param mathContext
+	 *            precision and rounding of every operator
+	 * @return the compiled expression
+	 * @throws InfixParsingException,
+	 *             if string does not represent a proper mathematical equation
+	 * @throws PostfixParsingException,
+	 *             if the expression uses an operator or a function without an
+	 *             exact implementation
+	 */
+	public ExactExpression compileExact(String expression, MathContext mathContext)
+			throws InfixParsingException, PostfixParsingException {
+		Workspace workspace = workspaces.get();
+
+		try {
+			workspace.infix.setInfixQueue(expression);
+			workspace.postfix.parsePostfix(workspace.infix);
+			return ExactExpression.compile(workspace.postfix, mathContext);
+		} catch (InfixParsingException | PostfixParsingException e) {
+			logRejected(expression, e);
+			throw e;
+		} finally {
+			workspace.reset();
+		}
+	}
+
+	/**
+	 * Logs an expression that could not be parsed
+	 *
+	 * @param expression
+	 * @param e
+	 */
+	private void logRejected(String expression, Exception e) {
+		if (log.isDebugEnabled())
+			log.debug("Rejected expression {}: {}", expression, e.getMessage());
+	}
+
+	/**
+	 * Scratch state of one thread
+	 */
+	private static final class Workspace {
+		private final Infix infix;
+		private final Postfix postfix;
+
+		private Workspace(OperatorRegistry registry) {
+			infix = new Infix(registry);
+			postfix = new Postfix(registry);
+		}
+
+		/**
+		 * Clears the infix and the postfix for the next expression
+		 */
+		private void reset() {
+			infix.reset();
+			postfix.reset();
+		}
+	}
+}
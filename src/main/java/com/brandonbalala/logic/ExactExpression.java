@@ -0,0 +1,360 @@
+package com.brandonbalala.logic;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.List;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.EvaluatorUtility;
+import com.brandonbalala.utility.OperatorRegistry;
+
+/**
+ * A compiled expression evaluated in BigDecimal instead of double, for
+ * results that must be exact in decimal such as amounts of money. It runs the
+ * same program as CompiledExpression, but the constants are the exact
+ * decimal values written in the expression rather than their closest double.
+ *
+ * Every operator is computed under the MathContext given when compiling.
+ * Additions, subtractions and multiplications are exact unless the result has
+ * more digits than the precision allows. A division that does not end is
+ * rounded to the precision, or throws an ArithmeticException under an
+ * unlimited precision. Dividing by zero also throws an ArithmeticException.
+ * Remainders are computed like BigDecimal.remainder, and a power only takes
+ * an integer exponent, any other exponent throws an ArithmeticException.
+ * The functions abs, pow, min and max are exact as well. sqrt, log and the
+ * operators and functions registered besides the built-in ones only have a
+ * double implementation, compiling an expression that uses them throws a
+ * PostfixParsingException.
+ *
+ * Operands are never rescaled. Constants are parsed once when compiling and
+ * the operands on the stack are the BigDecimal objects themselves. The only
+ * objects created while evaluating are the results of the operators and the
+ * negated variables.
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public final class ExactExpression {
+	// Scratch operand stack of each thread, shared by all the expressions
+	private static final ThreadLocal<BigDecimal[]> STACKS = new ThreadLocal<BigDecimal[]>() {
+		@Override
+		protected BigDecimal[] initialValue() {
+			return new BigDecimal[16];
+		}
+	};
+
+	private static final BigDecimal[] NO_BINDINGS = new BigDecimal[0];
+
+	private final CompiledExpression expression;
+	private final BigDecimal[] constants;
+	private final MathContext mathContext;
+
+	/**
+	 * Constructor
+	 *
+	 * @param expression
+	 *            program and variables
+	 * @param constants
+	 *            exact values of the constants, in the order of the constant
+	 *            pool of the program
+	 * @param mathContext
+	 */
+	private ExactExpression(CompiledExpression expression, BigDecimal[] constants, MathContext mathContext) {
+		this.expression = expression;
+		this.constants = constants;
+		this.mathContext = mathContext;
+	}
+
+	/**
+	 * Parses an infix expression and compiles it for exact evaluation
+	 *
+	 * @param expression
+	 * @param mathContext
+	 *            precision and rounding of every operator
+	 * @return the compiled expression
+	 * @throws InfixParsingException,
+	 *             if string does not represent a proper mathematical equation
+	 * @throws PostfixParsingException,
+	 *             if the expression uses sqrt or log
+	 */
+	public static ExactExpression compile(String expression, MathContext mathContext)
+			throws InfixParsingException, PostfixParsingException {
+		Infix infix = new Infix();
+		infix.setInfixQueue(expression);
+
+		Postfix postfix = new Postfix();
+		postfix.parsePostfix(infix);
+
+		return compile(postfix, mathContext);
+	}
+
+	/**
+	 * Compiles the postfix program of an already parsed Postfix for exact
+	 * evaluation. The Postfix is left untouched and can still be solved.
+	 *
+	 * @param postfix
+	 * @param mathContext
+	 *            precision and rounding of every operator
+	 * @return the compiled expression
+	 * @throws PostfixParsingException
+	 *             if no postfix expression has been set on the Postfix, or if
+	 *             the expression uses an operator or a function without an
+	 *             exact implementation
+	 */
+	public static ExactExpression compile(Postfix postfix, MathContext mathContext) throws PostfixParsingException {
+		CompiledExpression expression = CompiledExpression.compile(postfix);
+		TokenBuffer program = postfix.getProgram();
+
+		for (int instruction : expression.getCode()) {
+			int opcode = instruction & CompiledExpression.OPCODE_MASK;
+			if (opcode == CompiledExpression.APPLY
+					|| opcode == CompiledExpression.CALL && !isExact(expression.getFunction(instruction).getId()))
+				throw new PostfixParsingException(EvaluatorUtility.EXACT_ERR_MSG);
+		}
+
+		// Numbers of the program are the constant pool, in the same order
+		BigDecimal[] constants = new BigDecimal[expression.getConstants().length];
+		int constantCount = 0;
+		for (int cntr = 0; cntr < program.size(); cntr++) {
+			if (program.getKind(cntr) == TokenBuffer.NUMBER) {
+				constants[constantCount++] = new BigDecimal(
+						program.getSource().subSequence(program.getStart(cntr), program.getEnd(cntr)).toString());
+			}
+		}
+
+		return new ExactExpression(expression, constants, mathContext);
+	}
+
+	/**
+	 * Check whether a function can be computed in BigDecimal
+	 *
+	 * @param functionId
+	 * @return true if the function has an exact implementation
+	 */
+	private static boolean isExact(int functionId) {
+		return functionId == OperatorRegistry.ABS || functionId == OperatorRegistry.POW
+				|| functionId == OperatorRegistry.MIN || functionId == OperatorRegistry.MAX;
+	}
+
+	/**
+	 * Get the precision and rounding of every operator
+	 *
+	 * @return mathContext
+	 */
+	public MathContext getMathContext() {
+		return mathContext;
+	}
+
+	/**
+	 * Get the same expression compiled for double evaluation
+	 *
+	 * @return the compiled expression
+	 */
+	public CompiledExpression getCompiledExpression() {
+		return expression;
+	}
+
+	/**
+	 * Get the names of the variables, indexed by slot
+	 *
+	 * @return the variable names
+	 */
+	public List<String> getVariables() {
+		return expression.getVariables();
+	}
+
+	/**
+	 * Get the slot of a variable, the index of its value in the bindings
+	 *
+	 * @param name
+	 * @return the slot, -1 if the expression has no such variable
+	 */
+	public int getSlot(String name) {
+		return expression.getSlot(name);
+	}
+
+	/**
+	 * Get the number of variables, the length of the bindings to evaluate with
+	 *
+	 * @return number of variables
+	 */
+	public int getVariableCount() {
+		return expression.getVariableCount();
+	}
+
+	/**
+	 * Evaluates an expression without variables, using the operand stack of
+	 * the current thread
+	 *
+	 * @return the result
+	 */
+	public BigDecimal evaluate() {
+		return evaluate(NO_BINDINGS);
+	}
+
+	/**
+	 * Evaluates the expression, using the operand stack of the current thread
+	 *
+	 * @param bindings
+	 *            values of the variables, indexed by slot
+	 * @return the result
+	 */
+	public BigDecimal evaluate(BigDecimal[] bindings) {
+		BigDecimal[] stack = STACKS.get();
+		if (stack.length < expression.getMaxStackDepth()) {
+			stack = new BigDecimal[expression.getMaxStackDepth()];
+			STACKS.set(stack);
+		}
+
+		try {
+			return evaluate(bindings, stack);
+		} finally {
+			// Does not keep the operands reachable from the thread
+			for (int cntr = 0; cntr < expression.getMaxStackDepth(); cntr++)
+				stack[cntr] = null;
+		}
+	}
+
+	/**
+	 * Evaluates the expression on the given operand stack
+	 *
+	 * @param bindings
+	 *            values of the variables, indexed by slot
+	 * @param stack
+	 *            scratch space of at least getMaxStackDepth() elements
+	 * @return the result, rounded to the MathContext
+	 */
+	public BigDecimal evaluate(BigDecimal[] bindings, BigDecimal[] stack) {
+		if (bindings.length < expression.getVariableCount())
+			throw new IllegalArgumentException(
+					"Expected " + expression.getVariableCount() + " bindings, got " + bindings.length);
+
+		int top = -1;
+
+		for (int instruction : expression.getCode()) {
+			switch (instruction & CompiledExpression.OPCODE_MASK) {
+			case CompiledExpression.PUSH_CONSTANT:
+				stack[++top] = constants[instruction >>> CompiledExpression.OPERAND_SHIFT];
+				break;
+			case CompiledExpression.PUSH_VARIABLE:
+				stack[++top] = bindings[instruction >>> CompiledExpression.OPERAND_SHIFT];
+				break;
+			case CompiledExpression.PUSH_NEGATED_VARIABLE:
+				stack[++top] = bindings[instruction >>> CompiledExpression.OPERAND_SHIFT].negate();
+				break;
+			case CompiledExpression.ADD:
+				top--;
+				stack[top] = stack[top].add(stack[top + 1], mathContext);
+				break;
+			case CompiledExpression.SUBTRACT:
+				top--;
+				stack[top] = stack[top].subtract(stack[top + 1], mathContext);
+				break;
+			case CompiledExpression.MULTIPLY:
+				top--;
+				stack[top] = stack[top].multiply(stack[top + 1], mathContext);
+				break;
+			case CompiledExpression.DIVIDE:
+				top--;
+				stack[top] = stack[top].divide(stack[top + 1], mathContext);
+				break;
+			case CompiledExpression.REMAINDER:
+				top--;
+				stack[top] = stack[top].remainder(stack[top + 1], mathContext);
+				break;
+			case CompiledExpression.POWER:
+				top--;
+				stack[top] = power(stack[top], stack[top + 1]);
+				break;
+			case CompiledExpression.CALL:
+				int count = CompiledExpression.getArgumentCount(instruction);
+				top -= count - 1;
+				stack[top] = call(expression.getFunction(instruction).getId(), stack, top, count);
+				break;
+			}
+		}
+
+		return stack[top].round(mathContext);
+	}
+
+	/**
+	 * Calls a function that has an exact implementation
+	 *
+	 * @param functionId
+	 * @param arguments
+	 * @param offset
+	 *            index of the first argument
+	 * @param count
+	 *            number of arguments
+	 * @return the result
+	 */
+	private BigDecimal call(int functionId, BigDecimal[] arguments, int offset, int count) {
+		BigDecimal result = arguments[offset];
+
+		switch (functionId) {
+		case OperatorRegistry.ABS:
+			return result.abs(mathContext);
+		case OperatorRegistry.POW:
+			return power(result, arguments[offset + 1]);
+		case OperatorRegistry.MIN:
+			for (int cntr = 1; cntr < count; cntr++)
+				result = result.min(arguments[offset + cntr]);
+			return result;
+		default:
+			for (int cntr = 1; cntr < count; cntr++)
+				result = result.max(arguments[offset + cntr]);
+			return result;
+		}
+	}
+
+	/**
+	 * Raises a number to an integer power
+	 *
+	 * @param base
+	 * @param exponent
+	 * @return the power, rounded to the MathContext
+	 */
+	private BigDecimal power(BigDecimal base, BigDecimal exponent) {
+		int n;
+		try {
+			n = exponent.intValueExact();
+		} catch (ArithmeticException e) {
+			throw new ArithmeticException("Exponent must be an integer, got " + exponent.toPlainString());
+		}
+
+		return base.pow(n, mathContext);
+	}
+
+	/**
+	 * Get the program in postfix notation, elements separated by spaces
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		for (int instruction : expression.getCode()) {
+			if (sb.length() > 0)
+				sb.append(' ');
+
+			int operand = instruction >>> CompiledExpression.OPERAND_SHIFT;
+			switch (instruction & CompiledExpression.OPCODE_MASK) {
+			case CompiledExpression.PUSH_CONSTANT:
+				sb.append(constants[operand].toPlainString());
+				break;
+			case CompiledExpression.PUSH_VARIABLE:
+				sb.append(expression.getVariables().get(operand));
+				break;
+			case CompiledExpression.PUSH_NEGATED_VARIABLE:
+				sb.append(EvaluatorUtility.SUBTRACTION).append(expression.getVariables().get(operand));
+				break;
+			case CompiledExpression.CALL:
+				sb.append(expression.getFunction(instruction).getName());
+				break;
+			default:
+				sb.append(expression.getOperator(instruction).getSymbol());
+			}
+		}
+
+		return sb.toString();
+	}
+}
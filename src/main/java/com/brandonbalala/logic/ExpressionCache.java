@@ -0,0 +1,252 @@
+package com.brandonbalala.logic;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+
+/**
+ * Bounded cache of compiled expressions keyed by their source text, so
+ * expressions seen before skip the tokenizing and the shunting-yard. Parse
+ * failures are cached too and thrown again with their original message.
+ *
+ * The cache is split in segments, each one a least recently used map guarded
+ * by its own lock, so threads working on different expressions rarely wait
+ * for each other. Compiling happens outside of the locks.
+ */
+public final class ExpressionCache {
+	private static final int MAX_SEGMENTS = 16;
+
+	private final Evaluator evaluator;
+	private final Segment[] segments;
+	private final int maximumSize;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Constructor
+	 *
+	 * @param maximumSize
+	 *            most expressions kept, the least recently used ones are
+	 *            evicted past that
+	 */
+	public ExpressionCache(int maximumSize) {
+		this(maximumSize, new Evaluator());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param maximumSize
+	 *            most expressions kept, the least recently used ones are
+	 *            evicted past that
+	 * @param evaluator
+	 *            compiles the expressions that are not cached
+	 */
+	public ExpressionCache(int maximumSize, Evaluator evaluator) {
+		if (maximumSize < 1)
+			throw new IllegalArgumentException("The maximum size must be at least 1, got " + maximumSize);
+
+		this.evaluator = evaluator;
+		this.maximumSize = maximumSize;
+
+		// Segments of at least 64 entries so small caches stay close to a
+		// true LRU
+		int segmentCount = 1;
+		while (segmentCount < MAX_SEGMENTS && maximumSize / (segmentCount * 2) >= 64)
+			segmentCount *= 2;
+
+		segments = new Segment[segmentCount];
+		for (int cntr = 0; cntr < segmentCount; cntr++) {
+			int capacity = maximumSize / segmentCount + (cntr < maximumSize % segmentCount ? 1 : 0);
+			segments[cntr] = new Segment(capacity);
+		}
+	}
+
+	/**
+	 * Get the compiled form of an expression, compiling and caching it if
+	 * needed
+	 *
+	 * @param expression
+	 * @return the compiled expression
+	 * @throws InfixParsingException,
+	 *             if string does not represent a proper mathematical equation
+	 * @throws PostfixParsingException
+	 */
+	public CompiledExpression get(String expression) throws InfixParsingException, PostfixParsingException {
+		if (expression == null)
+			return evaluator.compile(expression);
+
+		Segment segment = segmentFor(expression);
+		Entry entry;
+		synchronized (segment) {
+			entry = segment.get(expression);
+		}
+
+		if (entry != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+			entry = compile(expression);
+
+			synchronized (segment) {
+				segment.put(expression, entry);
+			}
+		}
+
+		if (entry.infixErrorMessage != null)
+			throw new InfixParsingException(entry.infixErrorMessage);
+		if (entry.postfixErrorMessage != null)
+			throw new PostfixParsingException(entry.postfixErrorMessage);
+
+		return entry.expression;
+	}
+
+	/**
+	 * Evaluates an expression without variables through its cached compiled
+	 * form
+	 *
+	 * @param expression
+	 * @return the result
+	 * @throws InfixParsingException,
+	 *             if string does not represent a proper mathematical equation
+	 * @throws PostfixParsingException
+	 */
+	public double evaluate(String expression) throws InfixParsingException, PostfixParsingException {
+		return get(expression).evaluate();
+	}
+
+	/**
+	 * Compiles an expression into a cache entry, keeping the message of a
+	 * failure
+	 *
+	 * @param expression
+	 * @return the entry
+	 */
+	private Entry compile(String expression) {
+		try {
+			return new Entry(evaluator.compile(expression), null, null);
+		} catch (InfixParsingException e) {
+			return new Entry(null, e.getMessage(), null);
+		} catch (PostfixParsingException e) {
+			return new Entry(null, null, e.getMessage());
+		}
+	}
+
+	/**
+	 * Get the segment holding an expression
+	 *
+	 * @param expression
+	 * @return the segment
+	 */
+	private Segment segmentFor(String expression) {
+		int hash = expression.hashCode();
+		hash ^= hash >>> 16;
+		return segments[hash & (segments.length - 1)];
+	}
+
+	/**
+	 * Get the number of cached expressions, failures included
+	 *
+	 * @return size
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Get the most expressions kept
+	 *
+	 * @return maximumSize
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Get the number of lookups that found the expression in the cache
+	 *
+	 * @return hits
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Get the number of lookups that had to compile the expression
+	 *
+	 * @return misses
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Get the number of expressions evicted to stay within the maximum size
+	 *
+	 * @return evictions
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Removes every expression, the counters are kept
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	/**
+	 * Compiled expression or parse failure of one source text
+	 */
+	private static final class Entry {
+		private final CompiledExpression expression;
+		private final String infixErrorMessage;
+		private final String postfixErrorMessage;
+
+		private Entry(CompiledExpression expression, String infixErrorMessage, String postfixErrorMessage) {
+			this.expression = expression;
+			this.infixErrorMessage = infixErrorMessage;
+			this.postfixErrorMessage = postfixErrorMessage;
+		}
+	}
+
+	/**
+	 * Least recently used map of one segment, must be used while holding its
+	 * lock
+	 */
+	private final class Segment extends LinkedHashMap<String, Entry> {
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+
+		private Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+}
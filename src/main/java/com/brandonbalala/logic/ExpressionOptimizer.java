@@ -0,0 +1,291 @@
+package com.brandonbalala.logic;
+
+import java.util.Arrays;
+
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.EvaluatorUtility;
+import com.brandonbalala.utility.OperatorRegistry;
+
+/**
+ * Simplifies the program of a compiled expression before it is evaluated.
+ * Operators whose operands are all constants are computed once, for example
+ * (2*3/1)+x becomes 6+x, and operands that leave the other one unchanged are
+ * removed, for example x*1, 1*x, x/1 and x^1 become x. Calls to built-in
+ * functions whose arguments are all constants are computed as well, such as
+ * sqrt(2). Operators and functions registered besides the built-in ones are
+ * left as they are.
+ *
+ * Folding constants performs the very same double operations in the very same
+ * order, so the result never changes. Adding or subtracting zero is only
+ * removed when it is exact for every value of the other operand (x-0 and
+ * x+-0) unless IEEE exact semantics are turned off, in which case x+0 also
+ * becomes x even though -0+0 is 0.
+ *
+ * A division or a remainder by a constant that folds to zero is reported like
+ * the division by a literal 0.
+ */
+public final class ExpressionOptimizer {
+	private final boolean ieeeExact;
+
+	/**
+	 * Constructor, keeps IEEE exact semantics
+	 */
+	public ExpressionOptimizer() {
+		this(true);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param ieeeExact
+	 *            true to only apply the simplifications that give the same
+	 *            result for every value, signed zeros included
+	 */
+	public ExpressionOptimizer(boolean ieeeExact) {
+		this.ieeeExact = ieeeExact;
+	}
+
+	/**
+	 * Optimizes a compiled expression
+	 *
+	 * @param expression
+	 * @return the optimized expression and the number of operators removed
+	 * @throws PostfixParsingException
+	 *             if the expression divides by a constant zero or takes its
+	 *             remainder
+	 */
+	public Result optimize(CompiledExpression expression) throws PostfixParsingException {
+		int[] code = expression.getCode();
+		double[] constants = expression.getConstants();
+
+		// Output program, every constant gets its own slot in the pool until
+		// the pool is compacted at the end
+		int[] newCode = new int[code.length];
+		double[] newConstants = new double[code.length];
+		int codeSize = 0;
+
+		// Every stack entry is the range of the output program that computes
+		// it, from its start to the start of the next entry
+		int[] starts = new int[expression.getMaxStackDepth()];
+		boolean[] isConstant = new boolean[expression.getMaxStackDepth()];
+		double[] values = new double[expression.getMaxStackDepth()];
+		int top = -1;
+		int removed = 0;
+
+		for (int instruction : code) {
+			int opcode = instruction & CompiledExpression.OPCODE_MASK;
+
+			switch (opcode) {
+			case CompiledExpression.PUSH_CONSTANT:
+				top++;
+				starts[top] = codeSize;
+				isConstant[top] = true;
+				values[top] = constants[instruction >>> CompiledExpression.OPERAND_SHIFT];
+				codeSize = addConstant(newCode, newConstants, codeSize, values[top]);
+				break;
+			case CompiledExpression.PUSH_VARIABLE:
+			case CompiledExpression.PUSH_NEGATED_VARIABLE:
+				top++;
+				starts[top] = codeSize;
+				isConstant[top] = false;
+				newCode[codeSize++] = instruction;
+				break;
+			case CompiledExpression.CALL:
+				int count = CompiledExpression.getArgumentCount(instruction);
+				int first = top - count + 1;
+				top = first;
+
+				// Registered functions are not known to give the same result
+				// every time
+				boolean constant = expression.getFunction(instruction).getId() < OperatorRegistry.BUILT_IN_FUNCTION_COUNT;
+				for (int cntr = first; cntr < first + count && constant; cntr++)
+					constant = isConstant[cntr];
+
+				if (constant) {
+					removed++;
+					values[first] = CompiledExpression.call(expression.getFunction(instruction), values, first, count);
+					codeSize = addConstant(newCode, newConstants, starts[first], values[first]);
+				} else {
+					newCode[codeSize++] = instruction;
+					isConstant[first] = false;
+				}
+				break;
+			default:
+				top--;
+				int left = top;
+				int right = top + 1;
+
+				if ((opcode == CompiledExpression.DIVIDE || opcode == CompiledExpression.REMAINDER)
+						&& isConstant[right] && values[right] == 0)
+					throw new PostfixParsingException(EvaluatorUtility.DIVIDE_BY_ZERO_MSG);
+
+				removed++;
+				if (opcode == CompiledExpression.APPLY) {
+					// Registered operators are not known to give the same
+					// result every time
+					removed--;
+					newCode[codeSize++] = instruction;
+					isConstant[left] = false;
+				} else if (isConstant[left] && isConstant[right]) {
+					// Folds both constants into one
+					values[left] = expression.apply(instruction, values[left], values[right]);
+					codeSize = addConstant(newCode, newConstants, starts[left], values[left]);
+				} else if (isConstant[right] && isRightIdentity(opcode, values[right])) {
+					// Drops the right operand
+					codeSize = starts[right];
+				} else if (isConstant[left] && isLeftIdentity(opcode, values[left])) {
+					// Moves the right operand in place of the left one
+					codeSize = move(newCode, newConstants, starts[right], codeSize, starts[left]);
+					isConstant[left] = false;
+				} else {
+					removed--;
+					newCode[codeSize++] = instruction;
+					isConstant[left] = false;
+				}
+			}
+		}
+
+		CompiledExpression optimized = compact(Arrays.copyOf(newCode, codeSize), newConstants, expression);
+		return new Result(optimized, removed);
+	}
+
+	/**
+	 * Appends a constant to the output program
+	 *
+	 * @return the new size of the program
+	 */
+	private static int addConstant(int[] code, double[] constants, int codeSize, double value) {
+		constants[codeSize] = value;
+		code[codeSize] = CompiledExpression.PUSH_CONSTANT | (codeSize << CompiledExpression.OPERAND_SHIFT);
+		return codeSize + 1;
+	}
+
+	/**
+	 * Moves a range of the output program to a lower position, the constants
+	 * of the range follow their instructions
+	 *
+	 * @return the new size of the program
+	 */
+	private static int move(int[] code, double[] constants, int start, int end, int destination) {
+		for (int cntr = start; cntr < end; cntr++) {
+			int instruction = code[cntr];
+			int target = destination + cntr - start;
+
+			if ((instruction & CompiledExpression.OPCODE_MASK) == CompiledExpression.PUSH_CONSTANT) {
+				constants[target] = constants[instruction >>> CompiledExpression.OPERAND_SHIFT];
+				instruction = CompiledExpression.PUSH_CONSTANT | (target << CompiledExpression.OPERAND_SHIFT);
+			}
+			code[target] = instruction;
+		}
+
+		return destination + end - start;
+	}
+
+	/**
+	 * Builds the optimized expression, keeping only the constants still used
+	 * and computing its stack depth again
+	 */
+	private static CompiledExpression compact(int[] code, double[] constants, CompiledExpression original) {
+		double[] pool = new double[code.length];
+		int poolSize = 0;
+		int depth = 0;
+		int maxDepth = 0;
+
+		for (int cntr = 0; cntr < code.length; cntr++) {
+			int opcode = code[cntr] & CompiledExpression.OPCODE_MASK;
+
+			switch (opcode) {
+			case CompiledExpression.PUSH_CONSTANT:
+				pool[poolSize] = constants[code[cntr] >>> CompiledExpression.OPERAND_SHIFT];
+				code[cntr] = CompiledExpression.PUSH_CONSTANT | (poolSize << CompiledExpression.OPERAND_SHIFT);
+				poolSize++;
+				depth++;
+				break;
+			case CompiledExpression.PUSH_VARIABLE:
+			case CompiledExpression.PUSH_NEGATED_VARIABLE:
+				depth++;
+				break;
+			case CompiledExpression.CALL:
+				depth -= CompiledExpression.getArgumentCount(code[cntr]) - 1;
+				break;
+			default:
+				depth--;
+			}
+
+			maxDepth = Math.max(maxDepth, depth);
+		}
+
+		return original.withProgram(code, Arrays.copyOf(pool, poolSize), maxDepth);
+	}
+
+	/**
+	 * Check whether x op value is always x
+	 */
+	private boolean isRightIdentity(int opcode, double value) {
+		switch (opcode) {
+		case CompiledExpression.MULTIPLY:
+		case CompiledExpression.DIVIDE:
+		case CompiledExpression.POWER:
+			return value == 1;
+		case CompiledExpression.ADD:
+			return isNegativeZero(value) || (!ieeeExact && value == 0);
+		case CompiledExpression.SUBTRACT:
+			return isPositiveZero(value) || (!ieeeExact && value == 0);
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Check whether value op x is always x
+	 */
+	private boolean isLeftIdentity(int opcode, double value) {
+		switch (opcode) {
+		case CompiledExpression.MULTIPLY:
+			return value == 1;
+		case CompiledExpression.ADD:
+			return isNegativeZero(value) || (!ieeeExact && value == 0);
+		default:
+			return false;
+		}
+	}
+
+	private static boolean isNegativeZero(double value) {
+		return value == 0 && Double.doubleToRawLongBits(value) != 0;
+	}
+
+	private static boolean isPositiveZero(double value) {
+		return Double.doubleToRawLongBits(value) == 0;
+	}
+
+	/**
+	 * Optimized expression and the number of operators removed from it
+	 */
+	public static final class Result {
+		private final CompiledExpression expression;
+		private final int removedOperatorCount;
+
+		private Result(CompiledExpression expression, int removedOperatorCount) {
+			this.expression = expression;
+			this.removedOperatorCount = removedOperatorCount;
+		}
+
+		/**
+		 * Get the optimized expression
+		 *
+		 * @return expression
+		 */
+		public CompiledExpression getExpression() {
+			return expression;
+		}
+
+		/**
+		 * Get the number of operators folded or removed
+		 *
+		 * @return removedOperatorCount
+		 */
+		public int getRemovedOperatorCount() {
+			return removedOperatorCount;
+		}
+	}
+}
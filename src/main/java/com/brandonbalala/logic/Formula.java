@@ -0,0 +1,16 @@
+package com.brandonbalala.logic;
+
+/**
+ * A compiled expression turned into JVM bytecode, see BytecodeCompiler
+ */
+public interface Formula {
+	/**
+	 * Evaluates the formula
+	 *
+	 * @param bindings
+	 *            values of the variables, indexed by slot, at least as many as
+	 *            the variables of the expression
+	 * @return the result
+	 */
+	double evaluate(double[] bindings);
+}
@@ -0,0 +1,419 @@
+package com.brandonbalala.logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.brandonbalala.utility.OperatorRegistry;
+
+/**
+ * Formulas compiled ahead of time and kept by id in a memory-mapped file, so
+ * that a process can start with hundreds of thousands of them without parsing
+ * any text.
+ *
+ * The file is, in little-endian order:
+ *
+ * <pre>
+ * int    magic, "EVFS"
+ * short  version of the format
+ * short  reserved, 0
+ * long   committed length of the file
+ * record every formula appended, each one made of
+ *        int    number of bytes of the record that follow
+ *        name   id, its length in bytes (short) followed by its UTF-8 bytes
+ *        bytes  program encoded by ProgramCodec
+ * </pre>
+ *
+ * Opening only reads the ids to build the index from id to offset, a formula
+ * is decoded from the mapped pages the first time it is asked for and kept
+ * from then on.
+ *
+ * The file is only ever appended to. New records are written past the
+ * committed length, flushed, and only then is the committed length updated,
+ * so readers, in this process or any other, never see a partial record, and a
+ * crash while appending leaves the store as it was. Appending a formula with
+ * the id of an existing one replaces it, the older record stays in the file.
+ * Writers of every process are serialized by a lock on the file, stores in
+ * other processes see the new formulas once refreshed. Since the lock is held
+ * by the whole process, a process appends through a single store per file.
+ *
+ * Every append flushes the file twice, appending formulas one at a time is
+ * the slow path, appending them together in a map only flushes twice for all
+ * of them. The writer grows the file ahead of the records so that readers
+ * only map it again once it has grown by half.
+ *
+ * Instances can be shared between threads. A store is limited to 2 GB, the
+ * size of a single mapping.
+ */
+public final class FormulaStore implements Closeable {
+	/**
+	 * First bytes of a store
+	 */
+	public static final int MAGIC = 0x45564653;
+
+	/**
+	 * Version of the format written by this class, a store of any version up
+	 * to this one can be opened
+	 */
+	public static final short VERSION = 1;
+
+	static final int HEADER_SIZE = 16;
+	private static final int COMMITTED_POSITION = 8;
+	// Smallest size the file is grown to by an append
+	private static final int MIN_FILE_SIZE = 1 << 16;
+
+	private final FileChannel channel;
+	private final OperatorRegistry registry;
+	private final Map<String, Entry> index = new ConcurrentHashMap<String, Entry>();
+
+	// The whole file when it was last mapped, from position 0, replaced by a
+	// larger one when the committed records outgrow it
+	private volatile ByteBuffer mapping;
+	private long indexed = HEADER_SIZE;
+	private int mapCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param channel
+	 *            open for reading and writing
+	 * @param registry
+	 */
+	private FormulaStore(FileChannel channel, OperatorRegistry registry) {
+		this.channel = channel;
+		this.registry = registry;
+	}
+
+	/**
+	 * Opens a store using the operators of the default registry, creating it
+	 * if the file does not exist
+	 *
+	 * @param file
+	 * @return the store
+	 * @throws IOException
+	 *             if the file can't be read or written
+	 * @throws IllegalArgumentException
+	 *             if the file does not hold a store
+	 */
+	public static FormulaStore open(Path file) throws IOException {
+		return open(file, OperatorRegistry.getDefault());
+	}
+
+	/**
+	 * Opens a store, creating it if the file does not exist
+	 *
+	 * @param file
+	 * @param registry
+	 *            operators and functions the formulas may use
+	 * @return the store
+	 * @throws IOException
+	 *             if the file can't be read or written
+	 * @throws IllegalArgumentException
+	 *             if the file does not hold a store
+	 */
+	public static FormulaStore open(Path file, OperatorRegistry registry) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE);
+		try {
+			if (channel.size() == 0) {
+				// Another process may be creating it too
+				FileLock lock = channel.lock();
+				try {
+					if (channel.size() == 0) {
+						ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+						header.putInt(MAGIC);
+						header.putShort(VERSION);
+						header.putShort((short) 0);
+						header.putLong(HEADER_SIZE);
+						header.flip();
+						write(channel, header, 0);
+						channel.force(true);
+					}
+				} finally {
+					lock.release();
+				}
+			}
+
+			FormulaStore store = new FormulaStore(channel, registry);
+			store.refresh();
+			return store;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Indexes the formulas committed since the store was opened or last
+	 * refreshed, by another process. Appending refreshes the store itself.
+	 *
+	 * @return the number of records indexed
+	 * @throws IOException
+	 *             if the file can't be read
+	 * @throws IllegalArgumentException
+	 *             if the file is corrupt
+	 */
+	public synchronized int refresh() throws IOException {
+		long committed = readCommitted();
+		long fileSize = channel.size();
+		if (committed < indexed || committed > fileSize)
+			throw new IllegalArgumentException("Truncated or corrupt formula store");
+		if (committed > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("A formula store holds at most 2 GB, got " + committed + " bytes");
+		if (committed == indexed)
+			return 0;
+
+		// Mapped again only when the records outgrow the mapping, published
+		// before them so that a reader finding one always finds it in the
+		// mapping
+		ByteBuffer records = mapping;
+		if (records == null || committed > records.capacity()) {
+			records = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, Integer.MAX_VALUE));
+			mapping = records;
+			mapCount++;
+		}
+
+		int count = 0;
+		records = records.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		records.limit((int) committed);
+		records.position((int) indexed);
+		try {
+			while (records.hasRemaining()) {
+				int length = records.getInt();
+				int end = records.position() + length;
+				if (length < 2 || length > records.remaining())
+					throw new IllegalArgumentException("Truncated or corrupt formula store");
+
+				byte[] id = new byte[records.getShort() & 0xFFFF];
+				records.get(id);
+				if (records.position() >= end)
+					throw new IllegalArgumentException("Truncated or corrupt formula store");
+
+				index.put(new String(id, StandardCharsets.UTF_8), new Entry(records.position()));
+				records.position(end);
+				count++;
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated or corrupt formula store", e);
+		}
+
+		indexed = committed;
+		return count;
+	}
+
+	/**
+	 * Appends a formula, replacing the one with the same id if any. Flushes
+	 * the file twice, see append(Map) to append many formulas.
+	 *
+	 * @param id
+	 * @param expression
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public void append(String id, CompiledExpression expression) throws IOException {
+		append(Collections.singletonMap(id, expression));
+	}
+
+	/**
+	 * Appends formulas, replacing the ones with the same ids. They are
+	 * committed together, a crash while appending keeps none of them.
+	 *
+	 * @param formulas
+	 *            compiled expressions by id
+	 * @throws IOException
+	 *             if the file can't be written
+	 * @throws IllegalArgumentException
+	 *             if an id is longer than 65535 bytes or the store would grow
+	 *             past 2 GB
+	 */
+	public synchronized void append(Map<String, CompiledExpression> formulas) throws IOException {
+		Map<byte[], CompiledExpression> records = new LinkedHashMap<byte[], CompiledExpression>();
+		long size = 0;
+		for (Map.Entry<String, CompiledExpression> formula : formulas.entrySet()) {
+			byte[] id = formula.getKey().getBytes(StandardCharsets.UTF_8);
+			if (id.length > 0xFFFF)
+				throw new IllegalArgumentException("A formula id is at most 65535 bytes, got " + id.length);
+
+			records.put(id, formula.getValue());
+			size += 4 + 2 + id.length + ProgramCodec.getEncodedSize(formula.getValue());
+		}
+
+		FileLock lock = channel.lock();
+		try {
+			// Written after the records committed by any other process
+			refresh();
+			long end = indexed + size;
+			if (end > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("A formula store holds at most 2 GB, got " + end + " bytes");
+
+			// Grown with room for the next appends as well, past the committed
+			// length only the writer holding the lock changes the file
+			long fileSize = channel.size();
+			if (end > fileSize) {
+				long grown = Math.max(end, Math.max(fileSize + fileSize / 2, MIN_FILE_SIZE));
+				write(channel, ByteBuffer.allocate(1), Math.min(grown, Integer.MAX_VALUE) - 1);
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+			for (Map.Entry<byte[], CompiledExpression> record : records.entrySet()) {
+				buffer.putInt(2 + record.getKey().length + ProgramCodec.getEncodedSize(record.getValue()));
+				buffer.putShort((short) record.getKey().length);
+				buffer.put(record.getKey());
+				ProgramCodec.encode(record.getValue(), buffer);
+			}
+			buffer.flip();
+
+			// The records must reach the file before the length that commits
+			// them
+			write(channel, buffer, indexed);
+			channel.force(false);
+
+			ByteBuffer committed = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			committed.putLong(0, end);
+			write(channel, committed, COMMITTED_POSITION);
+			channel.force(false);
+
+			refresh();
+		} finally {
+			lock.release();
+		}
+	}
+
+	/**
+	 * Get a formula, decoding it the first time
+	 *
+	 * @param id
+	 * @return the compiled expression, null if there is none with this id
+	 * @throws IllegalArgumentException
+	 *             if the formula is corrupt or uses an operator or a function
+	 *             the registry does not have
+	 */
+	public CompiledExpression get(String id) {
+		Entry entry = index.get(id);
+		if (entry == null)
+			return null;
+
+		CompiledExpression expression = entry.expression;
+		if (expression == null) {
+			// Two threads may both decode it, either result will do
+			ByteBuffer program = mapping.duplicate();
+			program.position(entry.offset);
+			expression = ProgramCodec.decode(program, registry);
+			entry.expression = expression;
+		}
+
+		return expression;
+	}
+
+	/**
+	 * Evaluates a formula
+	 *
+	 * @param id
+	 * @param bindings
+	 *            values of the variables of the formula, indexed by slot
+	 * @return the result
+	 * @throws IllegalArgumentException
+	 *             if there is no formula with this id, or it is corrupt
+	 */
+	public double evaluate(String id, double[] bindings) {
+		CompiledExpression expression = get(id);
+		if (expression == null)
+			throw new IllegalArgumentException("No formula " + id);
+
+		return expression.evaluate(bindings);
+	}
+
+	/**
+	 * Get the ids of the formulas
+	 *
+	 * @return a view of the ids, growing as formulas are appended
+	 */
+	public Set<String> getIds() {
+		return Collections.unmodifiableSet(index.keySet());
+	}
+
+	/**
+	 * Get the number of formulas
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Get the number of times the file was mapped
+	 *
+	 * @return count
+	 */
+	synchronized int getMapCount() {
+		return mapCount;
+	}
+
+	/**
+	 * Closes the file. Formulas already decoded can still be evaluated.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Reads the header of the file
+	 *
+	 * @return the committed length
+	 * @throws IOException
+	 */
+	private long readCommitted() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining())
+			if (channel.read(header, header.position()) < 0)
+				throw new IllegalArgumentException("Not a formula store");
+
+		if (header.getInt(0) != MAGIC)
+			throw new IllegalArgumentException("Not a formula store");
+
+		short version = header.getShort(4);
+		if (version < 1 || version > VERSION)
+			throw new IllegalArgumentException("Unsupported formula store version " + version);
+
+		return header.getLong(COMMITTED_POSITION);
+	}
+
+	/**
+	 * Writes a whole buffer at a position of a file
+	 *
+	 * @param channel
+	 * @param buffer
+	 * @param position
+	 * @throws IOException
+	 */
+	private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			position += channel.write(buffer, position);
+	}
+
+	/**
+	 * Offset of a program in the file, and the program once decoded
+	 */
+	private static final class Entry {
+		private final int offset;
+		private volatile CompiledExpression expression;
+
+		private Entry(int offset) {
+			this.offset = offset;
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package com.brandonbalala.logic;
+
+import java.util.Arrays;
+
+import com.brandonbalala.exception.PostfixParsingException;
+
+/**
+ * A compiled expression kept as a tree that remembers the value of every
+ * subexpression, for formulas that are evaluated again after a few of their
+ * variables change.
+ *
+ * Changing a variable recomputes only the nodes on the path from its leaves to
+ * the root, and stops early as soon as a node keeps its value. Many variables
+ * can be staged first and recomputed together, each dirty node is then
+ * computed once however many of its leaves changed.
+ *
+ * Nodes are numbered in the order of the postfix program, so the children of
+ * a node always come before it. Every node computes its value with the same
+ * double operation as CompiledExpression.evaluate, the results are identical.
+ *
+ * Instances hold mutable state and are not thread-safe.
+ */
+public final class IncrementalExpression {
+	private final CompiledExpression expression;
+	private final int[] code;
+	private final double[] constants;
+
+	// Tree of the program, -1 when there is no such node. The children of a
+	// call are its arguments, in order.
+	private final int[] left;
+	private final int[] right;
+	private final int[][] arguments;
+	private final int[] parent;
+	private final int root;
+
+	// Leaves of every variable, indexed by slot
+	private final int[][] leaves;
+
+	private final double[] values;
+	private final double[] bindings;
+	// Values of the arguments of the call being computed
+	private final double[] argumentValues;
+
+	// Nodes waiting for a staged change to be recomputed
+	private final boolean[] dirty;
+	private final int[] dirtyNodes;
+	private int dirtyCount;
+
+	/**
+	 * Constructor, computes every node once
+	 *
+	 * @param expression
+	 * @param bindings
+	 *            initial values of the variables, indexed by slot
+	 */
+	public IncrementalExpression(CompiledExpression expression, double[] bindings) {
+		if (bindings.length < expression.getVariableCount())
+			throw new IllegalArgumentException(
+					"Expected " + expression.getVariableCount() + " bindings, got " + bindings.length);
+
+		this.expression = expression;
+		this.code = expression.getCode();
+		this.constants = expression.getConstants();
+		this.bindings = Arrays.copyOf(bindings, expression.getVariableCount());
+
+		int size = code.length;
+		left = new int[size];
+		right = new int[size];
+		arguments = new int[size][];
+		parent = new int[size];
+		values = new double[size];
+		dirty = new boolean[size];
+		dirtyNodes = new int[size];
+		argumentValues = new double[expression.getMaxArgumentCount()];
+
+		int[] leafCounts = new int[expression.getVariableCount()];
+		int[] stack = new int[expression.getMaxStackDepth()];
+		int top = -1;
+
+		for (int node = 0; node < size; node++) {
+			int opcode = code[node] & CompiledExpression.OPCODE_MASK;
+
+			if (isLeaf(opcode)) {
+				left[node] = -1;
+				right[node] = -1;
+				if (opcode != CompiledExpression.PUSH_CONSTANT)
+					leafCounts[code[node] >>> CompiledExpression.OPERAND_SHIFT]++;
+			} else if (opcode == CompiledExpression.CALL) {
+				left[node] = -1;
+				right[node] = -1;
+
+				int count = CompiledExpression.getArgumentCount(code[node]);
+				top -= count;
+				arguments[node] = new int[count];
+				for (int cntr = 0; cntr < count; cntr++) {
+					arguments[node][cntr] = stack[top + 1 + cntr];
+					parent[arguments[node][cntr]] = node;
+				}
+			} else {
+				right[node] = stack[top--];
+				left[node] = stack[top--];
+				parent[left[node]] = node;
+				parent[right[node]] = node;
+			}
+
+			stack[++top] = node;
+			values[node] = compute(node);
+		}
+
+		root = stack[0];
+		parent[root] = -1;
+
+		leaves = new int[leafCounts.length][];
+		for (int slot = 0; slot < leafCounts.length; slot++) {
+			leaves[slot] = new int[leafCounts[slot]];
+			leafCounts[slot] = 0;
+		}
+		for (int node = 0; node < size; node++) {
+			int opcode = code[node] & CompiledExpression.OPCODE_MASK;
+			if (opcode == CompiledExpression.PUSH_VARIABLE || opcode == CompiledExpression.PUSH_NEGATED_VARIABLE) {
+				int slot = code[node] >>> CompiledExpression.OPERAND_SHIFT;
+				leaves[slot][leafCounts[slot]++] = node;
+			}
+		}
+	}
+
+	/**
+	 * Compiles the postfix queue of an already parsed Postfix into an
+	 * incremental expression
+	 *
+	 * @param postfix
+	 * @param bindings
+	 *            initial values of the variables, indexed by slot
+	 * @return the incremental expression
+	 * @throws PostfixParsingException
+	 *             if no postfix expression has been set on the Postfix
+	 */
+	public static IncrementalExpression build(Postfix postfix, double[] bindings) throws PostfixParsingException {
+		return new IncrementalExpression(CompiledExpression.compile(postfix), bindings);
+	}
+
+	/**
+	 * Get the compiled expression
+	 *
+	 * @return expression
+	 */
+	public CompiledExpression getExpression() {
+		return expression;
+	}
+
+	/**
+	 * Get the value of the expression, staged changes are not included until
+	 * recomputed
+	 *
+	 * @return the value
+	 */
+	public double getValue() {
+		return values[root];
+	}
+
+	/**
+	 * Get the current value of a variable, staged or not
+	 *
+	 * @param slot
+	 * @return the value
+	 */
+	public double getVariable(int slot) {
+		return bindings[slot];
+	}
+
+	/**
+	 * Changes a variable and recomputes the path from its leaves to the root.
+	 * Staged changes are recomputed as well.
+	 *
+	 * @param slot
+	 * @param value
+	 * @return the new value of the expression
+	 */
+	public double setVariable(int slot, double value) {
+		if (dirtyCount > 0) {
+			stageVariable(slot, value);
+			return recompute();
+		}
+
+		bindings[slot] = value;
+
+		for (int leaf : leaves[slot]) {
+			int node = leaf;
+
+			// Stops as soon as a node keeps its value, the nodes above it are
+			// still up to date
+			while (node >= 0) {
+				double newValue = compute(node);
+				if (Double.doubleToRawLongBits(newValue) == Double.doubleToRawLongBits(values[node]))
+					break;
+
+				values[node] = newValue;
+				node = parent[node];
+			}
+		}
+
+		return values[root];
+	}
+
+	/**
+	 * Changes a variable without recomputing anything, the nodes depending on
+	 * it are recomputed by the next recompute or setVariable
+	 *
+	 * @param slot
+	 * @param value
+	 */
+	public void stageVariable(int slot, double value) {
+		bindings[slot] = value;
+
+		for (int leaf : leaves[slot]) {
+			// Every node above a dirty node is already dirty
+			for (int node = leaf; node >= 0 && !dirty[node]; node = parent[node]) {
+				dirty[node] = true;
+				dirtyNodes[dirtyCount++] = node;
+			}
+		}
+	}
+
+	/**
+	 * Changes many variables and recomputes every node depending on them once
+	 *
+	 * @param slots
+	 * @param newValues
+	 *            new value of the variable at the same index in slots
+	 * @return the new value of the expression
+	 */
+	public double setVariables(int[] slots, double[] newValues) {
+		if (slots.length != newValues.length)
+			throw new IllegalArgumentException(slots.length + " slots but " + newValues.length + " values");
+
+		for (int cntr = 0; cntr < slots.length; cntr++)
+			stageVariable(slots[cntr], newValues[cntr]);
+
+		return recompute();
+	}
+
+	/**
+	 * Recomputes the nodes depending on the staged changes, children before
+	 * their parent
+	 *
+	 * @return the new value of the expression
+	 */
+	public double recompute() {
+		// Postfix order puts children before their parent
+		Arrays.sort(dirtyNodes, 0, dirtyCount);
+
+		for (int cntr = 0; cntr < dirtyCount; cntr++) {
+			int node = dirtyNodes[cntr];
+			values[node] = compute(node);
+			dirty[node] = false;
+		}
+		dirtyCount = 0;
+
+		return values[root];
+	}
+
+	/**
+	 * Computes the value of a node from its children or its variable
+	 *
+	 * @param node
+	 * @return the value
+	 */
+	private double compute(int node) {
+		int instruction = code[node];
+
+		switch (instruction & CompiledExpression.OPCODE_MASK) {
+		case CompiledExpression.PUSH_CONSTANT:
+			return constants[instruction >>> CompiledExpression.OPERAND_SHIFT];
+		case CompiledExpression.PUSH_VARIABLE:
+			return bindings[instruction >>> CompiledExpression.OPERAND_SHIFT];
+		case CompiledExpression.PUSH_NEGATED_VARIABLE:
+			return -bindings[instruction >>> CompiledExpression.OPERAND_SHIFT];
+		case CompiledExpression.CALL:
+			int[] children = arguments[node];
+			for (int cntr = 0; cntr < children.length; cntr++)
+				argumentValues[cntr] = values[children[cntr]];
+			return CompiledExpression.call(expression.getFunction(instruction), argumentValues, 0, children.length);
+		default:
+			return expression.apply(instruction, values[left[node]], values[right[node]]);
+		}
+	}
+
+	private static boolean isLeaf(int opcode) {
+		return opcode == CompiledExpression.PUSH_CONSTANT || opcode == CompiledExpression.PUSH_VARIABLE
+				|| opcode == CompiledExpression.PUSH_NEGATED_VARIABLE;
+	}
+}
@@ -4,21 +4,35 @@ import java.util.ArrayDeque;
 import java.util.Queue;
 
 import com.brandonbalala.exception.InfixParsingException;
-import com.brandonbalala.exception.PostfixParsingException;
-import com.brandonbalala.utility.EvaluatorUtility;
+import com.brandonbalala.metrics.EvaluatorMetrics;
+import com.brandonbalala.utility.OperatorRegistry;
 
 public class Infix {
 	private Queue<String> infixQueue;
-	private String lastOffer;
+	private final InfixLexer lexer;
+	private final TokenBuffer tokens;
+	// Whether the tokens of the last expression are not in the infix queue
+	// yet, they are only turned into strings when the queue is asked for
+	private boolean pendingTokens;
 
 
 	/**
 	 * Constructor
 	 */
 	public Infix() {
+		this(OperatorRegistry.getDefault());
+	}
+
+	/**
+	 * Constructor
+	 * @param registry operators the expressions may use
+	 */
+	public Infix(OperatorRegistry registry) {
 		// Creating a queue in Java 1.6
 		infixQueue = new ArrayDeque<String>();
-		lastOffer = "";
+		lexer = new InfixLexer(registry);
+		tokens = new TokenBuffer();
+		pendingTokens = false;
 	}
 
 	/**
@@ -26,9 +40,33 @@ public class Infix {
 	 * @return infixQueue
 	 */
 	public Queue<String> getInfixQueue() {
+		if (pendingTokens) {
+			//Adding every token to the infix queue
+			for (int cntr = 0; cntr < tokens.size(); cntr++) {
+				infixQueue.offer(tokens.getText(cntr));
+			}
+			pendingTokens = false;
+		}
 		return infixQueue;
 	}
 
+	/**
+	 * Get the tokens of the last expression when the infix queue holds
+	 * nothing else, so they can be parsed without going through strings
+	 * @return the tokens, null if the infix queue has to be used instead
+	 */
+	TokenBuffer getPendingTokens() {
+		return pendingTokens && infixQueue.isEmpty() ? tokens : null;
+	}
+
+	/**
+	 * Marks the pending tokens as parsed, like polling every element of the
+	 * infix queue
+	 */
+	void consumeTokens() {
+		pendingTokens = false;
+	}
+
 	/**
 	 * Sets the infix queue, by parsing the string into a queue. 
 	 * @param expression
@@ -39,133 +77,38 @@ public class Infix {
 	}
 
 	/**
-	 * Parses the string expression into an infix expression
+	 * Parses the string expression into an infix expression. The lexer
+	 * validates and tokenizes the whole expression before anything is added
+	 * to the infix queue, the tokens only become strings once the queue is
+	 * asked for.
 	 * @param expression
 	 * @throws InfixParsingException, if string does not represent a proper mathematical equation
 	 */
 	private void parseInfix(String expression) throws InfixParsingException {
-		//Check for null or empty
-		if (expression == null || expression.isEmpty()) {
-			throwInfixParsingException(EvaluatorUtility.EMPTY_ERR_MSG);
-		}
-
-		//Initialize variables
-		String tempNumber = "";
-		int openingCntr = 0;
-		int closingCntr = 0;
-
-		//Split string into array of chars
-		char[] characters = expression.trim().toCharArray();
-
-		String firstChar = String.valueOf(characters[0]);
-		String lastChar = String.valueOf(characters[characters.length - 1]);
-
-		// Makes sure that the expression does not start with an ) or any of the
-		// operators(+,-,%,*)
-		if ((EvaluatorUtility.isOperator(firstChar) || EvaluatorUtility.isClosingParenthesis(firstChar)) && !EvaluatorUtility.isSubtraction(firstChar))
-			throwInfixParsingException(EvaluatorUtility.STARTING_ERR_MSG);
-
-		// Makes sure that the expression does not end with an ( or any of the
-		// operators(+,-,%,*)
-		if (EvaluatorUtility.isOperator(lastChar) || EvaluatorUtility.isOpeningParenthesis(lastChar))
-			throwInfixParsingException(EvaluatorUtility.ENDING_ERR_MSG);
-
-		//Looping through the array of chars, checks what type of character it is and deals with it
-		for (int cntr = 0; cntr < characters.length; cntr++) {
-			String theChar = String.valueOf(characters[cntr]);
-
-			if (EvaluatorUtility.isOperator(theChar)) {
-				tempNumber = addNumberToQueue(tempNumber);
-
-				if (!EvaluatorUtility.isNegativeSign(theChar) && (EvaluatorUtility.isOperator(lastOffer) || EvaluatorUtility.isOpeningParenthesis(lastOffer)))
-					throwInfixParsingException(EvaluatorUtility.OPERATOR_ERR_MSG);
-
-				//Deals with the negative sign
-				if (EvaluatorUtility.isNegativeSign(theChar)
-						&& (lastOffer.isEmpty() || EvaluatorUtility.isOperator(lastOffer) || EvaluatorUtility.isOpeningParenthesis(lastOffer)))
-					tempNumber += theChar;
-				else
-					addOperatorToQueue(theChar);
-			} else if (EvaluatorUtility.isOpeningParenthesis(theChar)) {
-				tempNumber = addNumberToQueue(tempNumber);
-
-				if (EvaluatorUtility.isNumeric(lastOffer) || EvaluatorUtility.isClosingParenthesis(lastOffer))
-					throwInfixParsingException(EvaluatorUtility.OPENING_PARENTHESIS_ERR_MSG);
-
-				addOperatorToQueue(theChar);
-				openingCntr++;
-			} else if (EvaluatorUtility.isClosingParenthesis(theChar)) {
-				tempNumber = addNumberToQueue(tempNumber);
-
-				if (EvaluatorUtility.isOperator(lastOffer) || EvaluatorUtility.isOpeningParenthesis(lastOffer))
-					throwInfixParsingException(EvaluatorUtility.CLOSING_PARENTHESIS_ERR_MSG);
-
-				addOperatorToQueue(theChar);
-				closingCntr++;
-				
-				//Checks that the opening parenthesis was used before the closing parenthesis
-				if(closingCntr > openingCntr)
-					throwInfixParsingException(EvaluatorUtility.PARENTHESES_ERR_MSG);
-			} else if (EvaluatorUtility.isDecimalPoint(theChar)) {
-				tempNumber += theChar;
-			} else if (EvaluatorUtility.isNumeric(theChar)) {
-				tempNumber += theChar;
-			} else {
-				throwInfixParsingException(EvaluatorUtility.CHARACTER_ERR_MSG);
-			}
+		// Tokens of the previous expression go to the queue before being
+		// replaced
+		getInfixQueue();
+
+		long start = EvaluatorMetrics.startTimer();
+		try {
+			lexer.tokenize(expression, tokens);
+		} catch (InfixParsingException e) {
+			emptyInfixQueue();
+			EvaluatorMetrics.recordFailure(e.getMessage());
+			throw e;
 		}
+		EvaluatorMetrics.recordPhase(EvaluatorMetrics.Phase.TOKENIZE, start);
 
-		// If anything left in tempNumber
-		addNumberToQueue(tempNumber);
-
-		// Makes sure that all opening parentheses have their respective closing
-		// parentheses
-		if (openingCntr != closingCntr)
-			throwInfixParsingException(EvaluatorUtility.PARENTHESES_ERR_MSG);
-
-	}
-	
-	/**
-	 * Deals with adding the given number, if it is actually a number, to the infix Queue 
-	 * @param number
-	 * @return
-	 * @throws InfixParsingException
-	 */
-	private String addNumberToQueue(String number) throws InfixParsingException {
-
-		//Check empty
-		if (!number.isEmpty()) {
-			if (EvaluatorUtility.isClosingParenthesis(lastOffer))
-				throwInfixParsingException(EvaluatorUtility.NUMBER_ERR_MSG);
-
-			//Check that it truly is a numeric
-			if (!EvaluatorUtility.isNumeric(number))
-				throwInfixParsingException(EvaluatorUtility.NUMBER_FORMAT_ERR_MSG);
-			
-			//Check whether trying to divide by zero
-			if(Double.parseDouble(number) == 0.0 && EvaluatorUtility.isDivision(lastOffer))
-				throwInfixParsingException(EvaluatorUtility.DIVIDE_BY_ZERO_MSG);
-
-			//Adding to the infix queue
-			infixQueue.offer(number);
-			//keep track of the last added element
-			lastOffer = number;
-
-			//will end up clearing up the tempNumber variable 
-			return "";
-		}
-		
-		//returns the empty number string
-		return number;
+		pendingTokens = true;
 	}
 
 	/**
-	 * Adds the given operator to the infix queue
-	 * @param element
+	 * Removes everything from the infix queue so the instance can be reused
+	 * for another expression
 	 */
-	private void addOperatorToQueue(String element) {
-		infixQueue.offer(element);
-		lastOffer = element;
+	void reset() {
+		infixQueue.clear();
+		pendingTokens = false;
 	}
 
 	/**
@@ -173,16 +116,5 @@ public class Infix {
 	 */
 	private void emptyInfixQueue() {
 		infixQueue = new ArrayDeque<String>();
-		lastOffer = "";
-	}
-
-	/**
-	 * 	Throws exception and empty the infix queue
-	 * @param message
-	 * @throws InfixParsingException
-	 */
-	private void throwInfixParsingException(String message) throws InfixParsingException {
-		emptyInfixQueue();
-		throw new InfixParsingException(message);
 	}
 }
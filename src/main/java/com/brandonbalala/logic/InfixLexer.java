@@ -0,0 +1,330 @@
+package com.brandonbalala.logic;
+
+import com.brandonbalala.exception.InfixParsingException;
+import java.util.Arrays;
+
+import com.brandonbalala.utility.EvaluatorUtility;
+import com.brandonbalala.utility.OperatorRegistry;
+
+/**
+ * Single pass tokenizer for infix expressions. Walks the characters of the
+ * expression once, recognizes parentheses and the built-in + - * / with a
+ * switch on the character, any other operator with a lookup in the operator
+ * registry, and scans numbers and variables in place, so no string is created
+ * per character. The tokens are written into a TokenBuffer.
+ *
+ * A registered function name directly followed by an opening parenthesis is
+ * a function call, its arguments are separated by commas. Any other name is a
+ * variable.
+ *
+ * Applies the same validation rules, with the same messages, as the original
+ * string based parsing of Infix.
+ *
+ * Not thread safe, an instance keeps the state of the expression being
+ * scanned. It can be reused for any number of expressions.
+ */
+public final class InfixLexer {
+	private static final byte NONE = -1;
+
+	private final OperatorRegistry registry;
+
+	private TokenBuffer tokens;
+	private byte lastKind;
+	private char lastOperator;
+	private int openingCntr;
+	private int closingCntr;
+	// Whether every open parenthesis, by depth, holds the arguments of a
+	// function
+	private boolean[] callParentheses = new boolean[8];
+
+	// State of the number currently being scanned
+	private int numberStart;
+	private int numberDigits;
+	private int numberPoints;
+	private boolean numberNonZero;
+
+	/**
+	 * Constructor, recognizes the operators of the default registry
+	 */
+	public InfixLexer() {
+		this(OperatorRegistry.getDefault());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param registry
+	 *            operators to recognize
+	 */
+	public InfixLexer(OperatorRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Tokenizes the expression into the given token buffer
+	 *
+	 * @param expression
+	 * @param tokens
+	 * @throws InfixParsingException,
+	 *             if expression does not represent a proper mathematical
+	 *             equation
+	 */
+	public void tokenize(CharSequence expression, TokenBuffer tokens) throws InfixParsingException {
+		// Check for null or empty
+		if (expression == null || expression.length() == 0) {
+			throw new InfixParsingException(EvaluatorUtility.EMPTY_ERR_MSG);
+		}
+
+		// Same bounds as String.trim()
+		int start = 0;
+		int end = expression.length();
+		while (start < end && expression.charAt(start) <= ' ')
+			start++;
+		while (end > start && expression.charAt(end - 1) <= ' ')
+			end--;
+
+		if (start == end) {
+			throw new InfixParsingException(EvaluatorUtility.EMPTY_ERR_MSG);
+		}
+
+		char firstChar = expression.charAt(start);
+		char lastChar = expression.charAt(end - 1);
+
+		// Makes sure that the expression does not start with an ) or any of the
+		// operators, a - is a negative sign
+		if ((registry.isOperator(firstChar) || firstChar == ')') && firstChar != '-')
+			throw new InfixParsingException(EvaluatorUtility.STARTING_ERR_MSG);
+
+		// Makes sure that the expression does not end with an ( or any of the
+		// operators
+		if (registry.isOperator(lastChar) || lastChar == '(')
+			throw new InfixParsingException(EvaluatorUtility.ENDING_ERR_MSG);
+
+		// Initialize the state
+		this.tokens = tokens;
+		tokens.reset(expression);
+		lastKind = NONE;
+		lastOperator = 0;
+		openingCntr = 0;
+		closingCntr = 0;
+		clearNumber();
+
+		for (int cntr = start; cntr < end; cntr++) {
+			char theChar = expression.charAt(cntr);
+
+			switch (theChar) {
+			case '+':
+			case '-':
+			case '*':
+			case '/':
+				addOperator(theChar, cntr);
+				break;
+			case '(':
+				endNumber(cntr);
+
+				if (lastKind == TokenBuffer.NUMBER || lastKind == TokenBuffer.VARIABLE
+						|| lastKind == TokenBuffer.CLOSING_PARENTHESIS)
+					throw new InfixParsingException(EvaluatorUtility.OPENING_PARENTHESIS_ERR_MSG);
+
+				int depth = openingCntr - closingCntr;
+				if (depth == callParentheses.length)
+					callParentheses = Arrays.copyOf(callParentheses, depth * 2);
+				callParentheses[depth] = lastKind == TokenBuffer.FUNCTION;
+
+				tokens.add(TokenBuffer.OPENING_PARENTHESIS, cntr, cntr + 1);
+				lastKind = TokenBuffer.OPENING_PARENTHESIS;
+				openingCntr++;
+				break;
+			case ')':
+				endNumber(cntr);
+
+				if (lastKind == TokenBuffer.OPERATOR || lastKind == TokenBuffer.OPENING_PARENTHESIS
+						|| lastKind == TokenBuffer.COMMA)
+					throw new InfixParsingException(EvaluatorUtility.CLOSING_PARENTHESIS_ERR_MSG);
+
+				tokens.add(TokenBuffer.CLOSING_PARENTHESIS, cntr, cntr + 1);
+				lastKind = TokenBuffer.CLOSING_PARENTHESIS;
+				closingCntr++;
+
+				// Checks that the opening parenthesis was used before the
+				// closing parenthesis
+				if (closingCntr > openingCntr)
+					throw new InfixParsingException(EvaluatorUtility.PARENTHESES_ERR_MSG);
+				break;
+			case ',':
+				endNumber(cntr);
+
+				// Only between two arguments of a function
+				if (lastKind == TokenBuffer.OPERATOR || lastKind == TokenBuffer.OPENING_PARENTHESIS
+						|| lastKind == TokenBuffer.COMMA || openingCntr == closingCntr
+						|| !callParentheses[openingCntr - closingCntr - 1])
+					throw new InfixParsingException(EvaluatorUtility.ARGUMENT_ERR_MSG);
+
+				tokens.add(TokenBuffer.COMMA, cntr, cntr + 1);
+				lastKind = TokenBuffer.COMMA;
+				break;
+			case '.':
+				if (numberStart < 0)
+					numberStart = cntr;
+				numberPoints++;
+				break;
+			case '0':
+			case '1':
+			case '2':
+			case '3':
+			case '4':
+			case '5':
+			case '6':
+			case '7':
+			case '8':
+			case '9':
+				if (numberStart < 0)
+					numberStart = cntr;
+				numberDigits++;
+				if (theChar != '0')
+					numberNonZero = true;
+				break;
+			default:
+				if (registry.isOperator(theChar)) {
+					addOperator(theChar, cntr);
+					break;
+				}
+
+				if (!EvaluatorUtility.isVariableStart(theChar))
+					throw new InfixParsingException(EvaluatorUtility.CHARACTER_ERR_MSG);
+
+				// Skip to the last character of the variable
+				cntr = scanVariable(expression, cntr, end) - 1;
+			}
+		}
+
+		// If a number is left at the end
+		endNumber(end);
+
+		// Makes sure that all opening parentheses have their respective closing
+		// parentheses
+		if (openingCntr != closingCntr)
+			throw new InfixParsingException(EvaluatorUtility.PARENTHESES_ERR_MSG);
+
+		this.tokens = null;
+	}
+
+	/**
+	 * Adds an operator to the tokens, or starts a negative number for a - that
+	 * can't be an operator
+	 *
+	 * @param theChar
+	 * @param offset
+	 *            offset of the operator
+	 * @throws InfixParsingException
+	 */
+	private void addOperator(char theChar, int offset) throws InfixParsingException {
+		endNumber(offset);
+
+		if (theChar != '-' && (lastKind == TokenBuffer.OPERATOR || lastKind == TokenBuffer.OPENING_PARENTHESIS
+				|| lastKind == TokenBuffer.COMMA))
+			throw new InfixParsingException(EvaluatorUtility.OPERATOR_ERR_MSG);
+
+		// Deals with the negative sign, it becomes the start of the
+		// next number
+		if (theChar == '-' && (lastKind == NONE || lastKind == TokenBuffer.OPERATOR
+				|| lastKind == TokenBuffer.OPENING_PARENTHESIS || lastKind == TokenBuffer.COMMA)) {
+			numberStart = offset;
+		} else {
+			tokens.add(TokenBuffer.OPERATOR, offset, offset + 1);
+			lastKind = TokenBuffer.OPERATOR;
+			lastOperator = theChar;
+		}
+	}
+
+	/**
+	 * Adds the number being scanned, if any, to the tokens after checking that
+	 * it is a proper number at a proper place
+	 *
+	 * @param end
+	 *            offset following the last character of the number
+	 * @throws InfixParsingException
+	 */
+	private void endNumber(int end) throws InfixParsingException {
+		if (numberStart < 0)
+			return;
+
+		if (lastKind == TokenBuffer.CLOSING_PARENTHESIS)
+			throw new InfixParsingException(EvaluatorUtility.NUMBER_ERR_MSG);
+
+		if (lastKind == TokenBuffer.NUMBER || lastKind == TokenBuffer.VARIABLE)
+			throw new InfixParsingException(EvaluatorUtility.OPERAND_ERR_MSG);
+
+		// Needs at least one digit and at most one decimal point
+		if (numberDigits == 0 || numberPoints > 1)
+			throw new InfixParsingException(EvaluatorUtility.NUMBER_FORMAT_ERR_MSG);
+
+		// Check whether trying to divide by zero
+		if (!numberNonZero && lastKind == TokenBuffer.OPERATOR && (lastOperator == '/' || lastOperator == '%'))
+			throw new InfixParsingException(EvaluatorUtility.DIVIDE_BY_ZERO_MSG);
+
+		tokens.add(TokenBuffer.NUMBER, numberStart, end);
+		lastKind = TokenBuffer.NUMBER;
+		clearNumber();
+	}
+
+	/**
+	 * Adds the variable or the function starting at the given offset to the
+	 * tokens. A negative sign right before a variable becomes part of it,
+	 * like before an opening parenthesis it is not allowed before a function.
+	 *
+	 * @param expression
+	 * @param start
+	 *            offset of the first character of the variable name
+	 * @param end
+	 *            offset following the last character of the expression
+	 * @return offset following the last character of the name
+	 * @throws InfixParsingException
+	 */
+	private int scanVariable(CharSequence expression, int start, int end) throws InfixParsingException {
+		int variableStart = start;
+
+		if (numberStart >= 0 && numberDigits == 0 && numberPoints == 0) {
+			// Only a negative sign was scanned
+			variableStart = numberStart;
+			clearNumber();
+		} else {
+			endNumber(start);
+		}
+
+		if (lastKind == TokenBuffer.CLOSING_PARENTHESIS)
+			throw new InfixParsingException(EvaluatorUtility.NUMBER_ERR_MSG);
+
+		if (lastKind == TokenBuffer.NUMBER || lastKind == TokenBuffer.VARIABLE)
+			throw new InfixParsingException(EvaluatorUtility.OPERAND_ERR_MSG);
+
+		int variableEnd = start + 1;
+		while (variableEnd < end && EvaluatorUtility.isVariablePart(expression.charAt(variableEnd)))
+			variableEnd++;
+
+		if (variableEnd < end && expression.charAt(variableEnd) == '('
+				&& registry.getFunction(expression, start, variableEnd) != null) {
+			if (variableStart != start)
+				throw new InfixParsingException(EvaluatorUtility.NUMBER_FORMAT_ERR_MSG);
+
+			tokens.add(TokenBuffer.FUNCTION, start, variableEnd);
+			lastKind = TokenBuffer.FUNCTION;
+			return variableEnd;
+		}
+
+		tokens.add(TokenBuffer.VARIABLE, variableStart, variableEnd);
+		lastKind = TokenBuffer.VARIABLE;
+
+		return variableEnd;
+	}
+
+	/**
+	 * Forgets the number being scanned
+	 */
+	private void clearNumber() {
+		numberStart = -1;
+		numberDigits = 0;
+		numberPoints = 0;
+		numberNonZero = false;
+	}
+}
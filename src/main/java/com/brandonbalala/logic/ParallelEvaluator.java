@@ -0,0 +1,197 @@
+package com.brandonbalala.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.OperatorRegistry;
+
+/**
+ * Evaluates large batches of independent expressions on a ForkJoinPool. The
+ * batch is split in halves until the pieces are small enough, each worker
+ * thread parses and solves with its own Infix and Postfix through a shared
+ * Evaluator, and every result lands at the index of its expression. A failing
+ * expression, whether it does not parse or a registered function throws, only
+ * records its error message, the rest of the batch goes on.
+ */
+public final class ParallelEvaluator {
+	static final int DEFAULT_THRESHOLD = 512;
+
+	private final ForkJoinPool pool;
+	private final Evaluator evaluator;
+	private final int threshold;
+
+	/**
+	 * Constructor, uses the common pool
+	 */
+	public ParallelEvaluator() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param pool
+	 */
+	public ParallelEvaluator(ForkJoinPool pool) {
+		this(pool, DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param pool
+	 * @param threshold
+	 *            number of expressions below which a piece is not split
+	 *            anymore
+	 */
+	public ParallelEvaluator(ForkJoinPool pool, int threshold) {
+		this(pool, threshold, OperatorRegistry.getDefault());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param pool
+	 * @param threshold
+	 *            number of expressions below which a piece is not split
+	 *            anymore
+	 * @param registry
+	 *            operators and functions the expressions may use
+	 */
+	public ParallelEvaluator(ForkJoinPool pool, int threshold, OperatorRegistry registry) {
+		if (threshold < 1)
+			throw new IllegalArgumentException("The threshold must be at least 1, got " + threshold);
+
+		this.pool = pool;
+		this.evaluator = new Evaluator(registry);
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Evaluates every expression of the list
+	 *
+	 * @param expressions
+	 * @return the results, in the order of the list
+	 */
+	public BatchResult evaluateAll(List<String> expressions) {
+		String[] array = expressions.toArray(new String[expressions.size()]);
+		BatchResult result = new BatchResult(array.length);
+
+		pool.invoke(new ArrayTask(array, 0, array.length, result));
+		result.countErrors();
+
+		return result;
+	}
+
+	/**
+	 * Evaluates every expression of the spliterator. A spliterator that knows
+	 * the exact size of its splits is split as is, any other one is first
+	 * read into a list.
+	 *
+	 * @param expressions
+	 * @return the results, in encounter order
+	 */
+	public BatchResult evaluateAll(Spliterator<String> expressions) {
+		if (!expressions.hasCharacteristics(Spliterator.SUBSIZED)) {
+			final List<String> list = new ArrayList<String>();
+			expressions.forEachRemaining(list::add);
+			return evaluateAll(list);
+		}
+
+		BatchResult result = new BatchResult((int) expressions.getExactSizeIfKnown());
+
+		pool.invoke(new SpliteratorTask(expressions, 0, result));
+		result.countErrors();
+
+		return result;
+	}
+
+	/**
+	 * Evaluates one expression into its place in the result
+	 *
+	 * @param expression
+	 * @param index
+	 * @param result
+	 */
+	private void evaluate(String expression, int index, BatchResult result) {
+		try {
+			result.setValue(index, evaluator.evaluate(expression));
+		} catch (InfixParsingException | PostfixParsingException e) {
+			result.setError(index, e.getMessage());
+		} catch (RuntimeException e) {
+			//A registered function failed, only this expression is lost
+			result.setError(index, e.toString());
+		}
+	}
+
+	/**
+	 * Evaluates a range of an array of expressions
+	 */
+	private final class ArrayTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final String[] expressions;
+		private final int start;
+		private final int end;
+		private final BatchResult result;
+
+		private ArrayTask(String[] expressions, int start, int end, BatchResult result) {
+			this.expressions = expressions;
+			this.start = start;
+			this.end = end;
+			this.result = result;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= threshold) {
+				for (int index = start; index < end; index++)
+					evaluate(expressions[index], index, result);
+			} else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new ArrayTask(expressions, start, middle, result),
+						new ArrayTask(expressions, middle, end, result));
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the expressions of a spliterator whose first element goes to
+	 * the given index of the result
+	 */
+	private final class SpliteratorTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Spliterator<String> expressions;
+		private final int start;
+		private final BatchResult result;
+
+		private SpliteratorTask(Spliterator<String> expressions, int start, BatchResult result) {
+			this.expressions = expressions;
+			this.start = start;
+			this.result = result;
+		}
+
+		@Override
+		protected void compute() {
+			Spliterator<String> prefix = null;
+			if (expressions.estimateSize() > threshold)
+				prefix = expressions.trySplit();
+
+			if (prefix == null) {
+				final int[] index = { start };
+				expressions.forEachRemaining(expression -> evaluate(expression, index[0]++, result));
+			} else {
+				// The prefix comes first in encounter order
+				int prefixSize = (int) prefix.getExactSizeIfKnown();
+				invokeAll(new SpliteratorTask(prefix, start, result),
+						new SpliteratorTask(expressions, start + prefixSize, result));
+			}
+		}
+	}
+}
@@ -1,267 +1,530 @@
 package com.brandonbalala.logic;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Queue;
 
 import com.brandonbalala.exception.InfixParsingException;
 import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.metrics.EvaluatorMetrics;
 import com.brandonbalala.utility.EvaluatorUtility;
+import com.brandonbalala.utility.MathFunction;
+import com.brandonbalala.utility.Operator;
+import com.brandonbalala.utility.OperatorRegistry;
 
 public class Postfix {
-	private Queue<String> postfixQueue;
-	private Deque<String> operatorStack;
-	private Deque<String> operandStack;
-	private Deque<String> expressionDeque;
+	// Kind of an element of an infix queue that is not a valid token
+	private static final byte UNKNOWN = -1;
+	private static final byte NONE = -2;
+
+	private final OperatorRegistry registry;
+
+	// Postfix expression, tokens referring to the text they were parsed from,
+	// the value of every number and the function and argument count of every
+	// call at the index of its token
+	private final TokenBuffer program;
+	private double[] numbers;
+	private int[] functionIds;
+	private int[] argumentCounts;
+
+	// Tokens of an infix queue and the text they refer to
+	private final TokenBuffer queueTokens;
+	private final StringBuilder queueText;
+
+	// Indexes of the operators, functions and opening parentheses not yet in
+	// the program, and the arguments counted so far by the parentheses of a
+	// call, 0 for any other parenthesis
+	private int[] operatorStack;
+	private int[] argumentCounters;
+	private double[] operandStack;
+	// Number of operands left on the stack by the program so far, and the
+	// most there ever are
+	private int stackDepth;
+	private int maxStackDepth;
 
 	/**
 	 * Constructor
 	 */
 	public Postfix() {
-		postfixQueue = new ArrayDeque<String>();
-		operatorStack = new ArrayDeque<String>();
-		operandStack = new ArrayDeque<String>();
-		expressionDeque = new ArrayDeque<String>();
+		this(OperatorRegistry.getDefault());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param registry
+	 *            operators the expressions may use
+	 */
+	public Postfix(OperatorRegistry registry) {
+		this.registry = registry;
+		program = new TokenBuffer();
+		numbers = new double[16];
+		functionIds = new int[16];
+		argumentCounts = new int[16];
+		queueTokens = new TokenBuffer();
+		queueText = new StringBuilder();
+		operatorStack = new int[16];
+		argumentCounters = new int[16];
+		operandStack = new double[0];
+		stackDepth = 0;
+		maxStackDepth = 0;
 	}
 
 	/**
 	 * Get a copy of the postfix queue
-	 * 
+	 *
 	 * @return
 	 */
 	public Queue<String> getPostFixQueue() {
-		return new LinkedList<String>(postfixQueue);
+		Queue<String> postfixQueue = new LinkedList<String>();
+		for (int cntr = 0; cntr < program.size(); cntr++)
+			postfixQueue.offer(program.getText(cntr));
+
+		return postfixQueue;
+	}
+
+	/**
+	 * Get the postfix program, must not be modified
+	 *
+	 * @return program
+	 */
+	TokenBuffer getProgram() {
+		return program;
+	}
+
+	/**
+	 * Get the operators the expressions may use
+	 *
+	 * @return registry
+	 */
+	OperatorRegistry getRegistry() {
+		return registry;
 	}
 
 	/**
-	 * Parses an infix queue into a postfix queue
-	 * 
+	 * Get the value of a NUMBER token of the program
+	 *
+	 * @param index
+	 * @return the value
+	 */
+	double getNumber(int index) {
+		return numbers[index];
+	}
+
+	/**
+	 * Get the function of a FUNCTION token of the program
+	 *
+	 * @param index
+	 * @return the function id in the registry
+	 */
+	int getFunctionId(int index) {
+		return functionIds[index];
+	}
+
+	/**
+	 * Get the number of arguments of a FUNCTION token of the program
+	 *
+	 * @param index
+	 * @return the argument count
+	 */
+	int getArgumentCount(int index) {
+		return argumentCounts[index];
+	}
+
+	/**
+	 * Parses an infix queue into a postfix queue. The elements are copied
+	 * into a token buffer once, the infix queue is emptied when parsed
+	 * successfully.
+	 *
 	 * @param infixQueue
 	 * @throws PostfixParsingException
 	 */
 	public void parsePostfix(Queue<String> infixQueue) throws PostfixParsingException {
-		// Validates the infix queue before actually parsing
-		validateInfixQueue(infixQueue);
-
-		// Loop that deals with converting from infix queue to postfix queue
-		while (!infixQueue.isEmpty()) {
-			String element = infixQueue.poll();
-
-			if (EvaluatorUtility.isNumeric(element)) {
-				postfixQueue.offer(element);
-			} else if (EvaluatorUtility.isOperator(element)) {
-				String operator;
-
-				do {
-					operator = evaluateOperator(element);
-				} while (!operator.isEmpty());
-			} else if (EvaluatorUtility.isOpeningParenthesis(element)) {
-				operatorStack.push(element);
-			} else if (EvaluatorUtility.isClosingParenthesis(element)) {
-				evaluateClosingParenthesis();
-			}
+		// Check for null or empty
+		if (infixQueue == null || infixQueue.isEmpty()) {
+			throwPostfixParsingException(EvaluatorUtility.EMPTY_ERR_MSG);
 		}
 
-		// Add whatever is left in the operator stack to the postfix queue
-		while (!operatorStack.isEmpty()) {
-			postfixQueue.offer(operatorStack.pop());
+		queueText.setLength(0);
+		queueTokens.reset(queueText);
+		queueTokens.ensureCapacity(infixQueue.size());
+		for (String element : infixQueue) {
+			byte kind = getKind(element);
+
+			// A function name followed by an opening parenthesis is a call
+			int last = queueTokens.size() - 1;
+			if (kind == TokenBuffer.OPENING_PARENTHESIS && last >= 0
+					&& queueTokens.getKind(last) == TokenBuffer.VARIABLE && registry.getFunction(queueText,
+							queueTokens.getStart(last), queueTokens.getEnd(last)) != null)
+				queueTokens.setKind(last, TokenBuffer.FUNCTION);
+
+			int start = queueText.length();
+			queueText.append(element);
+			queueTokens.add(kind, start, queueText.length());
 		}
+
+		parseTokens(queueTokens);
+		infixQueue.clear();
 	}
 
 	/**
-	 * Validate whether the infix queue represents a correctly syntaxed
-	 * mathematical equation
-	 * 
-	 * @param infixQueue
+	 * Parses an infix expression by receiving an Infix object. Its tokens are
+	 * parsed directly unless its infix queue has been asked for.
+	 *
+	 * @param infix
 	 * @throws PostfixParsingException
 	 */
-	private void validateInfixQueue(Queue<String> infixQueue) throws PostfixParsingException {
-		// Check for null or empty
-		if (infixQueue.isEmpty() || infixQueue == null) {
-			throwPostfixParsingException(EvaluatorUtility.EMPTY_ERR_MSG);
+	public void parsePostfix(Infix infix) throws PostfixParsingException {
+		TokenBuffer tokens = infix.getPendingTokens();
+		if (tokens == null) {
+			parsePostfix(infix.getInfixQueue());
+			return;
 		}
 
-		/// Initialize variables
-		// Creating a copy of the infix queue
-		Queue<String> infixQueueCopy = new LinkedList<String>(infixQueue);
-		String lastElement = "";
-		String element;
-		int openingCntr = 0;
-		int closingCntr = 0;
+		parseTokens(tokens);
+		infix.consumeTokens();
+	}
+
+	/**
+	 * Validates the infix tokens and converts them to the postfix program in
+	 * a single pass. Every check is made on the token being read against the
+	 * one before it, operators wait on the operator stack for their operands
+	 * as in the shunting-yard algorithm.
+	 *
+	 * @param tokens
+	 * @throws PostfixParsingException
+	 */
+	private void parseTokens(TokenBuffer tokens) throws PostfixParsingException {
+		long start = EvaluatorMetrics.startTimer();
+		reset();
+		program.reset(tokens.getSource());
+
+		// The program never has more tokens than the infix expression
+		program.ensureCapacity(tokens.size());
+		if (numbers.length < tokens.size()) {
+			numbers = new double[tokens.size()];
+			functionIds = new int[tokens.size()];
+			argumentCounts = new int[tokens.size()];
+		}
+
+		if (tokens.size() == 0)
+			throwPostfixParsingException(EvaluatorUtility.EMPTY_ERR_MSG);
 
-		String firstElement = infixQueueCopy.peek();
 		// Check first element start with proper element
-		if ((EvaluatorUtility.isOperator(firstElement) || EvaluatorUtility.isClosingParenthesis(firstElement)))
+		byte firstKind = tokens.getKind(0);
+		if (firstKind == TokenBuffer.OPERATOR || firstKind == TokenBuffer.CLOSING_PARENTHESIS)
 			throwPostfixParsingException(EvaluatorUtility.STARTING_ERR_MSG);
 
-		// Looping through infix queue, looking for anomalies
-		while (!infixQueueCopy.isEmpty()) {
-			element = infixQueueCopy.poll();
+		byte lastKind = NONE;
+		char lastOperator = 0;
+		int openingCntr = 0;
+		int closingCntr = 0;
+		int operatorTop = -1;
 
-			if (EvaluatorUtility.isOperator(element)) {
-				if (EvaluatorUtility.isOperator(lastElement) || EvaluatorUtility.isOpeningParenthesis(lastElement))
+		for (int cntr = 0; cntr < tokens.size(); cntr++) {
+			byte kind = tokens.getKind(cntr);
+
+			switch (kind) {
+			case TokenBuffer.OPERATOR:
+				if (lastKind == TokenBuffer.OPERATOR || lastKind == TokenBuffer.OPENING_PARENTHESIS
+						|| lastKind == TokenBuffer.COMMA)
 					throwPostfixParsingException(EvaluatorUtility.OPERATOR_ERR_MSG);
-			} else if (EvaluatorUtility.isOpeningParenthesis(element)) {
-				if (EvaluatorUtility.isNumeric(lastElement) || EvaluatorUtility.isClosingParenthesis(lastElement))
+
+				// Operators of a higher precedence have all their operands,
+				// and so do those of the same precedence unless the operator
+				// is right associative
+				Operator current = registry.get(tokens.getOperator(cntr));
+				if (current == null)
+					throwPostfixParsingException(EvaluatorUtility.CHARACTER_ERR_MSG);
+
+				while (operatorTop >= 0 && tokens.getKind(operatorStack[operatorTop]) == TokenBuffer.OPERATOR
+						&& isApplied(registry.get(tokens.getOperator(operatorStack[operatorTop])), current)) {
+					addToProgram(tokens, operatorStack[operatorTop--]);
+				}
+
+				operatorTop = pushOperator(operatorTop, cntr);
+				break;
+			case TokenBuffer.OPENING_PARENTHESIS:
+				if (lastKind == TokenBuffer.NUMBER || lastKind == TokenBuffer.VARIABLE
+						|| lastKind == TokenBuffer.CLOSING_PARENTHESIS)
 					throwPostfixParsingException(EvaluatorUtility.OPENING_PARENTHESIS_ERR_MSG);
 
 				openingCntr++;
-			} else if (EvaluatorUtility.isClosingParenthesis(element)) {
-				if (EvaluatorUtility.isOperator(lastElement) || EvaluatorUtility.isOpeningParenthesis(lastElement))
+				operatorTop = pushOperator(operatorTop, cntr);
+				// The parentheses of a call hold at least one argument
+				argumentCounters[operatorTop] = lastKind == TokenBuffer.FUNCTION ? 1 : 0;
+				break;
+			case TokenBuffer.CLOSING_PARENTHESIS:
+				if (lastKind == TokenBuffer.OPERATOR || lastKind == TokenBuffer.OPENING_PARENTHESIS
+						|| lastKind == TokenBuffer.COMMA)
 					throwPostfixParsingException(EvaluatorUtility.CLOSING_PARENTHESIS_ERR_MSG);
 
 				closingCntr++;
 
 				if (closingCntr > openingCntr)
 					throwPostfixParsingException(EvaluatorUtility.PARENTHESES_ERR_MSG);
-			} else if (EvaluatorUtility.isNumeric(element)) {
-				if (EvaluatorUtility.isClosingParenthesis(lastElement)) {
-					throwPostfixParsingException(EvaluatorUtility.NUMBER_ERR_MSG);
+
+				// Operators up to the matching opening parenthesis
+				while (operatorTop >= 0) {
+					int operator = operatorStack[operatorTop--];
+					if (tokens.getKind(operator) == TokenBuffer.OPENING_PARENTHESIS)
+						break;
+
+					addToProgram(tokens, operator);
 				}
-				
-				if(Double.parseDouble(element) == 0.0 && EvaluatorUtility.isDivision(lastElement))
+
+				// The function follows its arguments
+				int argumentCount = argumentCounters[operatorTop + 1];
+				if (argumentCount > 0)
+					addCall(tokens, operatorStack[operatorTop--], argumentCount);
+				break;
+			case TokenBuffer.FUNCTION:
+				if (lastKind == TokenBuffer.CLOSING_PARENTHESIS)
+					throwPostfixParsingException(EvaluatorUtility.NUMBER_ERR_MSG);
+				if (lastKind == TokenBuffer.NUMBER || lastKind == TokenBuffer.VARIABLE)
+					throwPostfixParsingException(EvaluatorUtility.OPERAND_ERR_MSG);
+
+				operatorTop = pushOperator(operatorTop, cntr);
+				break;
+			case TokenBuffer.COMMA:
+				if (lastKind == NONE || lastKind == TokenBuffer.OPERATOR
+						|| lastKind == TokenBuffer.OPENING_PARENTHESIS || lastKind == TokenBuffer.COMMA)
+					throwPostfixParsingException(EvaluatorUtility.ARGUMENT_ERR_MSG);
+
+				// Operators of the argument, up to the parentheses of the call
+				while (operatorTop >= 0 && tokens.getKind(operatorStack[operatorTop]) == TokenBuffer.OPERATOR)
+					addToProgram(tokens, operatorStack[operatorTop--]);
+
+				if (operatorTop < 0 || argumentCounters[operatorTop] == 0)
+					throwPostfixParsingException(EvaluatorUtility.ARGUMENT_ERR_MSG);
+
+				argumentCounters[operatorTop]++;
+				break;
+			case TokenBuffer.NUMBER:
+				if (lastKind == TokenBuffer.CLOSING_PARENTHESIS)
+					throwPostfixParsingException(EvaluatorUtility.NUMBER_ERR_MSG);
+				if (lastKind == TokenBuffer.NUMBER || lastKind == TokenBuffer.VARIABLE)
+					throwPostfixParsingException(EvaluatorUtility.OPERAND_ERR_MSG);
+
+				double number = EvaluatorUtility.parseNumber(tokens.getSource(), tokens.getStart(cntr),
+						tokens.getEnd(cntr));
+				if (number == 0.0 && lastKind == TokenBuffer.OPERATOR && (lastOperator == '/' || lastOperator == '%'))
 					throwPostfixParsingException(EvaluatorUtility.DIVIDE_BY_ZERO_MSG);
-				
-			} else {
+
+				numbers[program.size()] = number;
+				addToProgram(tokens, cntr);
+				break;
+			case TokenBuffer.VARIABLE:
+				if (lastKind == TokenBuffer.CLOSING_PARENTHESIS)
+					throwPostfixParsingException(EvaluatorUtility.NUMBER_ERR_MSG);
+				if (lastKind == TokenBuffer.NUMBER || lastKind == TokenBuffer.VARIABLE)
+					throwPostfixParsingException(EvaluatorUtility.OPERAND_ERR_MSG);
+
+				addToProgram(tokens, cntr);
+				break;
+			default:
 				throwPostfixParsingException(EvaluatorUtility.CHARACTER_ERR_MSG);
 			}
 
-			lastElement = element;
+			lastKind = kind;
+			lastOperator = kind == TokenBuffer.OPERATOR ? tokens.getOperator(cntr) : 0;
 		}
 
 		// Check that there are the same number of opening and closing
 		// parenthesis
-		if (openingCntr != closingCntr) {
+		if (openingCntr != closingCntr)
 			throwPostfixParsingException(EvaluatorUtility.PARENTHESES_ERR_MSG);
-		}
 
 		// Check that you are ending the equation with a a valid element
-		if (EvaluatorUtility.isOperator(lastElement) || EvaluatorUtility.isOpeningParenthesis(lastElement))
+		if (lastKind == TokenBuffer.OPERATOR || lastKind == TokenBuffer.OPENING_PARENTHESIS
+				|| lastKind == TokenBuffer.FUNCTION || lastKind == TokenBuffer.COMMA)
 			throwPostfixParsingException(EvaluatorUtility.ENDING_ERR_MSG);
+
+		// Add whatever is left in the operator stack to the program
+		while (operatorTop >= 0)
+			addToProgram(tokens, operatorStack[operatorTop--]);
+
+		// Room for the deepest point of the evaluation
+		if (operandStack.length < maxStackDepth)
+			operandStack = new double[maxStackDepth];
+
+		EvaluatorMetrics.recordPhase(EvaluatorMetrics.Phase.PARSE, start);
+		EvaluatorMetrics.recordParse(tokens.size(), maxStackDepth);
 	}
 
 	/**
-	 * Parses an infix queue by receiving an Infix object.
-	 * 
-	 * @param infix
-	 * @throws PostfixParsingException
+	 * Check whether an operator waiting on the operator stack is applied
+	 * before the operator being read
+	 *
+	 * @param waiting
+	 * @param operator
+	 * @return true if the waiting operator goes to the program first
 	 */
-	public void parsePostfix(Infix infix) throws PostfixParsingException {
-		// Call to overloaded method passing in the infixqueue taken from infix
-		// object
-		parsePostfix(infix.getInfixQueue());
+	private static boolean isApplied(Operator waiting, Operator operator) {
+		return waiting.getPrecedence() > operator.getPrecedence()
+				|| (waiting.getPrecedence() == operator.getPrecedence()
+						&& operator.getAssociativity() == Operator.Associativity.LEFT);
 	}
 
 	/**
-	 * Deals with operators when parsing the infix queue into postfix queue
-	 * 
-	 * @param operator
-	 * @return
+	 * Pushes the index of an operator or an opening parenthesis on the
+	 * operator stack
+	 *
+	 * @param operatorTop
+	 * @param index
+	 * @return the new top of the stack
 	 */
-	private String evaluateOperator(String operator) {
-		// Push operator into operatorStack if empty
-		if (operatorStack.isEmpty()) {
-			operatorStack.push(operator);
-		} else {
-			int precedence = EvaluatorUtility.getOperatorPrecedence(operator);
-
-			String prevOperator = operatorStack.peek();
-			int prevPrecedence = EvaluatorUtility.getOperatorPrecedence(prevOperator);
-
-			// Compare precedence of the operator and operator on top of the
-			// stack
-			if (precedence > prevPrecedence) {
-				operatorStack.push(operator);
-			} else {
-				postfixQueue.offer(operatorStack.pop());
-				return operator;
-			}
+	private int pushOperator(int operatorTop, int index) {
+		if (operatorTop + 1 == operatorStack.length) {
+			operatorStack = Arrays.copyOf(operatorStack, operatorStack.length * 2);
+			argumentCounters = Arrays.copyOf(argumentCounters, operatorStack.length);
 		}
 
-		return "";
+		operatorStack[++operatorTop] = index;
+		return operatorTop;
 	}
 
 	/**
-	 * Deals with operators when parsing the infix queue into postfix queue
+	 * Adds a token to the program, keeping track of how deep the operand stack
+	 * will get when solving
+	 *
+	 * @param tokens
+	 * @param index
 	 */
-	private void evaluateClosingParenthesis() {
-		while (!operatorStack.isEmpty()) {
-			String tempOperator = operatorStack.pop();
-			if (EvaluatorUtility.isOpeningParenthesis(tempOperator)) {
-				break;
-			}
+	private void addToProgram(TokenBuffer tokens, int index) {
+		byte kind = tokens.getKind(index);
+		program.add(kind, tokens.getStart(index), tokens.getEnd(index));
 
-			postfixQueue.offer(tempOperator);
+		if (kind == TokenBuffer.OPERATOR) {
+			stackDepth--;
+		} else {
+			stackDepth++;
+			maxStackDepth = Math.max(maxStackDepth, stackDepth);
 		}
 	}
 
 	/**
-	 * Called when actually trying to solve the equation
-	 * 
+	 * Adds a function call to the program once all its arguments are in it
+	 *
+	 * @param tokens
+	 * @param index
+	 *            index of the FUNCTION token
+	 * @param argumentCount
+	 * @throws PostfixParsingException
+	 *             if the function does not take that many arguments
+	 */
+	private void addCall(TokenBuffer tokens, int index, int argumentCount) throws PostfixParsingException {
+		MathFunction function = registry.getFunction(tokens.getSource(), tokens.getStart(index), tokens.getEnd(index));
+		if (function == null)
+			throwPostfixParsingException(EvaluatorUtility.CHARACTER_ERR_MSG);
+		if (!function.acceptsArity(argumentCount))
+			throwPostfixParsingException(EvaluatorUtility.ARITY_ERR_MSG);
+
+		functionIds[program.size()] = function.getId();
+		argumentCounts[program.size()] = argumentCount;
+		program.add(TokenBuffer.FUNCTION, tokens.getStart(index), tokens.getEnd(index));
+
+		// Leaves one result in place of its arguments
+		stackDepth -= argumentCount - 1;
+	}
+
+	/**
+	 * Get the kind of an element of an infix queue
+	 *
+	 * @param element
+	 * @return the kind of token, UNKNOWN if not a valid token
+	 */
+	private byte getKind(String element) {
+		if (element == null)
+			return UNKNOWN;
+		if (element.length() == 1 && registry.isOperator(element.charAt(0)))
+			return TokenBuffer.OPERATOR;
+		if (EvaluatorUtility.isOpeningParenthesis(element))
+			return TokenBuffer.OPENING_PARENTHESIS;
+		if (EvaluatorUtility.isClosingParenthesis(element))
+			return TokenBuffer.CLOSING_PARENTHESIS;
+		if (EvaluatorUtility.isArgumentSeparator(element))
+			return TokenBuffer.COMMA;
+		if (EvaluatorUtility.isNumeric(element))
+			return TokenBuffer.NUMBER;
+		if (EvaluatorUtility.isVariable(element))
+			return TokenBuffer.VARIABLE;
+
+		return UNKNOWN;
+	}
+
+	/**
+	 * Called when actually trying to solve the equation. Operands are kept as
+	 * doubles on a primitive stack, sized when parsing, so nothing is created
+	 * per operator. The program is left as is, the same expression can be
+	 * solved again.
+	 *
 	 * @return
 	 * @throws PostfixParsingException
 	 */
 	public Double solvePostfixExpression() throws PostfixParsingException {
-		// Check if null or empty
-		if (postfixQueue.isEmpty() || postfixQueue == null)
+		// Check if empty
+		if (program.size() == 0)
 			throwPostfixParsingException(EvaluatorUtility.SOLVE_ERROR_MSG);
 
-		operatorStack = new ArrayDeque<String>();
+		long start = EvaluatorMetrics.startTimer();
+		int top = -1;
 
-		// Loop through postfix queue
-		while (!postfixQueue.isEmpty()) {
-			String element = postfixQueue.poll();
-
-			if (EvaluatorUtility.isNumeric(element)) {
-				operandStack.push(element);
-			} else if (EvaluatorUtility.isOperator(element)) {
-				// Adding the elements to the expression deque in correct order
-				expressionDeque.offer(element);
-				expressionDeque.offerLast(operandStack.pop());
-				expressionDeque.offerFirst(operandStack.pop());
-
-				// Figuring out solution to the expression deque and putting it
-				// back into operand stack
-				operandStack.push(evaluateExpression());
+		// Loop through the program
+		for (int cntr = 0; cntr < program.size(); cntr++) {
+			switch (program.getKind(cntr)) {
+			case TokenBuffer.NUMBER:
+				operandStack[++top] = numbers[cntr];
+				break;
+			case TokenBuffer.VARIABLE:
+				// Values of the variables are only known to a CompiledExpression
+				throwPostfixParsingException(EvaluatorUtility.VARIABLE_ERR_MSG);
+				break;
+			case TokenBuffer.FUNCTION:
+				// Replacing the arguments by the result of the call
+				int argumentCount = argumentCounts[cntr];
+				top -= argumentCount - 1;
+				operandStack[top] = CompiledExpression.call(registry.getFunction(functionIds[cntr]), operandStack,
+						top, argumentCount);
+				break;
+			default:
+				// Replacing both operands by the solution of the expression
+				top--;
+				operandStack[top] = evaluateExpression(program.getOperator(cntr), operandStack[top],
+						operandStack[top + 1]);
 			}
 		}
 
+		EvaluatorMetrics.recordPhase(EvaluatorMetrics.Phase.SOLVE, start);
+
 		// Choosing not to round right in here, letting the user do as he
 		// pleases with the result
-		double result = Double.parseDouble(operandStack.pop());
-
-		return result;
+		return operandStack[top];
 	}
 
 	/**
-	 * Evaluates the expression deque. There are basically 4 options, either
-	 * it's an addition, subtraction, multiplication, division. It performs the
-	 * operation and returns the result as a string
-	 * 
+	 * Evaluates an expression of two operands. Addition, subtraction,
+	 * multiplication and division are performed directly, any other operator
+	 * through its function in the registry
+	 *
+	 * @param operator
+	 * @param firstOperand
+	 * @param lastOperand
 	 * @return
 	 */
-	public String evaluateExpression() {
-		Double firstOperand = Double.parseDouble(expressionDeque.pollFirst());
-		Double lastOperand = Double.parseDouble(expressionDeque.pollLast());
-		String operator = expressionDeque.poll();
-		Double result = null;
-
+	private double evaluateExpression(char operator, double firstOperand, double lastOperand) {
 		switch (operator) {
-		case EvaluatorUtility.ADDITION:
-			result = firstOperand + lastOperand;
-			break;
-		case EvaluatorUtility.SUBTRACTION:
-			result = firstOperand - lastOperand;
-			break;
-		case EvaluatorUtility.MULTIPLICATION:
-			result = firstOperand * lastOperand;
-			break;
-		case EvaluatorUtility.DIVISION:
-			result = firstOperand / lastOperand;
-			break;
+		case '+':
+			return firstOperand + lastOperand;
+		case '-':
+			return firstOperand - lastOperand;
+		case '*':
+			return firstOperand * lastOperand;
+		case '/':
+			return firstOperand / lastOperand;
+		default:
+			return registry.get(operator).apply(firstOperand, lastOperand);
 		}
-		return String.valueOf(result);
 	}
 
 	/**
@@ -270,17 +533,18 @@ public class Postfix {
 	 * @throws PostfixParsingException
 	 */
 	private void throwPostfixParsingException(String message) throws PostfixParsingException {
-		emptyAll();
+		reset();
+		EvaluatorMetrics.recordFailure(message);
 		throw new PostfixParsingException(message);
 	}
 
 	/**
-	 * Clear all the fields
+	 * Clears the program so the instance can be reused for another
+	 * expression, without replacing any of the buffers
 	 */
-	private void emptyAll() {
-		postfixQueue = new ArrayDeque<String>();
-		operatorStack = new ArrayDeque<String>();
-		operandStack = new ArrayDeque<String>();
-		expressionDeque = new ArrayDeque<String>();
+	void reset() {
+		program.reset(null);
+		stackDepth = 0;
+		maxStackDepth = 0;
 	}
-}
\ No newline at end of file
+}
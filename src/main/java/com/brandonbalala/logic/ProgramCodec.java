@@ -0,0 +1,390 @@
+package com.brandonbalala.logic;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.brandonbalala.utility.MathFunction;
+import com.brandonbalala.utility.Operator;
+import com.brandonbalala.utility.OperatorRegistry;
+
+/**
+ * Binary form of a compiled expression, so that an expression compiled once
+ * can be loaded anywhere else without parsing its text again.
+ *
+ * An encoded program is, in little-endian order:
+ *
+ * <pre>
+ * int      magic, "EVPG"
+ * short    version of the format
+ * short    number of external names
+ * int      number of instructions
+ * int      number of constants
+ * int      number of variables
+ * int      stack depth
+ * int[]    instructions
+ * double[] constants
+ * names    variables, by slot
+ * names    externals, each one preceded by its kind (byte) and its id (int)
+ * </pre>
+ *
+ * A name is its length in bytes (short) followed by its UTF-8 bytes.
+ * Built-in operators and functions are known by the opcode or id they have
+ * in every registry. The other ones are listed by symbol or name as externals
+ * and given the id they have in the registry of the process that decodes the
+ * program, which must have registered them too.
+ *
+ * Decoding reads the buffer at its position without moving it. The
+ * instructions and the constants are bulk copied into new int[] and double[]
+ * arrays, and the program is checked to be well formed so that evaluating it
+ * can never fail.
+ */
+public final class ProgramCodec {
+	/**
+	 * First bytes of an encoded program
+	 */
+	public static final int MAGIC = 0x45565047;
+
+	/**
+	 * Version of the format written by encode, a decoder reads every version
+	 * up to its own
+	 */
+	public static final short VERSION = 1;
+
+	static final int HEADER_SIZE = 24;
+
+	// Kinds of external names
+	private static final byte EXTERNAL_OPERATOR = 0;
+	private static final byte EXTERNAL_FUNCTION = 1;
+
+	private ProgramCodec() {
+	}
+
+	/**
+	 * Encodes a compiled expression
+	 *
+	 * @param expression
+	 * @return the encoded program
+	 */
+	public static byte[] encode(CompiledExpression expression) {
+		ByteBuffer buffer = ByteBuffer.allocate(getEncodedSize(expression));
+		encode(expression, buffer);
+		return buffer.array();
+	}
+
+	/**
+	 * Encodes a compiled expression at the position of a buffer, the position
+	 * is moved past it
+	 *
+	 * @param expression
+	 * @param buffer
+	 *            with at least getEncodedSize(expression) bytes remaining
+	 */
+	public static void encode(CompiledExpression expression, ByteBuffer buffer) {
+		int[] code = expression.getCode();
+		double[] constants = expression.getConstants();
+		List<String> variables = expression.getVariables();
+		List<Object> externals = getExternals(expression);
+
+		ByteBuffer out = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		out.putInt(MAGIC);
+		out.putShort(VERSION);
+		out.putShort((short) externals.size());
+		out.putInt(code.length);
+		out.putInt(constants.length);
+		out.putInt(variables.size());
+		out.putInt(expression.getMaxStackDepth());
+
+		for (int instruction : code)
+			out.putInt(instruction);
+		for (double constant : constants)
+			out.putDouble(constant);
+		for (String variable : variables)
+			putName(out, variable);
+
+		for (Object external : externals) {
+			if (external instanceof Operator) {
+				out.put(EXTERNAL_OPERATOR);
+				out.putInt(((Operator) external).getId());
+				putName(out, String.valueOf(((Operator) external).getSymbol()));
+			} else {
+				out.put(EXTERNAL_FUNCTION);
+				out.putInt(((MathFunction) external).getId());
+				putName(out, ((MathFunction) external).getName());
+			}
+		}
+
+		buffer.position(out.position());
+	}
+
+	/**
+	 * Get the number of bytes of an encoded expression
+	 *
+	 * @param expression
+	 * @return the size
+	 */
+	public static int getEncodedSize(CompiledExpression expression) {
+		int size = HEADER_SIZE + expression.getCode().length * 4 + expression.getConstants().length * 8;
+		for (String variable : expression.getVariables())
+			size += 2 + variable.getBytes(StandardCharsets.UTF_8).length;
+
+		for (Object external : getExternals(expression)) {
+			String name = external instanceof Operator ? String.valueOf(((Operator) external).getSymbol())
+					: ((MathFunction) external).getName();
+			size += 1 + 4 + 2 + name.getBytes(StandardCharsets.UTF_8).length;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Decodes a program using the operators of the default registry
+	 *
+	 * @param buffer
+	 *            holding the program at its position, the position is moved
+	 *            past it
+	 * @return the compiled expression
+	 * @throws IllegalArgumentException
+	 *             if the buffer does not hold a valid program
+	 */
+	public static CompiledExpression decode(ByteBuffer buffer) {
+		return decode(buffer, OperatorRegistry.getDefault());
+	}
+
+	/**
+	 * Decodes a program
+	 *
+	 * @param buffer
+	 *            holding the program at its position, the position is moved
+	 *            past it
+	 * @param registry
+	 *            operators and functions the program may use
+	 * @return the compiled expression
+	 * @throws IllegalArgumentException
+	 *             if the buffer does not hold a valid program, or the program
+	 *             uses an operator or a function the registry does not have
+	 */
+	public static CompiledExpression decode(ByteBuffer buffer, OperatorRegistry registry) {
+		ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC)
+			throw new IllegalArgumentException("Not an encoded program");
+
+		short version = in.getShort();
+		if (version < 1 || version > VERSION)
+			throw new IllegalArgumentException("Unsupported program version " + version);
+
+		int externalCount = in.getShort();
+		int codeLength = in.getInt();
+		int constantCount = in.getInt();
+		int variableCount = in.getInt();
+		int maxStackDepth = in.getInt();
+		// Every name takes at least its length, every external its kind and id
+		// as well
+		if (externalCount < 0 || codeLength < 1 || constantCount < 0 || variableCount < 0
+				|| codeLength * 4L + constantCount * 8L + variableCount * 2L + externalCount * 7L > in.remaining())
+			throw new IllegalArgumentException("Truncated or corrupt program");
+
+		int[] code = new int[codeLength];
+		in.asIntBuffer().get(code);
+		in.position(in.position() + codeLength * 4);
+
+		double[] constants = new double[constantCount];
+		in.asDoubleBuffer().get(constants);
+		in.position(in.position() + constantCount * 8);
+
+		try {
+			String[] variables = new String[variableCount];
+			for (int slot = 0; slot < variableCount; slot++)
+				variables[slot] = getName(in);
+
+			// Ids of the externals in the registry of the program and in this
+			// one, kept in maps since the ids read may be anything
+			Map<Integer, Integer> operatorIds = new HashMap<Integer, Integer>();
+			Map<Integer, Integer> functionIds = new HashMap<Integer, Integer>();
+			for (int cntr = 0; cntr < externalCount; cntr++) {
+				byte kind = in.get();
+				int id = in.getInt();
+				String name = getName(in);
+				if (id < 0)
+					throw new IllegalArgumentException("Truncated or corrupt program");
+
+				if (kind == EXTERNAL_OPERATOR) {
+					Operator operator = name.length() == 1 ? registry.get(name.charAt(0)) : null;
+					if (operator == null)
+						throw new IllegalArgumentException("Operator " + name + " is not registered");
+					operatorIds.put(id, operator.getId());
+				} else if (kind == EXTERNAL_FUNCTION) {
+					MathFunction function = registry.getFunction(name);
+					if (function == null)
+						throw new IllegalArgumentException("Function " + name + " is not registered");
+					functionIds.put(id, function.getId());
+				} else {
+					throw new IllegalArgumentException("Truncated or corrupt program");
+				}
+			}
+
+			relink(code, operatorIds, functionIds);
+			verify(code, constantCount, variableCount, maxStackDepth, registry);
+
+			buffer.position(in.position());
+			return new CompiledExpression(code, constants, variables, maxStackDepth, registry);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated or corrupt program");
+		}
+	}
+
+	/**
+	 * Get the operators and functions of a program that are not built-in, in
+	 * order of first use
+	 *
+	 * @param expression
+	 * @return the operators and functions
+	 */
+	private static List<Object> getExternals(CompiledExpression expression) {
+		List<Object> externals = new ArrayList<Object>();
+
+		for (int instruction : expression.getCode()) {
+			int opcode = instruction & CompiledExpression.OPCODE_MASK;
+			Object external = null;
+			if (opcode == CompiledExpression.APPLY)
+				external = expression.getOperator(instruction);
+			else if (opcode == CompiledExpression.CALL && expression.getFunction(instruction)
+					.getId() >= OperatorRegistry.BUILT_IN_FUNCTION_COUNT)
+				external = expression.getFunction(instruction);
+
+			if (external != null && !externals.contains(external))
+				externals.add(external);
+		}
+
+		return externals;
+	}
+
+	/**
+	 * Replaces the ids of the externals of the program by their ids in the
+	 * registry decoding it
+	 *
+	 * @param code
+	 * @param operatorIds
+	 *            id in the decoding registry of every operator id of the
+	 *            program
+	 * @param functionIds
+	 *            same for the functions
+	 */
+	private static void relink(int[] code, Map<Integer, Integer> operatorIds, Map<Integer, Integer> functionIds) {
+		for (int cntr = 0; cntr < code.length; cntr++) {
+			int instruction = code[cntr];
+			int opcode = instruction & CompiledExpression.OPCODE_MASK;
+
+			if (opcode == CompiledExpression.APPLY) {
+				int id = instruction >>> CompiledExpression.OPERAND_SHIFT;
+				Integer localId = operatorIds.get(id);
+				if (localId == null)
+					throw new IllegalArgumentException("Unknown operator " + id);
+				code[cntr] = CompiledExpression.APPLY | (localId << CompiledExpression.OPERAND_SHIFT);
+			} else if (opcode == CompiledExpression.CALL) {
+				int id = instruction >>> (CompiledExpression.OPERAND_SHIFT + CompiledExpression.ARGUMENT_COUNT_BITS);
+				if (id < OperatorRegistry.BUILT_IN_FUNCTION_COUNT)
+					continue;
+				Integer localId = functionIds.get(id);
+				if (localId == null)
+					throw new IllegalArgumentException("Unknown function " + id);
+				code[cntr] = CompiledExpression.CALL | (((localId << CompiledExpression.ARGUMENT_COUNT_BITS)
+						| CompiledExpression.getArgumentCount(instruction)) << CompiledExpression.OPERAND_SHIFT);
+			}
+		}
+	}
+
+	/**
+	 * Checks every instruction of a program and its stack depth
+	 *
+	 * @throws IllegalArgumentException
+	 *             if an instruction is unknown or refers to something missing,
+	 *             or the stack depth is not the one of the program
+	 */
+	private static void verify(int[] code, int constantCount, int variableCount, int maxStackDepth,
+			OperatorRegistry registry) {
+		int depth = 0;
+		int maxDepth = 0;
+
+		for (int instruction : code) {
+			int opcode = instruction & CompiledExpression.OPCODE_MASK;
+			int operand = instruction >>> CompiledExpression.OPERAND_SHIFT;
+
+			switch (opcode) {
+			case CompiledExpression.PUSH_CONSTANT:
+				if (operand >= constantCount)
+					throw new IllegalArgumentException("Unknown constant " + operand);
+				depth++;
+				break;
+			case CompiledExpression.PUSH_VARIABLE:
+			case CompiledExpression.PUSH_NEGATED_VARIABLE:
+				if (operand >= variableCount)
+					throw new IllegalArgumentException("Unknown variable slot " + operand);
+				depth++;
+				break;
+			case CompiledExpression.CALL:
+				int functionId = operand >>> CompiledExpression.ARGUMENT_COUNT_BITS;
+				int count = CompiledExpression.getArgumentCount(instruction);
+				if (functionId >= registry.functionCount() || !registry.getFunction(functionId).acceptsArity(count)
+						|| count > depth)
+					throw new IllegalArgumentException("Invalid call " + operand);
+				depth -= count - 1;
+				break;
+			case CompiledExpression.APPLY:
+				if (operand >= registry.size())
+					throw new IllegalArgumentException("Unknown operator " + operand);
+				if (depth < 2)
+					throw new IllegalArgumentException("Missing operand");
+				depth--;
+				break;
+			case CompiledExpression.ADD:
+			case CompiledExpression.SUBTRACT:
+			case CompiledExpression.MULTIPLY:
+			case CompiledExpression.DIVIDE:
+			case CompiledExpression.REMAINDER:
+			case CompiledExpression.POWER:
+				if (depth < 2)
+					throw new IllegalArgumentException("Missing operand");
+				depth--;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown opcode " + opcode);
+			}
+
+			maxDepth = Math.max(maxDepth, depth);
+		}
+
+		if (depth != 1 || maxDepth != maxStackDepth)
+			throw new IllegalArgumentException("Truncated or corrupt program");
+	}
+
+	private static void putName(ByteBuffer out, String name) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		out.putShort((short) bytes.length);
+		out.put(bytes);
+	}
+
+	private static String getName(ByteBuffer in) {
+		int length = in.getShort() & 0xFFFF;
+		if (length > in.remaining())
+			throw new IllegalArgumentException("Truncated or corrupt program");
+
+		// Decoded straight from the buffer, mapped or not
+		String name;
+		if (in.hasArray()) {
+			name = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+		} else {
+			byte[] bytes = new byte[length];
+			in.duplicate().get(bytes);
+			name = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		in.position(in.position() + length);
+		return name;
+	}
+}
@@ -0,0 +1,218 @@
+package com.brandonbalala.logic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.brandonbalala.utility.OperatorRegistry;
+
+/**
+ * A read-only collection of encoded programs, such as a library of formulas
+ * compiled ahead of time, loaded without parsing any text.
+ *
+ * A library is, in little-endian order:
+ *
+ * <pre>
+ * int    magic, "EVLB"
+ * short  version of the format
+ * short  reserved, 0
+ * int    number of programs
+ * int[]  offset of every program from the start of the library
+ * bytes  programs encoded by ProgramCodec
+ * </pre>
+ *
+ * Loading is lazy, it only checks the header and keeps a view of the buffer
+ * without copying it. A program is decoded the first time it is asked for
+ * and kept from then on, so starting with hundreds of thousands of programs
+ * costs little until they are used. Decoding copies the program out of the
+ * buffer, see ProgramCodec.
+ *
+ * Instances can be shared between threads. Two threads asking for the same
+ * program at once may both decode it, only one of the results is kept.
+ */
+public final class ProgramLibrary {
+	/**
+	 * First bytes of a library
+	 */
+	public static final int MAGIC = 0x45564C42;
+
+	/**
+	 * Version of the format written by write, a library of any version up to
+	 * this one can be loaded
+	 */
+	public static final short VERSION = 1;
+
+	private static final int HEADER_SIZE = 12;
+
+	private final ByteBuffer buffer;
+	private final OperatorRegistry registry;
+	private final int size;
+	private final AtomicReferenceArray<CompiledExpression> expressions;
+
+	/**
+	 * Constructor
+	 *
+	 * @param buffer
+	 *            the library, from position 0, little-endian
+	 * @param registry
+	 * @param size
+	 *            number of programs
+	 */
+	private ProgramLibrary(ByteBuffer buffer, OperatorRegistry registry, int size) {
+		this.buffer = buffer;
+		this.registry = registry;
+		this.size = size;
+		this.expressions = new AtomicReferenceArray<CompiledExpression>(size);
+	}
+
+	/**
+	 * Encodes compiled expressions into a library
+	 *
+	 * @param expressions
+	 * @return the library, from position 0 to its limit
+	 */
+	public static ByteBuffer write(List<CompiledExpression> expressions) {
+		long length = HEADER_SIZE + 4L * expressions.size();
+		for (CompiledExpression expression : expressions)
+			length += ProgramCodec.getEncodedSize(expression);
+		if (length > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("A library holds at most 2 GB, got " + length + " bytes");
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.putShort((short) 0);
+		buffer.putInt(expressions.size());
+
+		// Offsets first, the programs follow each other after them
+		int offset = HEADER_SIZE + 4 * expressions.size();
+		for (CompiledExpression expression : expressions) {
+			buffer.putInt(offset);
+			offset += ProgramCodec.getEncodedSize(expression);
+		}
+		for (CompiledExpression expression : expressions)
+			ProgramCodec.encode(expression, buffer);
+
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Loads a library using the operators of the default registry
+	 *
+	 * @param buffer
+	 *            holding the library from its position to its limit, it is
+	 *            used as is and must not be modified afterwards
+	 * @return the library
+	 * @throws IllegalArgumentException
+	 *             if the buffer does not hold a library
+	 */
+	public static ProgramLibrary load(ByteBuffer buffer) {
+		return load(buffer, OperatorRegistry.getDefault());
+	}
+
+	/**
+	 * Loads a library
+	 *
+	 * @param buffer
+	 *            holding the library from its position to its limit, it is
+	 *            used as is and must not be modified afterwards
+	 * @param registry
+	 *            operators and functions the programs may use
+	 * @return the library
+	 * @throws IllegalArgumentException
+	 *             if the buffer does not hold a library
+	 */
+	public static ProgramLibrary load(ByteBuffer buffer, OperatorRegistry registry) {
+		ByteBuffer library = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		if (library.remaining() < HEADER_SIZE || library.getInt(0) != MAGIC)
+			throw new IllegalArgumentException("Not a program library");
+
+		short version = library.getShort(4);
+		if (version < 1 || version > VERSION)
+			throw new IllegalArgumentException("Unsupported library version " + version);
+
+		int size = library.getInt(8);
+		if (size < 0 || HEADER_SIZE + 4L * size > library.remaining())
+			throw new IllegalArgumentException("Truncated or corrupt library");
+
+		return new ProgramLibrary(library, registry, size);
+	}
+
+	/**
+	 * Maps a library file into memory and loads it using the operators of
+	 * the default registry. The pages of a program are only read from the
+	 * file when it is first asked for.
+	 *
+	 * @param file
+	 * @return the library
+	 * @throws IOException
+	 *             if the file can't be read
+	 * @throws IllegalArgumentException
+	 *             if the file does not hold a library
+	 */
+	public static ProgramLibrary map(Path file) throws IOException {
+		return map(file, OperatorRegistry.getDefault());
+	}
+
+	/**
+	 * Maps a library file into memory and loads it. The pages of a program
+	 * are only read from the file when it is first asked for.
+	 *
+	 * @param file
+	 * @param registry
+	 *            operators and functions the programs may use
+	 * @return the library
+	 * @throws IOException
+	 *             if the file can't be read
+	 * @throws IllegalArgumentException
+	 *             if the file does not hold a library
+	 */
+	public static ProgramLibrary map(Path file, OperatorRegistry registry) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// The mapping stays valid once the channel is closed
+			return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), registry);
+		}
+	}
+
+	/**
+	 * Get the number of programs
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get a program, decoding it the first time
+	 *
+	 * @param index
+	 * @return the compiled expression
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no such program
+	 * @throws IllegalArgumentException
+	 *             if the program is corrupt or uses an operator or a function
+	 *             the registry does not have
+	 */
+	public CompiledExpression get(int index) {
+		CompiledExpression expression = expressions.get(index);
+		if (expression != null)
+			return expression;
+
+		int offset = buffer.getInt(HEADER_SIZE + 4 * index);
+		if (offset < HEADER_SIZE + 4 * size || offset >= buffer.limit())
+			throw new IllegalArgumentException("Truncated or corrupt library");
+
+		ByteBuffer program = buffer.duplicate();
+		program.position(offset);
+		expression = ProgramCodec.decode(program, registry);
+
+		return expressions.compareAndSet(index, null, expression) ? expression : expressions.get(index);
+	}
+}
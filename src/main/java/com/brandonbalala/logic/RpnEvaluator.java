@@ -0,0 +1,461 @@
+package com.brandonbalala.logic;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.metrics.EvaluatorMetrics;
+import com.brandonbalala.utility.EvaluatorUtility;
+import com.brandonbalala.utility.MathFunction;
+import com.brandonbalala.utility.Operator;
+import com.brandonbalala.utility.OperatorRegistry;
+
+/**
+ * Evaluates expressions already in postfix notation (RPN) while reading them,
+ * without going through Infix and Postfix. Elements are separated by
+ * whitespace and are:
+ *
+ * <ul>
+ * <li>numbers, such as 5, -0.75 or .5</li>
+ * <li>variables, such as price or -price, given a value by the caller</li>
+ * <li>operators of the registry, applied to the two operands before them</li>
+ * <li>functions of the registry, applied to as many operands as their arity,
+ * or to the count following their name for a function such as max that
+ * accepts several, as in max:3</li>
+ * </ul>
+ *
+ * For example (a+b)*max(c,2,d) is a b + c 2 d max:3 *
+ *
+ * Like Infix, dividing by a literal 0, as in 5 0 / or 5 0 %, is rejected with
+ * DIVIDE_BY_ZERO_MSG, a divisor that only turns out to be 0, such as a
+ * variable or 1 1 -, gives an infinity or NaN.
+ *
+ * Operands are kept as doubles on a primitive stack that grows up to a
+ * maximum depth, no object is created per element when reading a
+ * CharSequence. An instance is not thread safe, it can be reused for any
+ * number of expressions.
+ */
+public class RpnEvaluator {
+	/**
+	 * Most operands waiting on the stack, unless given otherwise
+	 */
+	public static final int DEFAULT_MAX_STACK_DEPTH = 4096;
+
+	private static final int READ_BUFFER_SIZE = 4096;
+
+	private final OperatorRegistry registry;
+	private final int maxStackDepth;
+
+	private double[] stack;
+	private int top;
+	// Whether the last element is the number 0
+	private boolean literalZero;
+	private Map<String, Double> values;
+
+	// Element being read from a Reader or a ByteBuffer, which may span
+	// several reads
+	private final StringBuilder element;
+	private final char[] readBuffer;
+
+	/**
+	 * Constructor
+	 */
+	public RpnEvaluator() {
+		this(OperatorRegistry.getDefault());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param registry
+	 *            operators and functions the expressions may use
+	 */
+	public RpnEvaluator(OperatorRegistry registry) {
+		this(registry, DEFAULT_MAX_STACK_DEPTH);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param registry
+	 *            operators and functions the expressions may use
+	 * @param maxStackDepth
+	 *            most operands waiting on the stack, an expression needing
+	 *            more is rejected
+	 */
+	public RpnEvaluator(OperatorRegistry registry, int maxStackDepth) {
+		if (maxStackDepth < 1)
+			throw new IllegalArgumentException("The stack must hold at least one operand, got " + maxStackDepth);
+
+		this.registry = registry;
+		this.maxStackDepth = maxStackDepth;
+		stack = new double[Math.min(16, maxStackDepth)];
+		top = -1;
+		element = new StringBuilder();
+		readBuffer = new char[READ_BUFFER_SIZE];
+	}
+
+	/**
+	 * Evaluates an expression without variables
+	 *
+	 * @param input
+	 * @return the result
+	 * @throws PostfixParsingException
+	 */
+	public double evaluate(CharSequence input) throws PostfixParsingException {
+		return evaluate(input, null);
+	}
+
+	/**
+	 * Evaluates an expression
+	 *
+	 * @param input
+	 * @param values
+	 *            values of the variables by name, null if there are none
+	 * @return the result
+	 * @throws PostfixParsingException
+	 */
+	public double evaluate(CharSequence input, Map<String, Double> values) throws PostfixParsingException {
+		if (input == null)
+			throwPostfixParsingException(EvaluatorUtility.EMPTY_ERR_MSG);
+
+		long start = begin(values);
+		int elementStart = -1;
+		for (int cntr = 0; cntr < input.length(); cntr++) {
+			if (!Character.isWhitespace(input.charAt(cntr))) {
+				if (elementStart < 0)
+					elementStart = cntr;
+			} else if (elementStart >= 0) {
+				process(input, elementStart, cntr);
+				elementStart = -1;
+			}
+		}
+		if (elementStart >= 0)
+			process(input, elementStart, input.length());
+
+		return end(start);
+	}
+
+	/**
+	 * Evaluates an expression without variables, reading it up to its end.
+	 * The reader is not closed.
+	 *
+	 * @param input
+	 * @return the result
+	 * @throws PostfixParsingException
+	 * @throws IOException
+	 *             if the reader fails
+	 */
+	public double evaluate(Reader input) throws PostfixParsingException, IOException {
+		return evaluate(input, null);
+	}
+
+	/**
+	 * Evaluates an expression, reading it up to its end. The reader is not
+	 * closed.
+	 *
+	 * @param input
+	 * @param values
+	 *            values of the variables by name, null if there are none
+	 * @return the result
+	 * @throws PostfixParsingException
+	 * @throws IOException
+	 *             if the reader fails
+	 */
+	public double evaluate(Reader input, Map<String, Double> values) throws PostfixParsingException, IOException {
+		long start = begin(values);
+		int count;
+		while ((count = input.read(readBuffer)) >= 0)
+			for (int cntr = 0; cntr < count; cntr++)
+				read(readBuffer[cntr]);
+		read(' ');
+
+		return end(start);
+	}
+
+	/**
+	 * Evaluates an expression without variables in ASCII or UTF-8, from the
+	 * position of the buffer to its limit
+	 *
+	 * @param input
+	 * @return the result
+	 * @throws PostfixParsingException
+	 */
+	public double evaluate(ByteBuffer input) throws PostfixParsingException {
+		return evaluate(input, null);
+	}
+
+	/**
+	 * Evaluates an expression in ASCII or UTF-8, from the position of the
+	 * buffer to its limit. The position is moved to the limit, or past the
+	 * element in error.
+	 *
+	 * @param input
+	 * @param values
+	 *            values of the variables by name, null if there are none
+	 * @return the result
+	 * @throws PostfixParsingException
+	 */
+	public double evaluate(ByteBuffer input, Map<String, Double> values) throws PostfixParsingException {
+		long start = begin(values);
+		// Anything that is not ASCII is rejected as an element anyway
+		while (input.hasRemaining())
+			read((char) (input.get() & 0xFF));
+		read(' ');
+
+		return end(start);
+	}
+
+	/**
+	 * Prepares for a new expression
+	 *
+	 * @param values
+	 * @return the start of the timer
+	 */
+	private long begin(Map<String, Double> values) {
+		this.values = values;
+		top = -1;
+		literalZero = false;
+		element.setLength(0);
+		return EvaluatorMetrics.startTimer();
+	}
+
+	/**
+	 * Checks that the expression left a single value
+	 *
+	 * @param start
+	 *            of the timer
+	 * @return the value
+	 * @throws PostfixParsingException
+	 */
+	private double end(long start) throws PostfixParsingException {
+		if (top < 0)
+			throwPostfixParsingException(EvaluatorUtility.EMPTY_ERR_MSG);
+		if (top > 0)
+			throwPostfixParsingException(EvaluatorUtility.OPERANDS_LEFT_ERR_MSG);
+
+		values = null;
+		EvaluatorMetrics.recordPhase(EvaluatorMetrics.Phase.SOLVE, start);
+		return stack[0];
+	}
+
+	/**
+	 * Adds a character to the element being read, processing the element once
+	 * whitespace follows it
+	 *
+	 * @param theChar
+	 * @throws PostfixParsingException
+	 */
+	private void read(char theChar) throws PostfixParsingException {
+		if (!Character.isWhitespace(theChar)) {
+			element.append(theChar);
+		} else if (element.length() > 0) {
+			process(element, 0, element.length());
+			element.setLength(0);
+		}
+	}
+
+	/**
+	 * Applies an element to the stack
+	 *
+	 * @param source
+	 * @param start
+	 *            offset of the first character of the element
+	 * @param end
+	 *            offset following the last character of the element
+	 * @throws PostfixParsingException
+	 */
+	private void process(CharSequence source, int start, int end) throws PostfixParsingException {
+		char first = source.charAt(start);
+		boolean divisorZero = literalZero;
+		literalZero = false;
+
+		if (end - start == 1 && registry.isOperator(first)) {
+			if (top < 1)
+				throwPostfixParsingException(EvaluatorUtility.STACK_UNDERFLOW_ERR_MSG);
+
+			// Check whether trying to divide by zero
+			if (divisorZero && (first == '/' || first == '%'))
+				throwPostfixParsingException(EvaluatorUtility.DIVIDE_BY_ZERO_MSG);
+
+			// Replacing both operands by the result
+			top--;
+			stack[top] = evaluateExpression(registry.get(first), stack[top], stack[top + 1]);
+			return;
+		}
+
+		if (EvaluatorUtility.isNumeric(source, start, end)) {
+			double number = EvaluatorUtility.parseNumber(source, start, end);
+			push(number);
+			literalZero = number == 0.0;
+			return;
+		}
+
+		// A name, negated by a leading -, and a count of arguments for a
+		// function
+		int nameStart = first == '-' ? start + 1 : start;
+		int nameEnd = nameStart;
+		if (nameEnd < end && EvaluatorUtility.isVariableStart(source.charAt(nameEnd))) {
+			do
+				nameEnd++;
+			while (nameEnd < end && EvaluatorUtility.isVariablePart(source.charAt(nameEnd)));
+		}
+
+		if (nameEnd > nameStart && nameStart == start) {
+			MathFunction function = registry.getFunction(source, start, nameEnd);
+			if (function != null) {
+				call(function, nameEnd == end ? -1 : parseArgumentCount(source, nameEnd, end));
+				return;
+			}
+		}
+
+		if (nameEnd > nameStart && nameEnd == end) {
+			double value = getValue(source.subSequence(nameStart, end).toString());
+			push(nameStart == start ? value : -value);
+			return;
+		}
+
+		if ((first >= '0' && first <= '9') || first == '.')
+			throwPostfixParsingException(EvaluatorUtility.NUMBER_FORMAT_ERR_MSG);
+		throwPostfixParsingException(EvaluatorUtility.CHARACTER_ERR_MSG);
+	}
+
+	/**
+	 * Pushes an operand
+	 *
+	 * @param value
+	 * @throws PostfixParsingException
+	 *             if the stack is full
+	 */
+	private void push(double value) throws PostfixParsingException {
+		reserve(top + 1);
+		stack[++top] = value;
+	}
+
+	/**
+	 * Makes room for an operand at an index of the stack
+	 *
+	 * @param index
+	 * @throws PostfixParsingException
+	 *             if the index is past the maximum depth
+	 */
+	private void reserve(int index) throws PostfixParsingException {
+		if (index >= maxStackDepth)
+			throwPostfixParsingException(EvaluatorUtility.STACK_OVERFLOW_ERR_MSG);
+		if (index >= stack.length) {
+			double[] newStack = new double[Math.min(stack.length * 2, maxStackDepth)];
+			System.arraycopy(stack, 0, newStack, 0, stack.length);
+			stack = newStack;
+		}
+	}
+
+	/**
+	 * Replaces the arguments of a function by its result
+	 *
+	 * @param function
+	 * @param argumentCount
+	 *            -1 when not given, only possible for a function of a single
+	 *            arity
+	 * @throws PostfixParsingException
+	 */
+	private void call(MathFunction function, int argumentCount) throws PostfixParsingException {
+		if (argumentCount < 0 && function.getMinArity() == function.getMaxArity())
+			argumentCount = function.getMinArity();
+		if (argumentCount < 0 || !function.acceptsArity(argumentCount))
+			throwPostfixParsingException(EvaluatorUtility.ARITY_ERR_MSG);
+		if (argumentCount > top + 1)
+			throwPostfixParsingException(EvaluatorUtility.STACK_UNDERFLOW_ERR_MSG);
+
+		int offset = top + 1 - argumentCount;
+		reserve(offset);
+		stack[offset] = CompiledExpression.call(function, stack, offset, argumentCount);
+		top = offset;
+	}
+
+	/**
+	 * Parses the count of arguments following the name of a function, such as
+	 * :3
+	 *
+	 * @param source
+	 * @param start
+	 *            offset of the colon
+	 * @param end
+	 *            offset following the last digit
+	 * @return the count
+	 * @throws PostfixParsingException
+	 *             if not a colon followed by up to 9 digits
+	 */
+	private int parseArgumentCount(CharSequence source, int start, int end) throws PostfixParsingException {
+		if (source.charAt(start) != ':' || end - start < 2 || end - start > 10)
+			throwPostfixParsingException(EvaluatorUtility.ARITY_ERR_MSG);
+
+		int count = 0;
+		for (int cntr = start + 1; cntr < end; cntr++) {
+			char theChar = source.charAt(cntr);
+			if (theChar < '0' || theChar > '9')
+				throwPostfixParsingException(EvaluatorUtility.ARITY_ERR_MSG);
+			count = count * 10 + theChar - '0';
+		}
+
+		return count;
+	}
+
+	/**
+	 * Get the value of a variable
+	 *
+	 * @param name
+	 * @return the value
+	 * @throws PostfixParsingException
+	 *             if the variable has no value
+	 */
+	private double getValue(String name) throws PostfixParsingException {
+		if (values == null)
+			throwPostfixParsingException(EvaluatorUtility.VARIABLE_ERR_MSG);
+
+		Double value = values.get(name);
+		if (value == null)
+			throwPostfixParsingException(EvaluatorUtility.UNBOUND_VARIABLE_ERR_MSG);
+
+		return value;
+	}
+
+	/**
+	 * Evaluates an expression of two operands. Addition, subtraction,
+	 * multiplication and division are performed directly, any other operator
+	 * through its function
+	 *
+	 * @param operator
+	 * @param firstOperand
+	 * @param lastOperand
+	 * @return
+	 */
+	private static double evaluateExpression(Operator operator, double firstOperand, double lastOperand) {
+		switch (operator.getId()) {
+		case OperatorRegistry.ADD:
+			return firstOperand + lastOperand;
+		case OperatorRegistry.SUBTRACT:
+			return firstOperand - lastOperand;
+		case OperatorRegistry.MULTIPLY:
+			return firstOperand * lastOperand;
+		case OperatorRegistry.DIVIDE:
+			return firstOperand / lastOperand;
+		default:
+			return operator.apply(firstOperand, lastOperand);
+		}
+	}
+
+	/**
+	 * Throws exception while also forgetting the expression
+	 * @param message
+	 * @throws PostfixParsingException
+	 */
+	private void throwPostfixParsingException(String message) throws PostfixParsingException {
+		top = -1;
+		values = null;
+		element.setLength(0);
+		EvaluatorMetrics.recordFailure(message);
+		throw new PostfixParsingException(message);
+	}
+}
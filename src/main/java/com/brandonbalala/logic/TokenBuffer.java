@@ -0,0 +1,187 @@
+package com.brandonbalala.logic;
+
+import java.util.Arrays;
+
+import com.brandonbalala.utility.EvaluatorUtility;
+
+/**
+ * Compact token stream produced by the InfixLexer. Tokens are not stored as
+ * strings, each token is a kind plus the start and end offsets of its text in
+ * the source expression. The arrays grow as needed and are kept between uses,
+ * so a buffer can be reused for many expressions without allocating.
+ *
+ * Not thread safe, each thread should use its own buffer.
+ */
+public final class TokenBuffer {
+	public static final byte NUMBER = 0;
+	public static final byte OPERATOR = 1;
+	public static final byte OPENING_PARENTHESIS = 2;
+	public static final byte CLOSING_PARENTHESIS = 3;
+	public static final byte VARIABLE = 4;
+	public static final byte FUNCTION = 5;
+	public static final byte COMMA = 6;
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private CharSequence source;
+	private byte[] kinds;
+	private int[] starts;
+	private int[] ends;
+	private int size;
+
+	/**
+	 * Constructor
+	 */
+	public TokenBuffer() {
+		kinds = new byte[DEFAULT_CAPACITY];
+		starts = new int[DEFAULT_CAPACITY];
+		ends = new int[DEFAULT_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * Removes all the tokens and sets the expression the next tokens refer to
+	 *
+	 * @param source
+	 */
+	void reset(CharSequence source) {
+		this.source = source;
+		size = 0;
+	}
+
+	/**
+	 * Grows the arrays so they hold at least the given number of tokens
+	 *
+	 * @param capacity
+	 */
+	void ensureCapacity(int capacity) {
+		if (capacity > kinds.length) {
+			kinds = Arrays.copyOf(kinds, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+		}
+	}
+
+	/**
+	 * Adds a token covering the characters from start (inclusive) to end
+	 * (exclusive) of the source expression
+	 *
+	 * @param kind
+	 * @param start
+	 * @param end
+	 */
+	void add(byte kind, int start, int end) {
+		if (size == kinds.length) {
+			int capacity = size * 2;
+			kinds = Arrays.copyOf(kinds, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+		}
+
+		kinds[size] = kind;
+		starts[size] = start;
+		ends[size] = end;
+		size++;
+	}
+
+	/**
+	 * Changes the kind of a token already added
+	 *
+	 * @param index
+	 * @param kind
+	 */
+	void setKind(int index, byte kind) {
+		kinds[index] = kind;
+	}
+
+	/**
+	 * Get the number of tokens
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the expression the tokens refer to
+	 *
+	 * @return source
+	 */
+	public CharSequence getSource() {
+		return source;
+	}
+
+	/**
+	 * Get the kind of the token at the given index
+	 *
+	 * @param index
+	 * @return one of NUMBER, VARIABLE, OPERATOR, OPENING_PARENTHESIS,
+	 *         CLOSING_PARENTHESIS, FUNCTION or COMMA
+	 */
+	public byte getKind(int index) {
+		return kinds[index];
+	}
+
+	/**
+	 * Get the offset of the first character of the token
+	 *
+	 * @param index
+	 * @return start offset, inclusive
+	 */
+	public int getStart(int index) {
+		return starts[index];
+	}
+
+	/**
+	 * Get the offset following the last character of the token
+	 *
+	 * @param index
+	 * @return end offset, exclusive
+	 */
+	public int getEnd(int index) {
+		return ends[index];
+	}
+
+	/**
+	 * Get the operator character of an OPERATOR token
+	 *
+	 * @param index
+	 * @return the operator character
+	 */
+	public char getOperator(int index) {
+		return source.charAt(starts[index]);
+	}
+
+	/**
+	 * Get the text of the token. Operators, parentheses and commas return the
+	 * shared constants from EvaluatorUtility, only numbers, variables and
+	 * functions create a new string.
+	 *
+	 * @param index
+	 * @return text of the token
+	 */
+	public String getText(int index) {
+		switch (kinds[index]) {
+		case OPENING_PARENTHESIS:
+			return EvaluatorUtility.OPENING_PARENTHESIS;
+		case CLOSING_PARENTHESIS:
+			return EvaluatorUtility.CLOSING_PARENTHESIS;
+		case COMMA:
+			return EvaluatorUtility.ARGUMENT_SEPARATOR;
+		case OPERATOR:
+			switch (getOperator(index)) {
+			case '+':
+				return EvaluatorUtility.ADDITION;
+			case '-':
+				return EvaluatorUtility.SUBTRACTION;
+			case '*':
+				return EvaluatorUtility.MULTIPLICATION;
+			case '/':
+				return EvaluatorUtility.DIVISION;
+			}
+		}
+
+		return source.subSequence(starts[index], ends[index]).toString();
+	}
+}
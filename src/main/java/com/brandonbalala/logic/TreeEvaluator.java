@@ -0,0 +1,480 @@
+package com.brandonbalala.logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.brandonbalala.exception.PostfixParsingException;
+
+/**
+ * Evaluates a single very large expression, such as a machine generated sum of
+ * hundreds of thousands of products, on a ForkJoinPool.
+ *
+ * The postfix program is turned into a balanced tree once. Chains of
+ * additions and subtractions, and chains of multiplications, are flattened
+ * into lists of terms whatever their parentheses, so a+b+c+d is a single
+ * node of four terms instead of three nodes nested into each other. The
+ * terms of a chain are split in halves until a piece holds less than the
+ * threshold of instructions, and the pieces are evaluated in parallel. Any
+ * other operator or call evaluates its large operands in parallel. Every
+ * subexpression smaller than the threshold runs through the interpreter of
+ * CompiledExpression over its own range of the program.
+ *
+ * Reassociating a chain changes the order of the double operations, so the
+ * result may differ from CompiledExpression in its last bits. Compensated
+ * summation keeps the rounding error of a chain of additions independent of
+ * its length, the result is then usually closer to the exact sum than the
+ * one computed left to right.
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public final class TreeEvaluator {
+	static final int DEFAULT_THRESHOLD = 4096;
+
+	// Deepest nesting of nodes split further, a deeper node is evaluated
+	// sequentially
+	private static final int MAX_DEPTH = 256;
+
+	private static final double[] NO_BINDINGS = new double[0];
+
+	private final CompiledExpression expression;
+	private final ForkJoinPool pool;
+	private final int threshold;
+	private final boolean compensated;
+
+	// First instruction of the subexpression ending at every instruction
+	private final int[] starts;
+	private final Node root;
+
+	/**
+	 * Constructor, uses the common pool and plain summation
+	 *
+	 * @param expression
+	 */
+	public TreeEvaluator(CompiledExpression expression) {
+		this(expression, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD, false);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param expression
+	 * @param pool
+	 * @param threshold
+	 *            number of instructions below which a piece is not split
+	 *            anymore
+	 * @param compensated
+	 *            true to add the terms of a chain with compensated (Kahan)
+	 *            summation
+	 */
+	public TreeEvaluator(CompiledExpression expression, ForkJoinPool pool, int threshold, boolean compensated) {
+		if (threshold < 1)
+			throw new IllegalArgumentException("The threshold must be at least 1, got " + threshold);
+
+		this.expression = expression;
+		this.pool = pool;
+		this.threshold = threshold;
+		this.compensated = compensated;
+
+		int[] code = expression.getCode();
+		starts = new int[code.length];
+		for (int cntr = 0; cntr < code.length; cntr++) {
+			switch (code[cntr] & CompiledExpression.OPCODE_MASK) {
+			case CompiledExpression.PUSH_CONSTANT:
+			case CompiledExpression.PUSH_VARIABLE:
+			case CompiledExpression.PUSH_NEGATED_VARIABLE:
+				starts[cntr] = cntr;
+				break;
+			case CompiledExpression.CALL:
+				// The arguments end right before the call, each one right
+				// before the start of the next one
+				int start = cntr;
+				for (int argument = CompiledExpression.getArgumentCount(code[cntr]); argument > 0; argument--)
+					start = starts[start - 1];
+				starts[cntr] = start;
+				break;
+			default:
+				starts[cntr] = starts[starts[cntr - 1] - 1];
+			}
+		}
+
+		root = build(code.length - 1, 0);
+	}
+
+	/**
+	 * Compiles the postfix queue of an already parsed Postfix into a tree
+	 * evaluator using the common pool and plain summation
+	 *
+	 * @param postfix
+	 * @return the tree evaluator
+	 * @throws PostfixParsingException
+	 *             if no postfix expression has been set on the Postfix
+	 */
+	public static TreeEvaluator build(Postfix postfix) throws PostfixParsingException {
+		return new TreeEvaluator(CompiledExpression.compile(postfix));
+	}
+
+	/**
+	 * Get the compiled expression
+	 *
+	 * @return expression
+	 */
+	public CompiledExpression getExpression() {
+		return expression;
+	}
+
+	/**
+	 * Check whether chains of additions use compensated summation
+	 *
+	 * @return compensated
+	 */
+	public boolean isCompensated() {
+		return compensated;
+	}
+
+	/**
+	 * Evaluates an expression without variables
+	 *
+	 * @return the result
+	 */
+	public double evaluate() {
+		return evaluate(NO_BINDINGS);
+	}
+
+	/**
+	 * Evaluates the expression, in parallel when it is larger than the
+	 * threshold
+	 *
+	 * @param bindings
+	 *            values of the variables, indexed by slot
+	 * @return the result
+	 */
+	public double evaluate(double[] bindings) {
+		if (bindings.length < expression.getVariableCount())
+			throw new IllegalArgumentException(
+					"Expected " + expression.getVariableCount() + " bindings, got " + bindings.length);
+
+		// Small enough to be evaluated as is
+		if (root instanceof Range)
+			return expression.evaluate(bindings);
+
+		NodeTask task = new NodeTask(root, bindings);
+		pool.invoke(task);
+		return task.value;
+	}
+
+	/**
+	 * Builds the node of the subexpression ending at an instruction
+	 *
+	 * @param end
+	 *            index of the last instruction of the subexpression
+	 * @param depth
+	 *            nesting of the node
+	 * @return the node
+	 */
+	private Node build(int end, int depth) {
+		int[] code = expression.getCode();
+		int opcode = code[end] & CompiledExpression.OPCODE_MASK;
+
+		if (end - starts[end] + 1 <= threshold || depth > MAX_DEPTH)
+			return new Range(starts[end], end + 1);
+
+		if (opcode == CompiledExpression.ADD || opcode == CompiledExpression.SUBTRACT
+				|| opcode == CompiledExpression.MULTIPLY)
+			return buildChain(end, depth);
+
+		// The operands end right before the operator, each one right before
+		// the start of the next one
+		int count = opcode == CompiledExpression.CALL ? CompiledExpression.getArgumentCount(code[end]) : 2;
+		Node[] operands = new Node[count];
+		int operandEnd = end - 1;
+		for (int cntr = count - 1; cntr >= 0; cntr--) {
+			operands[cntr] = build(operandEnd, depth + 1);
+			operandEnd = starts[operandEnd] - 1;
+		}
+
+		return new Operation(code[end], operands);
+	}
+
+	/**
+	 * Flattens a chain of additions and subtractions, or of multiplications,
+	 * into the list of its terms
+	 *
+	 * @param end
+	 *            index of the operator at the top of the chain
+	 * @param depth
+	 *            nesting of the node
+	 * @return the node
+	 */
+	private Chain buildChain(int end, int depth) {
+		int[] code = expression.getCode();
+		boolean sum = (code[end] & CompiledExpression.OPCODE_MASK) != CompiledExpression.MULTIPLY;
+
+		List<Integer> termEnds = new ArrayList<Integer>();
+		List<Boolean> termNegations = new ArrayList<Boolean>();
+
+		// Depth first from the left operand, a subtracted operand has the
+		// sign of its terms flipped
+		Deque<Integer> pending = new ArrayDeque<Integer>();
+		Deque<Boolean> pendingNegations = new ArrayDeque<Boolean>();
+		pending.push(end);
+		pendingNegations.push(false);
+
+		while (!pending.isEmpty()) {
+			int node = pending.pop();
+			boolean negated = pendingNegations.pop();
+			int opcode = code[node] & CompiledExpression.OPCODE_MASK;
+
+			if (sum ? opcode == CompiledExpression.ADD || opcode == CompiledExpression.SUBTRACT
+					: opcode == CompiledExpression.MULTIPLY) {
+				int right = node - 1;
+				pending.push(right);
+				pendingNegations.push(opcode == CompiledExpression.SUBTRACT ? !negated : negated);
+				pending.push(starts[right] - 1);
+				pendingNegations.push(negated);
+			} else {
+				termEnds.add(node);
+				termNegations.add(negated);
+			}
+		}
+
+		int count = termEnds.size();
+		int[] termStarts = new int[count];
+		int[] ends = new int[count];
+		boolean[] negations = new boolean[count];
+		Node[] terms = new Node[count];
+		int[] sizes = new int[count + 1];
+
+		for (int cntr = 0; cntr < count; cntr++) {
+			int termEnd = termEnds.get(cntr);
+			termStarts[cntr] = starts[termEnd];
+			ends[cntr] = termEnd + 1;
+			negations[cntr] = termNegations.get(cntr);
+			sizes[cntr + 1] = sizes[cntr] + ends[cntr] - termStarts[cntr];
+
+			// Only the terms large enough to be split have their own node
+			if (ends[cntr] - termStarts[cntr] > threshold)
+				terms[cntr] = build(termEnd, depth + 1);
+		}
+
+		return new Chain(sum, termStarts, ends, negations, terms, sizes);
+	}
+
+	/**
+	 * Node of the balanced tree
+	 */
+	private abstract static class Node {
+		/**
+		 * Evaluates the node
+		 *
+		 * @param bindings
+		 * @param stack
+		 *            operand stack of the current thread, of at least the
+		 *            stack depth of the expression
+		 * @return the value
+		 */
+		abstract double evaluate(double[] bindings, double[] stack);
+	}
+
+	/**
+	 * Subexpression run by the interpreter over its range of the program
+	 */
+	private final class Range extends Node {
+		private final int from;
+		private final int to;
+
+		private Range(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		double evaluate(double[] bindings, double[] stack) {
+			return expression.interpret(bindings, stack, from, to);
+		}
+	}
+
+	/**
+	 * Operator or call whose operands are evaluated in parallel
+	 */
+	private final class Operation extends Node {
+		private final int instruction;
+		private final Node[] operands;
+
+		private Operation(int instruction, Node[] operands) {
+			this.instruction = instruction;
+			this.operands = operands;
+		}
+
+		@Override
+		double evaluate(double[] bindings, double[] stack) {
+			NodeTask[] tasks = new NodeTask[operands.length];
+			for (int cntr = 0; cntr < operands.length; cntr++)
+				tasks[cntr] = new NodeTask(operands[cntr], bindings);
+			RecursiveAction.invokeAll(tasks);
+
+			if ((instruction & CompiledExpression.OPCODE_MASK) != CompiledExpression.CALL)
+				return expression.apply(instruction, tasks[0].value, tasks[1].value);
+
+			double[] values = new double[tasks.length];
+			for (int cntr = 0; cntr < tasks.length; cntr++)
+				values[cntr] = tasks[cntr].value;
+			return CompiledExpression.call(expression.getFunction(instruction), values, 0, values.length);
+		}
+	}
+
+	/**
+	 * Flattened chain of additions and subtractions, or of multiplications
+	 */
+	private final class Chain extends Node {
+		private final boolean sum;
+		private final int[] starts;
+		private final int[] ends;
+		private final boolean[] negations;
+		private final Node[] terms;
+
+		// Number of instructions of the terms before every term
+		private final int[] sizes;
+
+		private Chain(boolean sum, int[] starts, int[] ends, boolean[] negations, Node[] terms, int[] sizes) {
+			this.sum = sum;
+			this.starts = starts;
+			this.ends = ends;
+			this.negations = negations;
+			this.terms = terms;
+			this.sizes = sizes;
+		}
+
+		@Override
+		double evaluate(double[] bindings, double[] stack) {
+			ChainTask task = new ChainTask(this, 0, terms.length, bindings);
+			task.invoke();
+
+			// Adding a zero compensation would turn -0 into 0
+			return task.compensation == 0 ? task.value : task.value + task.compensation;
+		}
+
+		/**
+		 * Evaluates a range of the terms on the current thread
+		 *
+		 * @param task
+		 *            receives the sum or the product of the range
+		 * @param from
+		 * @param to
+		 * @param bindings
+		 * @param stack
+		 */
+		private void evaluate(ChainTask task, int from, int to, double[] bindings, double[] stack) {
+			double value = sum ? 0 : 1;
+			double compensation = 0;
+
+			for (int cntr = from; cntr < to; cntr++) {
+				double term = terms[cntr] != null ? terms[cntr].evaluate(bindings, stack)
+						: expression.interpret(bindings, stack, starts[cntr], ends[cntr]);
+
+				if (!sum) {
+					value *= term;
+				} else if (cntr == from) {
+					// Starts from the term itself, so that -0 stays -0
+					value = negations[cntr] ? -term : term;
+				} else if (!compensated) {
+					value += negations[cntr] ? -term : term;
+				} else {
+					double next = value + (negations[cntr] ? -term : term);
+					compensation += error(value, negations[cntr] ? -term : term, next);
+					value = next;
+				}
+			}
+
+			task.value = value;
+			task.compensation = compensation;
+		}
+	}
+
+	/**
+	 * Get the rounding error of an addition, as in the Kahan-Babuska variant of
+	 * compensated summation that also holds when the term is larger than the
+	 * running sum
+	 *
+	 * @param sum
+	 * @param term
+	 * @param result
+	 *            sum + term
+	 * @return the part of the exact sum lost by the rounding
+	 */
+	private static double error(double sum, double term, double result) {
+		if (Math.abs(sum) >= Math.abs(term))
+			return (sum - result) + term;
+
+		return (term - result) + sum;
+	}
+
+	/**
+	 * Evaluates a node on a worker of the pool
+	 */
+	private final class NodeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Node node;
+		private final double[] bindings;
+		private double value;
+
+		private NodeTask(Node node, double[] bindings) {
+			this.node = node;
+			this.bindings = bindings;
+		}
+
+		@Override
+		protected void compute() {
+			value = node.evaluate(bindings, new double[expression.getMaxStackDepth()]);
+		}
+	}
+
+	/**
+	 * Evaluates a range of the terms of a chain, split in halves until small
+	 * enough. The sum of a range is kept with its compensation until the
+	 * whole chain is added.
+	 */
+	private final class ChainTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Chain chain;
+		private final int from;
+		private final int to;
+		private final double[] bindings;
+		private double value;
+		private double compensation;
+
+		private ChainTask(Chain chain, int from, int to, double[] bindings) {
+			this.chain = chain;
+			this.from = from;
+			this.to = to;
+			this.bindings = bindings;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1 || chain.sizes[to] - chain.sizes[from] <= threshold) {
+				chain.evaluate(this, from, to, bindings, new double[expression.getMaxStackDepth()]);
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			ChainTask left = new ChainTask(chain, from, middle, bindings);
+			ChainTask right = new ChainTask(chain, middle, to, bindings);
+			invokeAll(left, right);
+
+			if (!chain.sum) {
+				value = left.value * right.value;
+			} else if (!compensated) {
+				value = left.value + right.value;
+			} else {
+				value = left.value + right.value;
+				compensation = left.compensation + right.compensation + error(left.value, right.value, value);
+			}
+		}
+	}
+}
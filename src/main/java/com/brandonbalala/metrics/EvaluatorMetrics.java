@@ -0,0 +1,197 @@
+package com.brandonbalala.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings and counters of the parsing and solving of expressions, for every
+ * thread of the application.
+ *
+ * Metrics are only recorded when the JVM is started with
+ * -Dcom.brandonbalala.metrics=true. The flag is a constant, so when it is off
+ * the JIT removes every call to this class from the parser and the solver,
+ * System.nanoTime() included.
+ *
+ * Every phase records its duration in nanoseconds into a histogram, only when
+ * it succeeds. Every parse records the number of tokens of the expression and
+ * the depth of the operand stack of its program. Every failure counts its
+ * message, which is one of the messages of EvaluatorUtility.
+ */
+public final class EvaluatorMetrics {
+	/**
+	 * Whether metrics are recorded
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean("com.brandonbalala.metrics");
+
+	/**
+	 * Timed steps from an infix string to its value
+	 */
+	public enum Phase {
+		/** Validating the characters and splitting the infix string into tokens */
+		TOKENIZE,
+		/** Validating the order of the tokens and reordering them to postfix */
+		PARSE,
+		/** Solving the postfix program */
+		SOLVE
+	}
+
+	private static final Map<Phase, Histogram> PHASES = new EnumMap<Phase, Histogram>(Phase.class);
+	private static final Histogram TOKENS = new Histogram();
+	private static final Histogram STACK_DEPTHS = new Histogram();
+	private static final ConcurrentMap<String, LongAdder> FAILURES = new ConcurrentHashMap<String, LongAdder>();
+
+	static {
+		for (Phase phase : Phase.values())
+			PHASES.put(phase, new Histogram());
+	}
+
+	private EvaluatorMetrics() {
+	}
+
+	/**
+	 * Get the start time of a phase
+	 *
+	 * @return the current time in nanoseconds, 0 when metrics are off
+	 */
+	public static long startTimer() {
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the duration of a phase that succeeded
+	 *
+	 * @param phase
+	 * @param start
+	 *            time returned by startTimer when the phase started
+	 */
+	public static void recordPhase(Phase phase, long start) {
+		if (ENABLED)
+			PHASES.get(phase).record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Records the size of an expression that was parsed
+	 *
+	 * @param tokenCount
+	 *            number of tokens of the infix expression
+	 * @param stackDepth
+	 *            most operands on the stack while solving its program
+	 */
+	public static void recordParse(int tokenCount, int stackDepth) {
+		if (ENABLED) {
+			TOKENS.record(tokenCount);
+			STACK_DEPTHS.record(stackDepth);
+		}
+	}
+
+	/**
+	 * Counts a failure
+	 *
+	 * @param message
+	 *            message of the exception
+	 */
+	public static void recordFailure(String message) {
+		if (ENABLED)
+			FAILURES.computeIfAbsent(String.valueOf(message), key -> new LongAdder()).increment();
+	}
+
+	/**
+	 * Copies every metric recorded since the start or the last reset
+	 *
+	 * @return the snapshot, empty when metrics are off
+	 */
+	public static Snapshot snapshot() {
+		Map<Phase, Histogram.Snapshot> phases = new EnumMap<Phase, Histogram.Snapshot>(Phase.class);
+		for (Map.Entry<Phase, Histogram> entry : PHASES.entrySet())
+			phases.put(entry.getKey(), entry.getValue().snapshot());
+
+		Map<String, Long> failures = new TreeMap<String, Long>();
+		for (Map.Entry<String, LongAdder> entry : FAILURES.entrySet())
+			failures.put(entry.getKey(), entry.getValue().sum());
+
+		return new Snapshot(phases, TOKENS.snapshot(), STACK_DEPTHS.snapshot(), failures);
+	}
+
+	/**
+	 * Forgets every metric recorded. Values recorded by other threads while
+	 * resetting may be kept.
+	 */
+	public static void reset() {
+		for (Histogram histogram : PHASES.values())
+			histogram.reset();
+		TOKENS.reset();
+		STACK_DEPTHS.reset();
+		FAILURES.clear();
+	}
+
+	/**
+	 * Metrics at one point in time
+	 */
+	public static final class Snapshot {
+		private final Map<Phase, Histogram.Snapshot> phases;
+		private final Histogram.Snapshot tokens;
+		private final Histogram.Snapshot stackDepths;
+		private final Map<String, Long> failures;
+
+		private Snapshot(Map<Phase, Histogram.Snapshot> phases, Histogram.Snapshot tokens,
+				Histogram.Snapshot stackDepths, Map<String, Long> failures) {
+			this.phases = phases;
+			this.tokens = tokens;
+			this.stackDepths = stackDepths;
+			this.failures = Collections.unmodifiableMap(failures);
+		}
+
+		/**
+		 * Get the durations of a phase
+		 *
+		 * @param phase
+		 * @return the durations in nanoseconds
+		 */
+		public Histogram.Snapshot getPhase(Phase phase) {
+			return phases.get(phase);
+		}
+
+		/**
+		 * Get the number of tokens of the expressions parsed
+		 *
+		 * @return tokens
+		 */
+		public Histogram.Snapshot getTokens() {
+			return tokens;
+		}
+
+		/**
+		 * Get the operand stack depths of the expressions parsed
+		 *
+		 * @return stackDepths
+		 */
+		public Histogram.Snapshot getStackDepths() {
+			return stackDepths;
+		}
+
+		/**
+		 * Get the number of failures of a message
+		 *
+		 * @param message
+		 * @return the count
+		 */
+		public long getFailureCount(String message) {
+			Long count = failures.get(message);
+			return count == null ? 0 : count;
+		}
+
+		/**
+		 * Get the number of failures of every message that failed
+		 *
+		 * @return the counts by message
+		 */
+		public Map<String, Long> getFailures() {
+			return failures;
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package com.brandonbalala.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of non negative values, such as latencies in nanoseconds, in
+ * log-linear buckets like an HDR histogram. Values below 32 have a bucket of
+ * their own, every larger power of two is split in 16 buckets of the same
+ * width, so any value is known within 1/16 of itself whatever its magnitude
+ * and the whole range of long fits in 960 buckets.
+ *
+ * Recording is lock free and can be done from any number of threads. A
+ * snapshot taken while values are recorded may miss the latest ones.
+ */
+public final class Histogram {
+	// Values with a bucket of their own, and buckets of every power of two
+	// above them
+	private static final int EXACT_BUCKETS = 32;
+	private static final int SUB_BUCKETS = 16;
+	private static final int SUB_BUCKET_BITS = 4;
+	static final int BUCKET_COUNT = EXACT_BUCKETS + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a value, a negative value is recorded as 0
+	 *
+	 * @param value
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+
+		counts.incrementAndGet(getBucket(value));
+		total.addAndGet(value);
+
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value))
+			current = max.get();
+	}
+
+	/**
+	 * Forgets every recorded value
+	 */
+	public void reset() {
+		for (int cntr = 0; cntr < BUCKET_COUNT; cntr++)
+			counts.set(cntr, 0);
+		total.set(0);
+		max.set(0);
+	}
+
+	/**
+	 * Copies the recorded values
+	 *
+	 * @return the snapshot
+	 */
+	public Snapshot snapshot() {
+		long[] copy = new long[BUCKET_COUNT];
+		for (int cntr = 0; cntr < BUCKET_COUNT; cntr++)
+			copy[cntr] = counts.get(cntr);
+
+		return new Snapshot(copy, total.get(), max.get());
+	}
+
+	/**
+	 * Get the bucket of a value
+	 *
+	 * @param value
+	 * @return the index of the bucket
+	 */
+	static int getBucket(long value) {
+		if (value < EXACT_BUCKETS)
+			return (int) value;
+
+		// The 5 highest bits of the value, the first one always set
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int mantissa = (int) (value >>> shift);
+		return EXACT_BUCKETS + (shift - 1) * SUB_BUCKETS + mantissa - SUB_BUCKETS;
+	}
+
+	/**
+	 * Get the lowest value of a bucket
+	 *
+	 * @param bucket
+	 * @return the value
+	 */
+	static long getLowestValue(int bucket) {
+		if (bucket < EXACT_BUCKETS)
+			return bucket;
+
+		int shift = (bucket - EXACT_BUCKETS) / SUB_BUCKETS + 1;
+		long mantissa = (bucket - EXACT_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+		return mantissa << shift;
+	}
+
+	/**
+	 * Get the highest value of a bucket
+	 *
+	 * @param bucket
+	 * @return the value
+	 */
+	static long getHighestValue(int bucket) {
+		return bucket + 1 == BUCKET_COUNT ? Long.MAX_VALUE : getLowestValue(bucket + 1) - 1;
+	}
+
+	/**
+	 * Recorded values of a histogram at one point in time
+	 */
+	public static final class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long total;
+		private final long max;
+
+		private Snapshot(long[] counts, long total, long max) {
+			long count = 0;
+			for (long bucketCount : counts)
+				count += bucketCount;
+
+			this.counts = counts;
+			this.count = count;
+			this.total = total;
+			this.max = max;
+		}
+
+		/**
+		 * Get the number of values recorded
+		 *
+		 * @return count
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Get the mean of the values
+		 *
+		 * @return the mean, 0 without values
+		 */
+		public double getMean() {
+			return count == 0 ? 0 : (double) total / count;
+		}
+
+		/**
+		 * Get the largest value recorded
+		 *
+		 * @return max, 0 without values
+		 */
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * Get the value below which the given percentage of the values are,
+		 * within the precision of a bucket
+		 *
+		 * @param percentile
+		 *            between 0 and 100
+		 * @return the highest value of the bucket holding the percentile, never
+		 *         more than the largest value recorded, 0 without values
+		 */
+		public long getValueAtPercentile(double percentile) {
+			if (percentile < 0 || percentile > 100)
+				throw new IllegalArgumentException("The percentile must be between 0 and 100, got " + percentile);
+			if (count == 0)
+				return 0;
+
+			// Rank of the value, the first one for the 0th percentile
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+			long seen = 0;
+			for (int bucket = 0; bucket < counts.length; bucket++) {
+				seen += counts[bucket];
+				if (seen >= rank)
+					return Math.min(getHighestValue(bucket), max);
+			}
+
+			return max;
+		}
+
+		/**
+		 * Get the number of values recorded between two values, within the
+		 * precision of a bucket
+		 *
+		 * @param from
+		 * @param to
+		 *            included
+		 * @return the number of values in the buckets holding the range
+		 */
+		public long getCountBetween(long from, long to) {
+			long result = 0;
+			for (int bucket = getBucket(Math.max(0, from)); bucket <= getBucket(Math.max(0, to)); bucket++)
+				result += counts[bucket];
+
+			return result;
+		}
+	}
+}
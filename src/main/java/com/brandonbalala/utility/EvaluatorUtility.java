@@ -1,32 +1,44 @@
 package com.brandonbalala.utility;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
-
 public final class EvaluatorUtility {
-	private static final String OPENING_PARENTHESIS = "(";
-	private static final String CLOSING_PARENTHESIS = ")";
+	public static final String OPENING_PARENTHESIS = "(";
+	public static final String CLOSING_PARENTHESIS = ")";
 	public static final String ADDITION = "+";
 	public static final String SUBTRACTION = "-";
 	public static final String MULTIPLICATION = "*";
 	public static final String DIVISION = "/";
 	public static final String DECIMAL_POINT = ".";
-	private static final Set<String> OPERATORS = new HashSet<String>(
-			Arrays.asList(new String[] { ADDITION, SUBTRACTION, MULTIPLICATION, DIVISION }));
+	public static final String ARGUMENT_SEPARATOR = ",";
 
 	public static final String STARTING_ERR_MSG = "Invalid expression, can't start expression with an operator or a closing parenthesis";
 	public static final String ENDING_ERR_MSG = "Invalid expression, can't end expression with an operator or an opening parenthesis";
 	public static final String OPERATOR_ERR_MSG = "Invalid expression, an operator can't proceed another operator or an opening parenthesis";
 	public static final String OPENING_PARENTHESIS_ERR_MSG = "Invalid expression, an opening parenthesis can't proceed a number or an closing parenthesis";
 	public static final String CLOSING_PARENTHESIS_ERR_MSG = "Invalid expression, a closing parenthesis can't proceed an operator or an opening parenthesis";
-	public static final String CHARACTER_ERR_MSG = "Invalid expression. Can only be composed of numbers, operators and parentheses";
+	public static final String CHARACTER_ERR_MSG = "Invalid expression. Can only be composed of numbers, variables, operators and parentheses";
 	public static final String PARENTHESES_ERR_MSG = "Invalid expression, misuse of parentheses";
 	public static final String NUMBER_ERR_MSG = "Invalid expression, a number can't proceed a closing parenthesis";
+	public static final String OPERAND_ERR_MSG = "Invalid expression, an operand can't proceed another operand";
 	public static final String NUMBER_FORMAT_ERR_MSG = "Invalid expression, invalid format for a number";
 	public static final String EMPTY_ERR_MSG = "Invalid expression, passed a null or an empty string";
 	public static final String SOLVE_ERROR_MSG = "No postfix expression has been set on this instance";
 	public static final String DIVIDE_BY_ZERO_MSG = "Can not divide by 0";
+	public static final String VARIABLE_ERR_MSG = "Can not solve an expression with variables, compile it and bind the values of the variables";
+	public static final String ARGUMENT_ERR_MSG = "Invalid expression, a comma can only separate the arguments of a function";
+	public static final String ARITY_ERR_MSG = "Invalid expression, wrong number of arguments for the function";
+	public static final String CIRCULAR_REFERENCE_ERR_MSG = "Invalid formula, a cell can't refer to itself directly or through other cells";
+	public static final String CELL_NAME_ERR_MSG = "Invalid cell name, must be a variable name";
+	public static final String STACK_UNDERFLOW_ERR_MSG = "Invalid postfix expression, not enough operands for an operator or a function";
+	public static final String STACK_OVERFLOW_ERR_MSG = "Invalid postfix expression, too many operands waiting on the stack";
+	public static final String OPERANDS_LEFT_ERR_MSG = "Invalid postfix expression, operands left without an operator";
+	public static final String UNBOUND_VARIABLE_ERR_MSG = "Can not solve an expression with a variable that has no value";
+	public static final String EXACT_ERR_MSG = "Can not evaluate exactly an operator or a function that only has a double implementation";
+
+	// Largest number of digits that always fits exactly in a double
+	private static final int MAX_EXACT_DIGITS = 15;
+	// Every power of ten that is exactly representable as a double
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
 	
 
 	/**
@@ -35,25 +47,160 @@ public final class EvaluatorUtility {
 	 * @return true if numeric, false otherwise
 	 */
 	public static boolean isNumeric(String string) {
-		  try  
-		  {  
-		    double d = Double.parseDouble(string);  
-		  }  
-		  catch(NumberFormatException nfe)  
-		  {  
-		    return false;  
-		  }  
-		  return true; 
+		return string != null && isNumeric(string, 0, string.length());
+	}
+
+	/**
+	 * Check that the characters from start (inclusive) to end (exclusive) are
+	 * a numeric/operand. Accepted numbers are an optional sign followed by
+	 * digits with at most one decimal point, with at least one digit, for
+	 * example 5, -0.75, 2. or .5
+	 * Does not create any object and does not throw, unlike Double.parseDouble
+	 * @param chars
+	 * @param start
+	 * @param end
+	 * @return true if numeric, false otherwise
+	 */
+	public static boolean isNumeric(CharSequence chars, int start, int end) {
+		int cntr = start;
+		if (cntr < end && (chars.charAt(cntr) == '-' || chars.charAt(cntr) == '+'))
+			cntr++;
+
+		int digits = 0;
+		boolean decimalPoint = false;
+		for (; cntr < end; cntr++) {
+			char theChar = chars.charAt(cntr);
+
+			if (theChar >= '0' && theChar <= '9') {
+				digits++;
+			} else if (theChar == '.' && !decimalPoint) {
+				decimalPoint = true;
+			} else {
+				return false;
+			}
+		}
+
+		return digits > 0;
+	}
+
+	/**
+	 * Check that given string parameter is a variable, a name made of
+	 * letters, digits and underscores that does not start with a digit. A
+	 * leading - negates the variable, for example -price
+	 * @param string
+	 * @return true if variable, false otherwise
+	 */
+	public static boolean isVariable(String string) {
+		if (string == null)
+			return false;
+
+		int start = string.startsWith(SUBTRACTION) ? 1 : 0;
+		if (start == string.length() || !isVariableStart(string.charAt(start)))
+			return false;
+
+		for (int cntr = start + 1; cntr < string.length(); cntr++) {
+			if (!isVariablePart(string.charAt(cntr)))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Check that the given character can start a variable name
+	 * @param theChar
+	 * @return true if letter or underscore, false otherwise
+	 */
+	public static boolean isVariableStart(char theChar) {
+		return (theChar >= 'a' && theChar <= 'z') || (theChar >= 'A' && theChar <= 'Z') || theChar == '_';
+	}
+
+	/**
+	 * Check that the given character can be part of a variable name
+	 * @param theChar
+	 * @return true if letter, digit or underscore, false otherwise
+	 */
+	public static boolean isVariablePart(char theChar) {
+		return isVariableStart(theChar) || (theChar >= '0' && theChar <= '9');
+	}
+
+	/**
+	 * Parses the number from start (inclusive) to end (exclusive) straight to
+	 * a double, without creating an intermediate string. Numbers of up to 15
+	 * significant digits are computed exactly, anything longer falls back to
+	 * Double.parseDouble so the result is always the same as
+	 * Double.parseDouble
+	 * @param chars
+	 * @param start
+	 * @param end
+	 * @return the value of the number
+	 * @throws NumberFormatException if not a numeric
+	 */
+	public static double parseNumber(CharSequence chars, int start, int end) {
+		int cntr = start;
+		boolean negative = false;
+		if (cntr < end && (chars.charAt(cntr) == '-' || chars.charAt(cntr) == '+')) {
+			negative = chars.charAt(cntr) == '-';
+			cntr++;
+		}
+
+		long mantissa = 0;
+		int significantDigits = 0;
+		int fractionDigits = 0;
+		boolean anyDigit = false;
+		boolean decimalPoint = false;
+		for (; cntr < end; cntr++) {
+			char theChar = chars.charAt(cntr);
+
+			if (theChar >= '0' && theChar <= '9') {
+				anyDigit = true;
+				if (decimalPoint)
+					fractionDigits++;
+
+				// Leading zeros are not significant
+				if (mantissa == 0 && theChar == '0')
+					continue;
+
+				if (significantDigits == MAX_EXACT_DIGITS)
+					return Double.parseDouble(chars.subSequence(start, end).toString());
+
+				mantissa = mantissa * 10 + (theChar - '0');
+				significantDigits++;
+			} else if (theChar == '.' && !decimalPoint) {
+				decimalPoint = true;
+			} else {
+				// Let Double.parseDouble report the error
+				return Double.parseDouble(chars.subSequence(start, end).toString());
+			}
+		}
+
+		if (!anyDigit || fractionDigits >= POWERS_OF_TEN.length)
+			return Double.parseDouble(chars.subSequence(start, end).toString());
+
+		// Both values are exact doubles so the division is correctly rounded
+		double value = mantissa / POWERS_OF_TEN[fractionDigits];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses the given numeric string, see parseNumber(CharSequence, int, int)
+	 * @param string
+	 * @return the value of the number
+	 * @throws NumberFormatException if not a numeric
+	 */
+	public static double parseNumber(String string) {
+		return parseNumber(string, 0, string.length());
 	}
 	
 	
 	/**
-	 * Check that given string parameter is an operator
+	 * Check that given string parameter is one of the operators of the default
+	 * registry
 	 * @param string
 	 * @return true if operator, false otherwise
 	 */
 	public static boolean isOperator(String string) {
-		return OPERATORS.contains(string);
+		return string != null && string.length() == 1 && OperatorRegistry.getDefault().isOperator(string.charAt(0));
 	}
 
 	/**
@@ -119,6 +266,15 @@ public final class EvaluatorUtility {
 		return string.equals(DIVISION);
 	}
 	
+	/**
+	 * Check that given string parameter separates the arguments of a function
+	 * @param string
+	 * @return true if argument separator, false otherwise
+	 */
+	public static boolean isArgumentSeparator(String string) {
+		return string.equals(ARGUMENT_SEPARATOR);
+	}
+	
 	/**
 	 * Check that given string parameter is a decimal point
 	 * @param string
@@ -129,20 +285,26 @@ public final class EvaluatorUtility {
 	}
 	
 	/**
-	 * Returns the operator precedence.
+	 * Returns the operator precedence in the default registry.
 	 * @param operator
 	 * @return integer representation of the operator precedence
 	 * 				returns -1 if not an operator
 	 */
 	public static int getOperatorPrecedence(String operator) {
-		if(isAddition(operator) || isSubtraction(operator)){
-			return 1;
-		}
-		
-		if(isMultiplication(operator) || isDivision(operator)){
-			return 2;
+		if (!isOperator(operator)) {
+			return -1;
 		}
 		
-		return -1;
+		return getOperatorPrecedence(operator.charAt(0));
+	}
+	
+	/**
+	 * Returns the precedence of an operator character in the default registry.
+	 * @param operator
+	 * @return integer representation of the operator precedence
+	 * 				returns -1 if not an operator
+	 */
+	public static int getOperatorPrecedence(char operator) {
+		return OperatorRegistry.getDefault().getPrecedence(operator);
 	}
-}
+}
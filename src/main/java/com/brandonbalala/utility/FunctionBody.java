@@ -0,0 +1,25 @@
+package com.brandonbalala.utility;
+
+/**
+ * Implementation of a function registered in an OperatorRegistry. The
+ * arguments are read straight from the operand stack of the evaluator, so a
+ * call neither boxes its arguments nor allocates an array for them.
+ */
+@FunctionalInterface
+public interface FunctionBody {
+	/**
+	 * Computes the function
+	 *
+	 * @param arguments
+	 *            holds the arguments from offset to offset + count - 1, in the
+	 *            order they are written. Must not be modified nor kept after
+	 *            returning.
+	 * @param offset
+	 *            index of the first argument
+	 * @param count
+	 *            number of arguments, always accepted by the arity of the
+	 *            function
+	 * @return the result
+	 */
+	double apply(double[] arguments, int offset, int count);
+}
@@ -0,0 +1,112 @@
+package com.brandonbalala.utility;
+
+/**
+ * A function called by name with its arguments in parentheses, as registered
+ * in an OperatorRegistry. Instances are immutable.
+ */
+public final class MathFunction {
+	// Largest arity, a function accepting any number of arguments
+	public static final int VARIADIC = Integer.MAX_VALUE;
+
+	private final int id;
+	private final String name;
+	private final int minArity;
+	private final int maxArity;
+	private final FunctionBody body;
+
+	/**
+	 * Constructor
+	 *
+	 * @param id
+	 *            index of the function in its registry
+	 * @param name
+	 * @param minArity
+	 *            fewest arguments accepted
+	 * @param maxArity
+	 *            most arguments accepted, VARIADIC for no limit
+	 * @param body
+	 */
+	MathFunction(int id, String name, int minArity, int maxArity, FunctionBody body) {
+		this.id = id;
+		this.name = name;
+		this.minArity = minArity;
+		this.maxArity = maxArity;
+		this.body = body;
+	}
+
+	/**
+	 * Get the index of the function in its registry, ids are dense and start
+	 * at 0
+	 *
+	 * @return id
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Get the name the function is called by
+	 *
+	 * @return name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the fewest arguments accepted
+	 *
+	 * @return minArity
+	 */
+	public int getMinArity() {
+		return minArity;
+	}
+
+	/**
+	 * Get the most arguments accepted
+	 *
+	 * @return maxArity, VARIADIC for no limit
+	 */
+	public int getMaxArity() {
+		return maxArity;
+	}
+
+	/**
+	 * Check that the function can be called with the given number of
+	 * arguments
+	 *
+	 * @param count
+	 * @return true if accepted, false otherwise
+	 */
+	public boolean acceptsArity(int count) {
+		return count >= minArity && count <= maxArity;
+	}
+
+	/**
+	 * Get the implementation of the function
+	 *
+	 * @return body
+	 */
+	public FunctionBody getBody() {
+		return body;
+	}
+
+	/**
+	 * Calls the function
+	 *
+	 * @param arguments
+	 * @param offset
+	 *            index of the first argument
+	 * @param count
+	 *            number of arguments
+	 * @return the result
+	 */
+	public double apply(double[] arguments, int offset, int count) {
+		return body.apply(arguments, offset, count);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,118 @@
+package com.brandonbalala.utility;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * An operator written between its two operands, as registered in an
+ * OperatorRegistry. Instances are immutable.
+ */
+public final class Operator {
+	/**
+	 * Order in which operators of the same precedence are applied
+	 */
+	public enum Associativity {
+		/** a-b-c is (a-b)-c */
+		LEFT,
+		/** a^b^c is a^(b^c) */
+		RIGHT
+	}
+
+	private final int id;
+	private final char symbol;
+	private final int arity;
+	private final int precedence;
+	private final Associativity associativity;
+	private final DoubleBinaryOperator function;
+
+	/**
+	 * Constructor
+	 *
+	 * @param id
+	 *            index of the operator in its registry
+	 * @param symbol
+	 * @param precedence
+	 *            operators of a higher precedence are applied first
+	 * @param associativity
+	 * @param function
+	 *            computes the operator from its left and right operands
+	 */
+	Operator(int id, char symbol, int precedence, Associativity associativity, DoubleBinaryOperator function) {
+		this.id = id;
+		this.symbol = symbol;
+		this.arity = 2;
+		this.precedence = precedence;
+		this.associativity = associativity;
+		this.function = function;
+	}
+
+	/**
+	 * Get the index of the operator in its registry, ids are dense and start
+	 * at 0
+	 *
+	 * @return id
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Get the character of the operator
+	 *
+	 * @return symbol
+	 */
+	public char getSymbol() {
+		return symbol;
+	}
+
+	/**
+	 * Get the number of operands
+	 *
+	 * @return arity
+	 */
+	public int getArity() {
+		return arity;
+	}
+
+	/**
+	 * Get the precedence, operators of a higher precedence are applied first
+	 *
+	 * @return precedence
+	 */
+	public int getPrecedence() {
+		return precedence;
+	}
+
+	/**
+	 * Get the order in which operators of the same precedence are applied
+	 *
+	 * @return associativity
+	 */
+	public Associativity getAssociativity() {
+		return associativity;
+	}
+
+	/**
+	 * Get the implementation of the operator
+	 *
+	 * @return function
+	 */
+	public DoubleBinaryOperator getFunction() {
+		return function;
+	}
+
+	/**
+	 * Applies the operator
+	 *
+	 * @param left
+	 * @param right
+	 * @return the result
+	 */
+	public double apply(double left, double right) {
+		return function.applyAsDouble(left, right);
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(symbol);
+	}
+}
@@ -0,0 +1,325 @@
+package com.brandonbalala.utility;
+
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Table of the operators and functions the parser and the evaluators
+ * understand. Every operator gets a dense id, its index in the table, and is
+ * found by its symbol with a single array lookup, so the hot paths never
+ * compare strings. Functions get their own dense ids and are found by name
+ * once, when parsing.
+ *
+ * A registry starts with the built-in operators + - * / % and ^ and the
+ * built-in functions abs, sqrt, log, pow, min and max, more can be
+ * registered with their own precedence, associativity and implementation.
+ * The ids of the built-in operators and functions are fixed, evaluators
+ * handle them directly and only go through the DoubleBinaryOperator or the
+ * FunctionBody of the ones registered afterwards.
+ *
+ * A negative sign in front of a number or a variable is not an operator, it
+ * is part of the operand, so it binds tighter than any operator, ^ included:
+ * -2^2 is (-2)^2, 4, and -x^2 is (-x)^2. The negation of a power is written
+ * 0-2^2 or -1*2^2.
+ *
+ * Operators and functions are only added, never removed or replaced, and the
+ * tables are replaced as a whole when adding, so a registry can be read from
+ * any number of threads while more are registered.
+ */
+public final class OperatorRegistry {
+	// Ids of the built-in operators
+	public static final int ADD = 0;
+	public static final int SUBTRACT = 1;
+	public static final int MULTIPLY = 2;
+	public static final int DIVIDE = 3;
+	public static final int REMAINDER = 4;
+	public static final int POWER = 5;
+	public static final int BUILT_IN_COUNT = 6;
+
+	// Ids of the built-in functions
+	public static final int ABS = 0;
+	public static final int SQRT = 1;
+	public static final int LOG = 2;
+	public static final int POW = 3;
+	public static final int MIN = 4;
+	public static final int MAX = 5;
+	public static final int BUILT_IN_FUNCTION_COUNT = 6;
+
+	// Symbols are ASCII characters, the index of the symbol table
+	private static final int SYMBOL_LIMIT = 128;
+
+	private static final OperatorRegistry DEFAULT = new OperatorRegistry(false);
+
+	private final boolean modifiable;
+	private volatile Operator[] operators;
+	private volatile Operator[] symbols;
+	private volatile MathFunction[] functions;
+
+	/**
+	 * Constructor, a registry holding the built-in operators and functions,
+	 * more can be registered
+	 */
+	public OperatorRegistry() {
+		this(true);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param modifiable
+	 *            false if nothing can be registered after the built-in
+	 *            operators and functions
+	 */
+	private OperatorRegistry(boolean modifiable) {
+		this.operators = new Operator[0];
+		this.symbols = new Operator[SYMBOL_LIMIT];
+		this.functions = new MathFunction[0];
+		this.modifiable = modifiable;
+
+		add('+', 1, Operator.Associativity.LEFT, (left, right) -> left + right);
+		add('-', 1, Operator.Associativity.LEFT, (left, right) -> left - right);
+		add('*', 2, Operator.Associativity.LEFT, (left, right) -> left * right);
+		add('/', 2, Operator.Associativity.LEFT, (left, right) -> left / right);
+		add('%', 2, Operator.Associativity.LEFT, (left, right) -> left % right);
+		add('^', 3, Operator.Associativity.RIGHT, Math::pow);
+
+		addFunction("abs", 1, 1, (arguments, offset, count) -> Math.abs(arguments[offset]));
+		addFunction("sqrt", 1, 1, (arguments, offset, count) -> Math.sqrt(arguments[offset]));
+		addFunction("log", 1, 1, (arguments, offset, count) -> Math.log(arguments[offset]));
+		addFunction("pow", 2, 2, (arguments, offset, count) -> Math.pow(arguments[offset], arguments[offset + 1]));
+		addFunction("min", 1, MathFunction.VARIADIC, (arguments, offset, count) -> {
+			double result = arguments[offset];
+			for (int cntr = 1; cntr < count; cntr++)
+				result = Math.min(result, arguments[offset + cntr]);
+			return result;
+		});
+		addFunction("max", 1, MathFunction.VARIADIC, (arguments, offset, count) -> {
+			double result = arguments[offset];
+			for (int cntr = 1; cntr < count; cntr++)
+				result = Math.max(result, arguments[offset + cntr]);
+			return result;
+		});
+	}
+
+	/**
+	 * Get the registry of the built-in operators, shared by every parser
+	 * created without a registry. No operator can be registered to it.
+	 *
+	 * @return the default registry
+	 */
+	public static OperatorRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Registers a new operator
+	 *
+	 * @param symbol
+	 *            an ASCII character that is not a letter, a digit, an
+	 *            underscore, a decimal point, a parenthesis, a comma, a white
+	 *            space or an operator already
+	 * @param precedence
+	 *            operators of a higher precedence are applied first, + and -
+	 *            are 1, * / and % are 2, ^ is 3
+	 * @param associativity
+	 * @param function
+	 *            computes the operator from its left and right operands
+	 * @return the operator
+	 */
+	public synchronized Operator register(char symbol, int precedence, Operator.Associativity associativity,
+			DoubleBinaryOperator function) {
+		if (!modifiable)
+			throw new UnsupportedOperationException("No operator can be registered to the default registry");
+
+		if (symbol >= SYMBOL_LIMIT || symbol <= ' ' || EvaluatorUtility.isVariablePart(symbol) || symbol == '.'
+				|| symbol == '(' || symbol == ')' || symbol == ',')
+			throw new IllegalArgumentException("Invalid operator symbol '" + symbol + "'");
+
+		if (symbols[symbol] != null)
+			throw new IllegalArgumentException("Operator '" + symbol + "' is already registered");
+
+		if (associativity == null || function == null)
+			throw new IllegalArgumentException("The associativity and the function are required");
+
+		return add(symbol, precedence, associativity, function);
+	}
+
+	/**
+	 * Adds an operator at the next id
+	 */
+	private Operator add(char symbol, int precedence, Operator.Associativity associativity,
+			DoubleBinaryOperator function) {
+		Operator operator = new Operator(operators.length, symbol, precedence, associativity, function);
+
+		Operator[] newSymbols = Arrays.copyOf(symbols, SYMBOL_LIMIT);
+		newSymbols[symbol] = operator;
+		Operator[] newOperators = Arrays.copyOf(operators, operators.length + 1);
+		newOperators[operator.getId()] = operator;
+
+		symbols = newSymbols;
+		operators = newOperators;
+
+		return operator;
+	}
+
+	/**
+	 * Registers a new function
+	 *
+	 * @param name
+	 *            a variable name, not starting with a negative sign, that is
+	 *            not a function already. Once registered, the name followed
+	 *            by an opening parenthesis is a call.
+	 * @param minArity
+	 *            fewest arguments accepted, at least 1
+	 * @param maxArity
+	 *            most arguments accepted, MathFunction.VARIADIC for no limit
+	 * @param body
+	 * @return the function
+	 */
+	public synchronized MathFunction registerFunction(String name, int minArity, int maxArity, FunctionBody body) {
+		if (!modifiable)
+			throw new UnsupportedOperationException("No function can be registered to the default registry");
+
+		if (name == null || name.startsWith(EvaluatorUtility.SUBTRACTION) || !EvaluatorUtility.isVariable(name))
+			throw new IllegalArgumentException("Invalid function name " + name);
+
+		if (getFunction(name) != null)
+			throw new IllegalArgumentException("Function " + name + " is already registered");
+
+		if (minArity < 1 || maxArity < minArity)
+			throw new IllegalArgumentException("Invalid arity " + minArity + " to " + maxArity);
+
+		if (body == null)
+			throw new IllegalArgumentException("The body is required");
+
+		return addFunction(name, minArity, maxArity, body);
+	}
+
+	/**
+	 * Adds a function at the next id
+	 */
+	private MathFunction addFunction(String name, int minArity, int maxArity, FunctionBody body) {
+		MathFunction function = new MathFunction(functions.length, name, minArity, maxArity, body);
+
+		MathFunction[] newFunctions = Arrays.copyOf(functions, functions.length + 1);
+		newFunctions[function.getId()] = function;
+		functions = newFunctions;
+
+		return function;
+	}
+
+	/**
+	 * Get the operator of a symbol
+	 *
+	 * @param symbol
+	 * @return the operator, null if the symbol is not an operator
+	 */
+	public Operator get(char symbol) {
+		return symbol < SYMBOL_LIMIT ? symbols[symbol] : null;
+	}
+
+	/**
+	 * Get the operator of an id
+	 *
+	 * @param id
+	 * @return the operator
+	 */
+	public Operator get(int id) {
+		return operators[id];
+	}
+
+	/**
+	 * Check that the given character is an operator
+	 *
+	 * @param symbol
+	 * @return true if operator, false otherwise
+	 */
+	public boolean isOperator(char symbol) {
+		return symbol < SYMBOL_LIMIT && symbols[symbol] != null;
+	}
+
+	/**
+	 * Get the precedence of an operator
+	 *
+	 * @param symbol
+	 * @return the precedence, -1 if not an operator
+	 */
+	public int getPrecedence(char symbol) {
+		Operator operator = get(symbol);
+		return operator == null ? -1 : operator.getPrecedence();
+	}
+
+	/**
+	 * Get the function of an id
+	 *
+	 * @param id
+	 * @return the function
+	 */
+	public MathFunction getFunction(int id) {
+		return functions[id];
+	}
+
+	/**
+	 * Get the function of a name
+	 *
+	 * @param name
+	 * @return the function, null if no function has this name
+	 */
+	public MathFunction getFunction(String name) {
+		return name == null ? null : getFunction(name, 0, name.length());
+	}
+
+	/**
+	 * Get the function whose name is a part of an expression, without
+	 * creating a string
+	 *
+	 * @param source
+	 * @param start
+	 *            offset of the first character of the name
+	 * @param end
+	 *            offset following the last character of the name
+	 * @return the function, null if no function has this name
+	 */
+	public MathFunction getFunction(CharSequence source, int start, int end) {
+		for (MathFunction function : functions) {
+			String name = function.getName();
+			if (name.length() != end - start)
+				continue;
+
+			int cntr = 0;
+			while (cntr < name.length() && name.charAt(cntr) == source.charAt(start + cntr))
+				cntr++;
+			if (cntr == name.length())
+				return function;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Get the number of functions, the next function id
+	 *
+	 * @return number of functions
+	 */
+	public int functionCount() {
+		return functions.length;
+	}
+
+	/**
+	 * Get every operator, indexed by id
+	 *
+	 * @return a copy of the operators
+	 */
+	public Operator[] getOperators() {
+		return operators.clone();
+	}
+
+	/**
+	 * Get the number of operators, the next id
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return operators.length;
+	}
+}
@@ -0,0 +1,62 @@
+package com.brandonbalala.cli;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.brandonbalala.utility.EvaluatorUtility;
+
+public class EvaluatorTestFileEvaluator {
+
+	@Test
+	public void testResultsAndErrorsInOrder() throws IOException {
+		String input = "(2*3/1)+2\n5/0\n\n(((9+10)))+2\n";
+		StringWriter output = new StringWriter();
+
+		ExpressionFileEvaluator fileEvaluator = new ExpressionFileEvaluator();
+		fileEvaluator.evaluate(new StringReader(input), output);
+
+		String expected = "8.0\n" + ExpressionFileEvaluator.ERROR_PREFIX + EvaluatorUtility.DIVIDE_BY_ZERO_MSG + "\n"
+				+ ExpressionFileEvaluator.ERROR_PREFIX + EvaluatorUtility.EMPTY_ERR_MSG + "\n" + "21.0\n";
+
+		assertEquals(expected, output.toString());
+		assertEquals(4, fileEvaluator.getLineCount());
+		assertEquals(2, fileEvaluator.getErrorCount());
+	}
+
+	@Test
+	public void testLineTooLongReported() throws IOException {
+		StringBuilder tooLong = new StringBuilder("1");
+		for (int cntr = 0; cntr < 20; cntr++)
+			tooLong.append("+1");
+		String input = "1+2\n" + tooLong + "\r\n2*3\r\r4";
+		StringWriter output = new StringWriter();
+
+		ExpressionFileEvaluator fileEvaluator = new ExpressionFileEvaluator(16);
+		fileEvaluator.evaluate(new StringReader(input), output);
+
+		String expected = "3.0\n" + ExpressionFileEvaluator.ERROR_PREFIX + ExpressionFileEvaluator.LINE_LENGTH_ERR_MSG
+				+ "\n6.0\n" + ExpressionFileEvaluator.ERROR_PREFIX + EvaluatorUtility.EMPTY_ERR_MSG + "\n4.0\n";
+
+		assertEquals(expected, output.toString());
+		assertEquals(5, fileEvaluator.getLineCount());
+		assertEquals(2, fileEvaluator.getErrorCount());
+	}
+
+	@Test
+	public void testLineLongerThanTheBuffer() throws IOException {
+		StringBuilder expression = new StringBuilder("0");
+		for (int cntr = 0; cntr < 50000; cntr++)
+			expression.append("+1");
+		String input = expression + "\r\n" + expression + "\n";
+		StringWriter output = new StringWriter();
+
+		new ExpressionFileEvaluator().evaluate(new StringReader(input), output);
+
+		assertEquals("50000.0\n50000.0\n", output.toString());
+	}
+}
@@ -0,0 +1,114 @@
+package com.brandonbalala.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.brandonbalala.exception.CircularReferenceException;
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.EvaluatorUtility;
+
+public class EvaluatorTestFormulaGraph {
+	private ForkJoinPool pool;
+	private FormulaGraph graph;
+
+	@Before
+	public void initialize() {
+		pool = new ForkJoinPool(4);
+		graph = new FormulaGraph(pool, 8);
+	}
+
+	@After
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testDownstreamCellsFollowChanges()
+			throws InfixParsingException, PostfixParsingException, CircularReferenceException {
+		graph.setValue("price", 2.5);
+		graph.setValue("qty", 4);
+		graph.setFormula("subtotal", "price*qty");
+		graph.setFormula("total", "subtotal-discount");
+		graph.setFormula("unrelated", "qty*2");
+
+		assertEquals(10, graph.getValue("total"), 0);
+		assertEquals(0, graph.getDirtyCount());
+
+		graph.setValue("discount", 1.25);
+		assertEquals(1, graph.getDirtyCount());
+		assertEquals(8.75, graph.getValue("total"), 0);
+
+		graph.setValue("price", 3);
+		assertEquals(2, graph.getDirtyCount());
+		assertEquals(10.75, graph.getValue("total"), 0);
+
+		graph.setFormula("subtotal", "price*qty*2");
+		assertEquals(22.75, graph.getValue("total"), 0);
+		assertEquals(8, graph.getValue("unrelated"), 0);
+	}
+
+	@Test
+	public void testCycleIsRejected() throws InfixParsingException, PostfixParsingException, CircularReferenceException {
+		graph.setFormula("a", "b+1");
+		graph.setFormula("b", "c*2");
+		graph.setValue("c", 3);
+
+		try {
+			graph.setFormula("c", "a-1");
+			fail("Expected a CircularReferenceException");
+		} catch (CircularReferenceException e) {
+			assertEquals(EvaluatorUtility.CIRCULAR_REFERENCE_ERR_MSG + ": c -> a -> b -> c", e.getMessage());
+		}
+
+		try {
+			graph.setFormula("d", "d+1");
+			fail("Expected a CircularReferenceException");
+		} catch (CircularReferenceException e) {
+			assertTrue(e.getMessage().startsWith(EvaluatorUtility.CIRCULAR_REFERENCE_ERR_MSG));
+		}
+
+		// The rejected formula left the graph unchanged
+		assertEquals(7, graph.getValue("a"), 0);
+	}
+
+	@Test
+	public void testWavesMatchSequentialComputation()
+			throws InfixParsingException, PostfixParsingException, CircularReferenceException {
+		// Layers of cells, every cell refers to two cells of the layer below
+		int layers = 20;
+		int width = 100;
+		double[] expected = new double[width];
+
+		for (int column = 0; column < width; column++) {
+			graph.setValue("c0_" + column, column);
+			expected[column] = column;
+		}
+		for (int layer = 1; layer < layers; layer++) {
+			double[] next = new double[width];
+			for (int column = 0; column < width; column++) {
+				int other = (column * 7 + layer) % width;
+				graph.setFormula("c" + layer + "_" + column,
+						"c" + (layer - 1) + "_" + column + "*0.5+c" + (layer - 1) + "_" + other + "/3");
+				next[column] = expected[column] * 0.5 + expected[other] / 3;
+			}
+			expected = next;
+		}
+
+		assertEquals(layers - 1, graph.recalculate());
+		for (int column = 0; column < width; column++)
+			assertEquals(expected[column], graph.getValue("c" + (layers - 1) + "_" + column), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCellName() throws InfixParsingException, PostfixParsingException, CircularReferenceException {
+		graph.setFormula("1a", "2");
+	}
+}
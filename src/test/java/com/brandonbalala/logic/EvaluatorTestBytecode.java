@@ -0,0 +1,93 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestBytecode {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private String infixString;
+	private double[] bindings;
+
+	public EvaluatorTestBytecode(String input, double[] bindings) {
+		this.infixString = input;
+		this.bindings = bindings;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> expressionAndBindings() {
+		return Arrays.asList(new Object[][] {
+				{ "(2*3/1)+2", new double[0] },
+				{ "price*qty-discount", new double[] { 2.5, 4, 1.25 } },
+				{ "(x+1)/(x-1)", new double[] { 3 } },
+				{ "a*-0+1-b*1.5", new double[] { -2, 0.5 } },
+				{ "-rate*(base_2+10)", new double[] { 0.5, 30 } },
+				{ "1/x", new double[] { 0 } },
+				{ "a+b+c+d+e+f+g-h*(0.1+0.2)", new double[] { 1, 2, 3, 4, 5, 6, 7, 8 } },
+				{ "(((((56.9*0.09)))))/((3-4.4)-(79-0.3)/(3/2.4))/0.5-2", new double[0] } });
+	}
+
+	@Test
+	public void testFormulaMatchesInterpreter() throws InfixParsingException, PostfixParsingException {
+		log.info("Parameterized String is : " + infixString);
+
+		CompiledExpression expression = CompiledExpression.compile(infixString);
+		Formula formula = BytecodeCompiler.compile(expression);
+
+		assertNotNull(formula);
+		assertEquals(Double.doubleToLongBits(expression.evaluate(bindings)),
+				Double.doubleToLongBits(formula.evaluate(bindings)));
+	}
+
+	@Test
+	public void testSwitchesToBytecodeWhenHot() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression expression = CompiledExpression.compile(infixString);
+		double expected = expression.evaluate(bindings);
+
+		for (int cntr = 1; cntr < CompiledExpression.COMPILE_THRESHOLD; cntr++)
+			assertEquals(expected, expression.evaluate(bindings), 0);
+
+		assertNotNull(expression.getFormula());
+		assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(expression.evaluate(bindings)));
+	}
+
+	@Test
+	public void testProgramTooLargeForOneMethod() throws InfixParsingException, PostfixParsingException {
+		StringBuilder sb = new StringBuilder(infixString);
+		for (int cntr = 0; cntr < 20000; cntr++)
+			sb.append("+1.5");
+
+		assertNull(BytecodeCompiler.compile(CompiledExpression.compile(sb.toString())));
+	}
+
+	@Test
+	public void testRefusedClassStaysInterpreted() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression expression = CompiledExpression.compile(infixString);
+		byte[] classFile = BytecodeCompiler.generate(expression, "com/brandonbalala/logic/RefusedFormula");
+
+		//Defined under another name
+		assertNull(BytecodeCompiler.load("com/brandonbalala/logic/OtherFormula", classFile));
+		//Not a class file
+		assertNull(BytecodeCompiler.load("com/brandonbalala/logic/RefusedFormula", new byte[] { 1, 2, 3 }));
+
+		//evaluate returning a reference instead of its double fails verification,
+		//its dreturn is followed by the empty exception table and attributes
+		assertEquals(0xAF, classFile[classFile.length - 7] & 0xFF);
+		classFile[classFile.length - 7] = (byte) 0xB0;
+		assertNull(BytecodeCompiler.load("com/brandonbalala/logic/RefusedFormula", classFile));
+	}
+}
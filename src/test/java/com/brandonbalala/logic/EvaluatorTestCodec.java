@@ -0,0 +1,188 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.Operator;
+import com.brandonbalala.utility.OperatorRegistry;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestCodec {
+	private static final OperatorRegistry REGISTRY = new OperatorRegistry();
+	static {
+		REGISTRY.register('&', 1, Operator.Associativity.LEFT, Math::max);
+		REGISTRY.registerFunction("clamp", 3, 3, (arguments, offset, count) -> Math
+				.min(Math.max(arguments[offset], arguments[offset + 1]), arguments[offset + 2]));
+	}
+
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private String infixString;
+	private double[] bindings;
+
+	public EvaluatorTestCodec(String input, double[] bindings) {
+		this.infixString = input;
+		this.bindings = bindings;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> expressionAndBindings() {
+		return Arrays.asList(new Object[][] {
+				{ "(500*1.7/-5.3)+2-0.75/1.45", new double[0] },
+				{ "price*qty-discount", new double[] { 2.5, 4, 1.25 } },
+				{ "-rate*(base_2+10)-rate", new double[] { 0.5, 30 } },
+				{ "2^x^-y%7+max(x,y,1)-sqrt(abs(y))", new double[] { 1.5, -2 } },
+				{ "a&b*2-clamp(a*10,0,5)", new double[] { 0.7, 0.2 } },
+				{ "clamp(x,y&1,3)&unit_price", new double[] { 2, -1, 0.5 } } });
+	}
+
+	private Postfix parse() throws InfixParsingException, PostfixParsingException {
+		return parse(infixString);
+	}
+
+	private static Postfix parse(String expression) throws InfixParsingException, PostfixParsingException {
+		Infix infix = new Infix(REGISTRY);
+		infix.setInfixQueue(expression);
+		Postfix postfix = new Postfix(REGISTRY);
+		postfix.parsePostfix(infix);
+		return postfix;
+	}
+
+	@Test
+	public void testRoundTrip() throws InfixParsingException, PostfixParsingException {
+		log.info("Parameterized String is : " + infixString);
+
+		CompiledExpression expression = CompiledExpression.compile(parse());
+		byte[] encoded = ProgramCodec.encode(expression);
+		assertEquals(ProgramCodec.getEncodedSize(expression), encoded.length);
+
+		ByteBuffer buffer = ByteBuffer.wrap(encoded);
+		CompiledExpression decoded = ProgramCodec.decode(buffer, REGISTRY);
+
+		assertEquals(encoded.length, buffer.position());
+		assertEquals(expression.toString(), decoded.toString());
+		assertEquals(expression.getVariables(), decoded.getVariables());
+		assertEquals(Double.doubleToLongBits(expression.evaluate(bindings)),
+				Double.doubleToLongBits(decoded.evaluate(bindings)));
+	}
+
+	@Test
+	public void testRegisteredNamesRelinked() throws InfixParsingException, PostfixParsingException {
+		// Same operator and function registered in another order, with other
+		// ids
+		OperatorRegistry other = new OperatorRegistry();
+		other.registerFunction("clamp", 3, 3, (arguments, offset, count) -> Math
+				.min(Math.max(arguments[offset], arguments[offset + 1]), arguments[offset + 2]));
+		other.register('#', 1, Operator.Associativity.LEFT, Math::min);
+		other.register('&', 1, Operator.Associativity.LEFT, Math::max);
+
+		CompiledExpression expression = CompiledExpression.compile(parse());
+		CompiledExpression decoded = ProgramCodec.decode(ByteBuffer.wrap(ProgramCodec.encode(expression)), other);
+
+		assertEquals(expression.toString(), decoded.toString());
+		assertEquals(Double.doubleToLongBits(expression.evaluate(bindings)),
+				Double.doubleToLongBits(decoded.evaluate(bindings)));
+	}
+
+	@Test
+	public void testConcatenatedPrograms() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression first = CompiledExpression.compile(parse());
+		CompiledExpression second = CompiledExpression.compile("(1+8-5/2)*2+4");
+
+		ByteBuffer buffer = ByteBuffer
+				.allocateDirect(ProgramCodec.getEncodedSize(first) + ProgramCodec.getEncodedSize(second));
+		ProgramCodec.encode(first, buffer);
+		ProgramCodec.encode(second, buffer);
+		buffer.flip();
+
+		assertEquals(first.toString(), ProgramCodec.decode(buffer, REGISTRY).toString());
+		assertEquals(17, ProgramCodec.decode(buffer).evaluate(), 0);
+		assertEquals(0, buffer.remaining());
+	}
+
+	@Test
+	public void testCorruptProgramsRejected() throws InfixParsingException, PostfixParsingException {
+		byte[] encoded = ProgramCodec.encode(CompiledExpression.compile(parse()));
+
+		// Magic, version, truncated, an instruction and the stack depth
+		assertRejected(Arrays.copyOf(encoded, encoded.length), 0, (byte) 'X');
+		assertRejected(Arrays.copyOf(encoded, encoded.length), 4, (byte) 2);
+		assertRejected(Arrays.copyOf(encoded, encoded.length - 1), -1, (byte) 0);
+		assertRejected(Arrays.copyOf(encoded, encoded.length), ProgramCodec.HEADER_SIZE, (byte) 0x7F);
+		assertRejected(Arrays.copyOf(encoded, encoded.length), 20, (byte) 99);
+
+		// Id of the external operator, the last one, far past any registry
+		byte[] external = ProgramCodec.encode(CompiledExpression.compile(parse("1&2")));
+		assertRejected(external, external.length - 4, (byte) 0x7F);
+	}
+
+	@Test
+	public void testUnregisteredFunctionRejected() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression expression = CompiledExpression.compile(parse());
+		boolean external = expression.toString().contains("clamp") || expression.toString().contains("&");
+
+		try {
+			ProgramCodec.decode(ByteBuffer.wrap(ProgramCodec.encode(expression)));
+			if (external)
+				fail("Expected the registered names to be missing");
+		} catch (IllegalArgumentException e) {
+			if (!external)
+				throw e;
+		}
+	}
+
+	@Test
+	public void testLibrary() throws InfixParsingException, PostfixParsingException, IOException {
+		CompiledExpression expression = CompiledExpression.compile(parse());
+		List<CompiledExpression> expressions = new ArrayList<CompiledExpression>();
+		for (int cntr = 0; cntr < 10000; cntr++)
+			expressions.add(cntr % 2 == 0 ? expression : CompiledExpression.compile("x*" + cntr));
+
+		ByteBuffer written = ProgramLibrary.write(expressions);
+		Path file = Files.createTempFile("library", ".bin");
+		try {
+			Files.write(file, Arrays.copyOf(written.array(), written.limit()));
+
+			for (ProgramLibrary library : new ProgramLibrary[] { ProgramLibrary.load(written, REGISTRY),
+					ProgramLibrary.map(file, REGISTRY) }) {
+				assertEquals(10000, library.size());
+				assertEquals(9999 * 2, library.get(9999).evaluate(new double[] { 2 }), 0);
+				assertSame(library.get(9999), library.get(9999));
+				assertEquals("x 1235.0 *", library.get(1235).toString());
+				assertEquals(expression.toString(), library.get(0).toString());
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private void assertRejected(byte[] encoded, int index, byte value) {
+		if (index >= 0)
+			encoded[index] = value;
+
+		try {
+			ProgramCodec.decode(ByteBuffer.wrap(encoded), REGISTRY);
+			fail("Expected a corrupt program to be rejected");
+		} catch (IllegalArgumentException e) {
+			// Rejected
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestColumnar {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	// More than two chunks, the last one partial
+	private static final int ROWS = ColumnarEvaluator.CHUNK_SIZE * 2 + 17;
+
+	private String infixString;
+
+	public EvaluatorTestColumnar(String input) {
+		this.infixString = input;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> expressions() {
+		return Arrays.asList(new Object[][] { { "price*qty-discount" }, { "(x+1)/(x-1)" },
+				{ "-rate*(base+10)/2-3*rate" }, { "2-a/b*(c+-d)" }, { "(2*3/1)+4" }, { "-x" } });
+	}
+
+	@Test
+	public void testColumnsMatchRows() throws InfixParsingException, PostfixParsingException {
+		log.info("Parameterized String is : " + infixString);
+
+		CompiledExpression expression = CompiledExpression.compile(infixString);
+		Random random = new Random(42);
+
+		double[][] columns = new double[expression.getVariableCount()][ROWS];
+		for (double[] column : columns) {
+			for (int row = 0; row < ROWS; row++)
+				column[row] = random.nextDouble() * 200 - 100;
+		}
+
+		double[] out = new double[ROWS];
+		ColumnarEvaluator.evaluate(expression, columns, out);
+
+		double[] bindings = new double[expression.getVariableCount()];
+		for (int row = 0; row < ROWS; row++) {
+			for (int slot = 0; slot < bindings.length; slot++)
+				bindings[slot] = columns[slot][row];
+
+			assertEquals(expression.evaluate(bindings), out[row], 0);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.OperatorRegistry;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestCompiledExpression {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private String infixString;
+	private Double expectedResult;
+
+	public EvaluatorTestCompiledExpression(String input, Double expectedResult) {
+		this.infixString = input;
+		this.expectedResult = expectedResult;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> expressionAndExpectedResults() {
+		return Arrays.asList(new Object[][] { { "(500*1.7/-5.3)+2-0.75/1.45", new Double(-158.89) },
+				{ "(-96/7)+(0.99*70)/(1.07*2)", new Double(18.67) }, { "68+(2+9-18)/1.2*5.3", new Double(37.08) },
+				{ "-99+3+1-2/(-4+0.5)", new Double(-94.43) }, { "(100/0.3*0.5+4)*0.75", new Double(128) },
+				{ "30/(50+0.5)*10/-5", new Double(-1.19) }, { "(10-20)*2-3*2", new Double(-26) },
+				{ "(4*2+3-2)/(6/8)", new Double(12) }, { "(1+8-5/2)*2+4", new Double(17) },
+				{ "18+2-0.75/(-2*0.5)", new Double(20.75) },
+				{ "(((((56.9*0.09)))))/((3-4.4)-(79-0.3)/(3/2.4))/0.5-2", new Double(-2.16) } });
+	}
+
+	@Test
+	public void testEvaluateMatchesPostfix() throws InfixParsingException, PostfixParsingException {
+		log.info("Parameterized String is : " + infixString);
+
+		Infix infix = new Infix();
+		infix.setInfixQueue(infixString);
+		Postfix postfix = new Postfix();
+		postfix.parsePostfix(infix);
+
+		CompiledExpression expression = CompiledExpression.compile(postfix);
+		double expected = postfix.solvePostfixExpression();
+
+		log.info("Expected Result : " + expected);
+		log.info("Actual Result : " + expression.evaluate());
+
+		assertEquals(expected, expression.evaluate(), 0);
+	}
+
+	@Test
+	public void testResultIsTopOfStack() {
+		// Program 1 2, an operand left under the result
+		int[] code = { CompiledExpression.PUSH_CONSTANT,
+				CompiledExpression.PUSH_CONSTANT | 1 << CompiledExpression.OPERAND_SHIFT };
+		CompiledExpression expression = new CompiledExpression(code, new double[] { 1, 2 }, new String[0], 2,
+				OperatorRegistry.getDefault());
+
+		// Interpreted, then once compiled to bytecode
+		for (int cntr = 0; cntr <= CompiledExpression.COMPILE_THRESHOLD; cntr++)
+			assertEquals(2, expression.evaluate(), 0);
+	}
+
+	@Test
+	public void testEvaluateManyTimes() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression expression = CompiledExpression.compile(infixString);
+
+		for (int cntr = 0; cntr < 3; cntr++) {
+			Double result = Math.round(expression.evaluate() * 100.0) / 100.0;
+			assertEquals(expectedResult, result);
+		}
+	}
+}
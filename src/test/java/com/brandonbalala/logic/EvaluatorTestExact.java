@@ -0,0 +1,117 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.EvaluatorUtility;
+import com.brandonbalala.utility.Operator;
+import com.brandonbalala.utility.OperatorRegistry;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestExact {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private String infixString;
+	private MathContext mathContext;
+	private BigDecimal[] bindings;
+	private String expectedResult;
+
+	public EvaluatorTestExact(String input, MathContext mathContext, String[] bindings, String expectedResult) {
+		this.infixString = input;
+		this.mathContext = mathContext;
+		this.bindings = new BigDecimal[bindings.length];
+		for (int cntr = 0; cntr < bindings.length; cntr++)
+			this.bindings[cntr] = new BigDecimal(bindings[cntr]);
+		this.expectedResult = expectedResult;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> expressionAndExpectedResults() {
+		String[] none = new String[0];
+
+		return Arrays.asList(new Object[][] {
+				{ "0.1+0.2", MathContext.DECIMAL64, none, "0.3" },
+				{ "0.1*3-0.3", MathContext.DECIMAL64, none, "0.0" },
+				{ "(1+8-5/2)*2+4", MathContext.UNLIMITED, none, "17.0" },
+				{ "10/3", new MathContext(5), none, "3.3333" },
+				{ "2/3*3", MathContext.DECIMAL32, none, "2.000000" },
+				{ "price*qty-discount", MathContext.DECIMAL128, new String[] { "19.99", "3", "0.97" }, "59.00" },
+				{ "-rate*(base+10)", MathContext.DECIMAL64, new String[] { "0.05", "1000.10" }, "-50.5050" },
+				{ "12345678901234567890.5+1", MathContext.UNLIMITED, none, "12345678901234567891.5" },
+				{ "max(0.1,0.3-0.1,abs(-0.25))", MathContext.DECIMAL64, none, "0.25" },
+				{ "pow(1.1,2)+7%2.5", MathContext.UNLIMITED, none, "3.21" },
+				{ "2^-1*x", MathContext.DECIMAL64, new String[] { "0.2" }, "0.10" } });
+	}
+
+	@Test
+	public void testExactResult() throws InfixParsingException, PostfixParsingException {
+		log.info("Parameterized String is : " + infixString);
+
+		ExactExpression expression = ExactExpression.compile(infixString, mathContext);
+		BigDecimal result = expression.evaluate(bindings);
+
+		log.info("Expected Result : " + expectedResult);
+		log.info("Actual Result : " + result);
+
+		assertEquals(expectedResult, result.toPlainString());
+	}
+
+	@Test
+	public void testSharedEvaluatorMatches() throws InfixParsingException, PostfixParsingException {
+		ExactExpression expression = new Evaluator().compileExact(infixString, mathContext);
+
+		assertEquals(expectedResult, expression.evaluate(bindings).toPlainString());
+		assertEquals(CompiledExpression.compile(infixString).getVariables(), expression.getVariables());
+	}
+
+	@Test(expected = ArithmeticException.class)
+	public void testNonTerminatingDivisionWithUnlimitedPrecision()
+			throws InfixParsingException, PostfixParsingException {
+		ExactExpression.compile(infixString + "+1/3", MathContext.UNLIMITED).evaluate(bindings);
+	}
+
+	@Test
+	public void testDoubleOnlyFunctionRejected() throws InfixParsingException {
+		assertRejected(infixString + "+sqrt(2)");
+		assertRejected("log(" + infixString + ")");
+	}
+
+	@Test
+	public void testRegisteredOperatorRejected() throws InfixParsingException, PostfixParsingException {
+		OperatorRegistry registry = new OperatorRegistry();
+		registry.register('&', 1, Operator.Associativity.LEFT, Math::max);
+		Infix infix = new Infix(registry);
+		infix.setInfixQueue("(" + infixString + ")&1");
+		Postfix postfix = new Postfix(registry);
+		postfix.parsePostfix(infix);
+
+		try {
+			ExactExpression.compile(postfix, mathContext);
+			fail("Expected a registered operator to be rejected");
+		} catch (PostfixParsingException e) {
+			assertEquals(EvaluatorUtility.EXACT_ERR_MSG, e.getMessage());
+		}
+	}
+
+	private void assertRejected(String expression) throws InfixParsingException {
+		try {
+			ExactExpression.compile(expression, mathContext);
+			fail("Expected " + expression + " to be rejected");
+		} catch (PostfixParsingException e) {
+			assertEquals(EvaluatorUtility.EXACT_ERR_MSG, e.getMessage());
+		}
+	}
+}
@@ -49,7 +49,10 @@ public class EvaluatorTestException {
 				{ new String[] { "100", "*", "4", "(", "-72", ")", "63" }, new Double(391) },
 				{ new String[] { ")", "(", "86", "*", "1.63", ")", "/", "2", ")", "*", "54" }, new Double(0) },
 				{ new String[] { "(", "(", "(", "9", "+", "10", ")", ")", ")", "+", "2", "/" }, new Double(0) }, 
-				{ new String[] { "(", "-22", "+", "4", ")", "/", "0" }, new Double(0) }
+				{ new String[] { "(", "-22", "+", "4", ")", "/", "0" }, new Double(0) },
+				{ new String[] { "5", "%", "0" }, new Double(0) },
+				{ new String[] { "x", ".5" }, new Double(0) },
+				{ new String[] { "a", "+", "b", ".5", "*", "c" }, new Double(0) }
 			});
 	}
 
@@ -0,0 +1,63 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.EvaluatorUtility;
+
+public class EvaluatorTestExpressionCache {
+	private ExpressionCache cache;
+
+	@Before
+	public void initialize() {
+		cache = new ExpressionCache(2);
+	}
+
+	@Test
+	public void testHitsAndMisses() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression first = cache.get("(2*3/1)+2");
+		CompiledExpression second = cache.get("(2*3/1)+2");
+
+		assertSame(first, second);
+		assertEquals(8, cache.evaluate("(2*3/1)+2"), 0);
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression first = cache.get("1+1");
+		cache.get("2+2");
+		// Makes 2+2 the least recently used
+		cache.get("1+1");
+		cache.get("3+3");
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertSame(first, cache.get("1+1"));
+
+		cache.get("2+2");
+		assertEquals(4, cache.getMissCount());
+	}
+
+	@Test
+	public void testFailureCachedWithOriginalMessage() throws PostfixParsingException {
+		for (int cntr = 0; cntr < 2; cntr++) {
+			try {
+				cache.get("5/0");
+				fail("Expected an InfixParsingException");
+			} catch (InfixParsingException e) {
+				assertEquals(EvaluatorUtility.DIVIDE_BY_ZERO_MSG, e.getMessage());
+			}
+		}
+
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+	}
+}
@@ -0,0 +1,169 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+
+public class EvaluatorTestFormulaStore {
+	private Path file;
+
+	@Before
+	public void initialize() throws IOException {
+		file = Files.createTempFile("formulas", ".store");
+		Files.delete(file);
+	}
+
+	@After
+	public void cleanUp() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testReopened() throws IOException, InfixParsingException, PostfixParsingException {
+		try (FormulaStore store = FormulaStore.open(file)) {
+			Map<String, CompiledExpression> formulas = new LinkedHashMap<String, CompiledExpression>();
+			for (int cntr = 0; cntr < 1000; cntr++)
+				formulas.put("formula-" + cntr, CompiledExpression.compile("price*qty+" + cntr));
+			store.append(formulas);
+			store.append("total", CompiledExpression.compile("(a+b)*c"));
+		}
+
+		try (FormulaStore store = FormulaStore.open(file)) {
+			assertEquals(1001, store.size());
+			assertEquals(2 * 3 + 999, store.evaluate("formula-999", new double[] { 2, 3 }), 0);
+			assertEquals(9, store.evaluate("total", new double[] { 1, 2, 3 }), 0);
+			assertSame(store.get("total"), store.get("total"));
+			assertNull(store.get("missing"));
+		}
+	}
+
+	@Test
+	public void testReplaced() throws IOException, InfixParsingException, PostfixParsingException {
+		try (FormulaStore store = FormulaStore.open(file)) {
+			store.append("rate", CompiledExpression.compile("x*2"));
+			assertEquals(8, store.evaluate("rate", new double[] { 4 }), 0);
+
+			store.append("rate", CompiledExpression.compile("x*3"));
+			assertEquals(12, store.evaluate("rate", new double[] { 4 }), 0);
+		}
+
+		try (FormulaStore store = FormulaStore.open(file)) {
+			assertEquals(1, store.size());
+			assertEquals(12, store.evaluate("rate", new double[] { 4 }), 0);
+		}
+	}
+
+	@Test
+	public void testUncommittedRecordsIgnored() throws IOException, InfixParsingException, PostfixParsingException {
+		try (FormulaStore store = FormulaStore.open(file)) {
+			store.append("first", CompiledExpression.compile("1+2"));
+		}
+
+		// Left by a writer that crashed before committing, right after the
+		// committed records
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(FormulaStore.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(header, 0);
+			channel.write(ByteBuffer.wrap(new byte[] { 40, 0, 0, 0, 7, 0, 'x' }), header.getLong(8));
+		}
+
+		try (FormulaStore store = FormulaStore.open(file)) {
+			assertEquals(1, store.size());
+
+			store.append("second", CompiledExpression.compile("3*4"));
+			assertEquals(12, store.evaluate("second", new double[0]), 0);
+		}
+
+		try (FormulaStore store = FormulaStore.open(file)) {
+			assertEquals(2, store.size());
+			assertEquals(3, store.evaluate("first", new double[0]), 0);
+		}
+	}
+
+	@Test
+	public void testMappedAgainOnlyWhenGrown() throws IOException, InfixParsingException, PostfixParsingException {
+		try (FormulaStore store = FormulaStore.open(file)) {
+			for (int cntr = 0; cntr < 2000; cntr++)
+				store.append("formula-" + cntr, CompiledExpression.compile("x*" + cntr));
+
+			assertEquals(2000, store.size());
+			assertEquals(2 * 1999, store.evaluate("formula-1999", new double[] { 2 }), 0);
+			// The file grows by half every time it is full
+			assertTrue("Mapped " + store.getMapCount() + " times", store.getMapCount() < 10);
+		}
+	}
+
+	@Test
+	public void testReadersWhileAppending() throws Exception {
+		try (FormulaStore writer = FormulaStore.open(file); FormulaStore reader = FormulaStore.open(file)) {
+			writer.append("formula-0", CompiledExpression.compile("x+0"));
+
+			AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+			Thread[] threads = new Thread[4];
+			for (int thread = 0; thread < threads.length; thread++) {
+				threads[thread] = new Thread(() -> {
+					try {
+						// Every formula found must be whole
+						for (int pass = 0; pass < 200; pass++)
+							for (String id : writer.getIds()) {
+								int number = Integer.parseInt(id.substring("formula-".length()));
+								assertEquals(1 + number, writer.evaluate(id, new double[] { 1 }), 0);
+							}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				});
+				threads[thread].start();
+			}
+
+			for (int cntr = 1; cntr < 500; cntr++) {
+				writer.append("formula-" + cntr, CompiledExpression.compile("x+" + cntr));
+				if (cntr % 50 == 0)
+					reader.refresh();
+			}
+			for (Thread thread : threads)
+				thread.join();
+
+			if (failure.get() != null)
+				throw new AssertionError(failure.get());
+
+			// The other store only sees the new formulas once refreshed
+			assertEquals(451, reader.size());
+			assertEquals(49, reader.refresh());
+			assertEquals(500, reader.size());
+			assertEquals(500, reader.evaluate("formula-499", new double[] { 1 }), 0);
+		}
+	}
+
+	@Test
+	public void testNotAStoreRejected() throws IOException {
+		Files.write(file, "price*qty-discount\n".getBytes("UTF-8"));
+
+		try {
+			FormulaStore.open(file).close();
+			fail("Expected a text file to be rejected");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Not a formula store", e.getMessage());
+		}
+	}
+}
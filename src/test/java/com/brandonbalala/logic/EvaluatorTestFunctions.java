@@ -0,0 +1,143 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Queue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.EvaluatorUtility;
+import com.brandonbalala.utility.OperatorRegistry;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestFunctions {
+	private static final OperatorRegistry REGISTRY = new OperatorRegistry();
+	static {
+		// Value, lower bound, upper bound
+		REGISTRY.registerFunction("clamp", 3, 3, (arguments, offset, count) -> Math
+				.min(Math.max(arguments[offset], arguments[offset + 1]), arguments[offset + 2]));
+	}
+
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private String infixString;
+	private String expectedPostfix;
+	private double[] bindings;
+	private Double expectedResult;
+
+	public EvaluatorTestFunctions(String input, String expectedPostfix, double[] bindings, Double expectedResult) {
+		this.infixString = input;
+		this.expectedPostfix = expectedPostfix;
+		this.bindings = bindings;
+		this.expectedResult = expectedResult;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> expressionAndExpectedResults() {
+		return Arrays.asList(new Object[][] {
+				{ "max(1,5,3)", "153max", new double[0], new Double(5) },
+				{ "min(4)", "4min", new double[0], new Double(4) },
+				{ "abs(-2.5)*2", "-2.5abs2*", new double[0], new Double(5) },
+				{ "sqrt(16)+pow(2,10)", "16sqrt210pow+", new double[0], new Double(1028) },
+				{ "log(1)", "1log", new double[0], new Double(0) },
+				{ "max(a,b*2,-c)+1", "ab2*-cmax1+", new double[] { 1, 2, -7 }, new Double(8) },
+				{ "2*max(x-1,min(y,3))", "2x1-y3minmax*", new double[] { 5, 10 }, new Double(8) },
+				{ "pow(x,2)^0.5", "x2pow0.5^", new double[] { -3 }, new Double(3) },
+				{ "clamp(x*10,0,5)", "x10*05clamp", new double[] { 0.7 }, new Double(5) } });
+	}
+
+	@Test
+	public void testCorrectPostfixExpression() throws InfixParsingException, PostfixParsingException {
+		log.info("Parameterized String is : " + infixString);
+
+		Infix infix = new Infix(REGISTRY);
+		infix.setInfixQueue(infixString);
+		Postfix postfix = new Postfix(REGISTRY);
+		postfix.parsePostfix(infix);
+
+		Queue<String> postfixQueue = postfix.getPostFixQueue();
+		StringBuilder sb = new StringBuilder();
+		while (!postfixQueue.isEmpty()) {
+			sb.append(postfixQueue.poll());
+		}
+
+		assertEquals(expectedPostfix, sb.toString());
+		if (bindings.length == 0)
+			assertEquals(expectedResult, postfix.solvePostfixExpression(), 1e-9);
+	}
+
+	@Test
+	public void testEvaluate() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression expression = new Evaluator(REGISTRY).compile(infixString);
+
+		assertEquals(expectedResult, expression.evaluate(bindings), 1e-9);
+		assertEquals(expectedResult, new ExpressionOptimizer().optimize(expression).getExpression().evaluate(bindings),
+				1e-9);
+		assertEquals(expectedResult, new IncrementalExpression(expression, bindings).getValue(), 1e-9);
+
+		double[][] columns = new double[bindings.length][];
+		for (int slot = 0; slot < bindings.length; slot++)
+			columns[slot] = new double[] { bindings[slot] };
+		double[] out = new double[1];
+		ColumnarEvaluator.evaluate(expression, columns, out);
+		assertEquals(expectedResult, out[0], 1e-9);
+	}
+
+	@Test
+	public void testIncrementalMatchesEvaluate() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression expression = new Evaluator(REGISTRY).compile(infixString);
+		IncrementalExpression incremental = new IncrementalExpression(expression, bindings);
+
+		double[] changed = bindings.clone();
+		for (int slot = 0; slot < changed.length; slot++) {
+			changed[slot] = changed[slot] * 3 - 1;
+			incremental.setVariable(slot, changed[slot]);
+			assertEquals(expression.evaluate(changed), incremental.getValue(), 0);
+		}
+	}
+
+	@Test
+	public void testBytecodeMatchesInterpreter() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression expression = new Evaluator(REGISTRY).compile(infixString);
+		Formula formula = BytecodeCompiler.compile(expression);
+
+		if (infixString.startsWith("clamp"))
+			assertNull(formula);
+		else
+			assertEquals(expression.evaluate(bindings), formula.evaluate(bindings), 0);
+	}
+
+	@Test
+	public void testWrongArgumentCount() throws InfixParsingException {
+		Infix infix = new Infix(REGISTRY);
+		infix.setInfixQueue("1+sqrt(1,2)");
+
+		try {
+			new Postfix(REGISTRY).parsePostfix(infix);
+			fail("Expected a PostfixParsingException");
+		} catch (PostfixParsingException e) {
+			assertEquals(EvaluatorUtility.ARITY_ERR_MSG, e.getMessage());
+		}
+	}
+
+	@Test
+	public void testCallFromQueue() throws PostfixParsingException {
+		Queue<String> infixQueue = new ArrayDeque<String>(
+				Arrays.asList("max", "(", "1", ",", "abs", "(", "-3", ")", ")", "*", "2"));
+		Postfix postfix = new Postfix(REGISTRY);
+		postfix.parsePostfix(infixQueue);
+
+		assertEquals(new Double(6), postfix.solvePostfixExpression());
+	}
+}
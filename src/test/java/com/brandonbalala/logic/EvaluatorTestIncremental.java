@@ -0,0 +1,97 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestIncremental {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private String infixString;
+	private double[] bindings;
+
+	public EvaluatorTestIncremental(String input, double[] bindings) {
+		this.infixString = input;
+		this.bindings = bindings;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> expressionAndBindings() {
+		return Arrays.asList(new Object[][] {
+				{ "price*qty-discount", new double[] { 2.5, 4, 1.25 } },
+				{ "(x+1)/(x-1)", new double[] { 3 } },
+				{ "-rate*(base_2+10)-rate", new double[] { 0.5, 30 } },
+				{ "a*-0+1-b*1.5", new double[] { -2, 0.5 } },
+				{ "(a+b)*(c-d)/(a*e)+(b-c)*2.5-d/(e+1)", new double[] { 1, 2, 3, 4, 5 } },
+				{ "(2*3/1)+2", new double[0] } });
+	}
+
+	@Test
+	public void testBuildFromPostfix() throws InfixParsingException, PostfixParsingException {
+		log.info("Parameterized String is : " + infixString);
+
+		Infix infix = new Infix();
+		infix.setInfixQueue(infixString);
+		Postfix postfix = new Postfix();
+		postfix.parsePostfix(infix);
+
+		IncrementalExpression incremental = IncrementalExpression.build(postfix, bindings);
+
+		assertEquals(Double.doubleToLongBits(incremental.getExpression().evaluate(bindings)),
+				Double.doubleToLongBits(incremental.getValue()));
+	}
+
+	@Test
+	public void testSetVariableMatchesFullEvaluation() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression expression = CompiledExpression.compile(infixString);
+		IncrementalExpression incremental = new IncrementalExpression(expression, bindings);
+		double[] current = bindings.clone();
+		Random random = new Random(42);
+
+		for (int cntr = 0; cntr < 200 && current.length > 0; cntr++) {
+			int slot = random.nextInt(current.length);
+			current[slot] = random.nextInt(5) == 0 ? 0 : random.nextDouble() * 100 - 50;
+
+			double value = incremental.setVariable(slot, current[slot]);
+			assertEquals(Double.doubleToLongBits(expression.evaluate(current)), Double.doubleToLongBits(value));
+		}
+	}
+
+	@Test
+	public void testBatchMatchesFullEvaluation() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression expression = CompiledExpression.compile(infixString);
+		IncrementalExpression incremental = new IncrementalExpression(expression, bindings);
+		double[] current = bindings.clone();
+		Random random = new Random(7);
+
+		for (int cntr = 0; cntr < 50 && current.length > 0; cntr++) {
+			int[] slots = new int[1 + random.nextInt(3)];
+			double[] values = new double[slots.length];
+			for (int update = 0; update < slots.length; update++) {
+				slots[update] = random.nextInt(current.length);
+				values[update] = random.nextDouble() * 10;
+				current[slots[update]] = values[update];
+			}
+
+			double before = incremental.getValue();
+			for (int update = 0; update < slots.length; update++)
+				incremental.stageVariable(slots[update], values[update]);
+			assertEquals(before, incremental.getValue(), 0);
+
+			double value = cntr % 2 == 0 ? incremental.recompute() : incremental.setVariables(slots, values);
+			assertEquals(Double.doubleToLongBits(expression.evaluate(current)), Double.doubleToLongBits(value));
+		}
+	}
+}
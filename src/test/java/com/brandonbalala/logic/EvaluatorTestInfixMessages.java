@@ -0,0 +1,94 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.utility.EvaluatorUtility;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestInfixMessages {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private String infixString;
+	private String expectedMessage;
+	private Infix infix;
+
+	@Before
+	public void initialize() {
+		infix = new Infix();
+	}
+
+	public EvaluatorTestInfixMessages(String input, String expectedMessage) {
+		this.infixString = input;
+		this.expectedMessage = expectedMessage;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> expressionAndExpectedMessages() {
+		return Arrays.asList(new Object[][] {
+				{ "", EvaluatorUtility.EMPTY_ERR_MSG },
+				{ "*5", EvaluatorUtility.STARTING_ERR_MSG },
+				{ ")5", EvaluatorUtility.STARTING_ERR_MSG },
+				{ "5*", EvaluatorUtility.ENDING_ERR_MSG },
+				{ "5*(", EvaluatorUtility.ENDING_ERR_MSG },
+				{ "5*/3", EvaluatorUtility.OPERATOR_ERR_MSG },
+				{ "(*3)", EvaluatorUtility.OPERATOR_ERR_MSG },
+				{ "2(3)", EvaluatorUtility.OPENING_PARENTHESIS_ERR_MSG },
+				{ "(2)(3)", EvaluatorUtility.OPENING_PARENTHESIS_ERR_MSG },
+				{ "(5*)", EvaluatorUtility.CLOSING_PARENTHESIS_ERR_MSG },
+				{ "5)+(3", EvaluatorUtility.PARENTHESES_ERR_MSG },
+				{ "((5)", EvaluatorUtility.PARENTHESES_ERR_MSG },
+				{ "(1)5+2", EvaluatorUtility.NUMBER_ERR_MSG },
+				{ "1.2.3+1", EvaluatorUtility.NUMBER_FORMAT_ERR_MSG },
+				{ "5---3", EvaluatorUtility.NUMBER_FORMAT_ERR_MSG },
+				{ "-(3)", EvaluatorUtility.NUMBER_FORMAT_ERR_MSG },
+				{ "5/0", EvaluatorUtility.DIVIDE_BY_ZERO_MSG },
+				{ "5/-0.00+1", EvaluatorUtility.DIVIDE_BY_ZERO_MSG },
+				{ "5#", EvaluatorUtility.CHARACTER_ERR_MSG },
+				{ "(1)5#", EvaluatorUtility.CHARACTER_ERR_MSG },
+				{ "5a", EvaluatorUtility.OPERAND_ERR_MSG },
+				{ "x.5", EvaluatorUtility.OPERAND_ERR_MSG },
+				{ "a+b.5*c", EvaluatorUtility.OPERAND_ERR_MSG },
+				{ "(1)5a", EvaluatorUtility.NUMBER_ERR_MSG },
+				{ "(1)a", EvaluatorUtility.NUMBER_ERR_MSG },
+				{ "a(1)", EvaluatorUtility.OPENING_PARENTHESIS_ERR_MSG },
+				{ "-.a", EvaluatorUtility.NUMBER_FORMAT_ERR_MSG },
+				{ "5 + 3", EvaluatorUtility.CHARACTER_ERR_MSG },
+				{ "1,2", EvaluatorUtility.ARGUMENT_ERR_MSG },
+				{ "(1,2)", EvaluatorUtility.ARGUMENT_ERR_MSG },
+				{ "max(,1)", EvaluatorUtility.ARGUMENT_ERR_MSG },
+				{ "max(1+,2)", EvaluatorUtility.ARGUMENT_ERR_MSG },
+				{ "max(1,)", EvaluatorUtility.CLOSING_PARENTHESIS_ERR_MSG },
+				{ "max(1,*2)", EvaluatorUtility.OPERATOR_ERR_MSG },
+				{ "2max(1)", EvaluatorUtility.OPERAND_ERR_MSG },
+				{ "-max(1)", EvaluatorUtility.NUMBER_FORMAT_ERR_MSG },
+				{ "maximum(1)", EvaluatorUtility.OPENING_PARENTHESIS_ERR_MSG } });
+	}
+
+	@Test
+	public void testInfixParsingMessage() {
+		log.info("Parameterized String is : " + infixString);
+		try {
+			infix.setInfixQueue(infixString);
+			fail("Expected an InfixParsingException");
+		} catch (InfixParsingException e) {
+			log.info("Expected Message : " + expectedMessage);
+			log.info("Actual Message : " + e.getMessage());
+
+			assertEquals(expectedMessage, e.getMessage());
+			assertTrue(infix.getInfixQueue().isEmpty());
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Queue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.Operator;
+import com.brandonbalala.utility.OperatorRegistry;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestOperators {
+	private static final OperatorRegistry REGISTRY = new OperatorRegistry();
+	static {
+		// Maximum of both operands, as loose as an addition
+		REGISTRY.register('&', 1, Operator.Associativity.LEFT, Math::max);
+	}
+
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private String infixString;
+	private String expectedPostfix;
+	private double[] bindings;
+	private Double expectedResult;
+
+	public EvaluatorTestOperators(String input, String expectedPostfix, double[] bindings, Double expectedResult) {
+		this.infixString = input;
+		this.expectedPostfix = expectedPostfix;
+		this.bindings = bindings;
+		this.expectedResult = expectedResult;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> expressionAndExpectedResults() {
+		return Arrays.asList(new Object[][] {
+				{ "7%3", "73%", new double[0], new Double(1) },
+				{ "10-4%3*2", "1043%2*-", new double[0], new Double(8) },
+				{ "2^3^2", "232^^", new double[0], new Double(512) },
+				{ "(2^3)^2", "23^2^", new double[0], new Double(64) },
+				{ "2*3^2", "232^*", new double[0], new Double(18) },
+				// A negative sign is part of its operand, before any operator
+				{ "-2^2", "-22^", new double[0], new Double(4) },
+				{ "-x^2", "-x2^", new double[] { 3 }, new Double(9) },
+				{ "0-2^2", "022^-", new double[0], new Double(-4) },
+				{ "x^2+y%4", "x2^y4%+", new double[] { 3, 10 }, new Double(11) },
+				{ "a&b*2", "ab2*&", new double[] { 5, 2 }, new Double(5) },
+				{ "1&2-3&0.5", "12&3-0.5&", new double[0], new Double(0.5) } });
+	}
+
+	@Test
+	public void testCorrectPostfixExpression() throws InfixParsingException, PostfixParsingException {
+		log.info("Parameterized String is : " + infixString);
+
+		Infix infix = new Infix(REGISTRY);
+		infix.setInfixQueue(infixString);
+		Postfix postfix = new Postfix(REGISTRY);
+		postfix.parsePostfix(infix);
+
+		Queue<String> postfixQueue = postfix.getPostFixQueue();
+		StringBuilder sb = new StringBuilder();
+		while (!postfixQueue.isEmpty()) {
+			sb.append(postfixQueue.poll());
+		}
+
+		assertEquals(expectedPostfix, sb.toString());
+	}
+
+	@Test
+	public void testEvaluate() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression expression = new Evaluator(REGISTRY).compile(infixString);
+
+		assertEquals(expectedResult, expression.evaluate(bindings), 1e-9);
+		assertEquals(expectedResult, new ExpressionOptimizer().optimize(expression).getExpression().evaluate(bindings),
+				1e-9);
+
+		double[][] columns = new double[bindings.length][];
+		for (int slot = 0; slot < bindings.length; slot++)
+			columns[slot] = new double[] { bindings[slot] };
+		double[] out = new double[1];
+		ColumnarEvaluator.evaluate(expression, columns, out);
+		assertEquals(expectedResult, out[0], 1e-9);
+	}
+
+	@Test
+	public void testBytecodeMatchesInterpreter() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression expression = new Evaluator(REGISTRY).compile(infixString);
+		Formula formula = BytecodeCompiler.compile(expression);
+
+		if (infixString.indexOf('&') >= 0)
+			assertNull(formula);
+		else
+			assertEquals(expression.evaluate(bindings), formula.evaluate(bindings), 0);
+	}
+
+	@Test(expected = InfixParsingException.class)
+	public void testUnregisteredOperator() throws InfixParsingException, PostfixParsingException {
+		new Evaluator().evaluate("1&2");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegisterTakenSymbol() {
+		new OperatorRegistry().register('%', 2, Operator.Associativity.LEFT, Math::min);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegisterArgumentSeparator() {
+		new OperatorRegistry().register(',', 1, Operator.Associativity.LEFT, Math::max);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testRegisterToDefault() {
+		OperatorRegistry.getDefault().register('&', 1, Operator.Associativity.LEFT, Math::max);
+	}
+}
@@ -0,0 +1,78 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestOptimizer {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private static final double[] BINDINGS = { 1.5, 2.5 };
+
+	private String infixString;
+	private boolean ieeeExact;
+	private String expectedProgram;
+	private int expectedRemoved;
+
+	public EvaluatorTestOptimizer(String input, boolean ieeeExact, String expectedProgram, int expectedRemoved) {
+		this.infixString = input;
+		this.ieeeExact = ieeeExact;
+		this.expectedProgram = expectedProgram;
+		this.expectedRemoved = expectedRemoved;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> expressionAndExpectedPrograms() {
+		return Arrays.asList(new Object[][] {
+				{ "(2*3/1)+x", true, "6.0 x +", 2 },
+				{ "2*3*x*1", true, "6.0 x *", 2 },
+				{ "x*1", true, "x", 1 },
+				{ "1*x+y/1", true, "x y +", 2 },
+				{ "1*(x+2)*y", true, "x 2.0 + y *", 1 },
+				{ "x-0", true, "x", 1 },
+				{ "x+0", true, "x 0.0 +", 0 },
+				{ "x+0", false, "x", 1 },
+				{ "0+x", true, "0.0 x +", 0 },
+				{ "0+x", false, "x", 1 },
+				{ "x-y", true, "x y -", 0 },
+				{ "12.5", true, "12.5", 0 } });
+	}
+
+	@Test
+	public void testOptimizedProgram() throws InfixParsingException, PostfixParsingException {
+		log.info("Parameterized String is : " + infixString);
+
+		ExpressionOptimizer.Result result = new ExpressionOptimizer(ieeeExact)
+				.optimize(CompiledExpression.compile(infixString));
+
+		log.info("Optimized program : " + result.getExpression());
+
+		assertEquals(expectedProgram, result.getExpression().toString());
+		assertEquals(expectedRemoved, result.getRemovedOperatorCount());
+	}
+
+	@Test
+	public void testOptimizedResult() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression expression = CompiledExpression.compile(infixString);
+		CompiledExpression optimized = new ExpressionOptimizer(ieeeExact).optimize(expression).getExpression();
+
+		assertEquals(expression.getVariables(), optimized.getVariables());
+		assertEquals(expression.evaluate(BINDINGS), optimized.evaluate(BINDINGS), 0);
+	}
+
+	@Test(expected = PostfixParsingException.class)
+	public void testDivideByFoldedZero() throws InfixParsingException, PostfixParsingException {
+		new ExpressionOptimizer(ieeeExact).optimize(CompiledExpression.compile(infixString + "/(2-2)"));
+	}
+}
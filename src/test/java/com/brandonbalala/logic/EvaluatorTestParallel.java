@@ -0,0 +1,100 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.OperatorRegistry;
+
+public class EvaluatorTestParallel {
+	private static final String[] EXPRESSIONS = { "(500*1.7/-5.3)+2-0.75/1.45", "5/0", "68+(2+9-18)/1.2*5.3",
+			"(5*)", "(1+8-5/2)*2+4", "price*2" };
+
+	private ForkJoinPool pool;
+	private ParallelEvaluator parallelEvaluator;
+	private List<String> expressions;
+
+	@Before
+	public void initialize() {
+		pool = new ForkJoinPool(4);
+		parallelEvaluator = new ParallelEvaluator(pool, 64);
+
+		expressions = new ArrayList<String>();
+		for (int cntr = 0; cntr < 10000; cntr++)
+			expressions.add(EXPRESSIONS[(cntr * 7) % EXPRESSIONS.length]);
+	}
+
+	@After
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testListResultsInOrder() {
+		assertMatchesSequential(parallelEvaluator.evaluateAll(expressions));
+	}
+
+	@Test
+	public void testSpliteratorResultsInOrder() {
+		assertMatchesSequential(parallelEvaluator.evaluateAll(expressions.spliterator()));
+	}
+
+	@Test
+	public void testUnsizedSpliteratorResultsInOrder() {
+		assertMatchesSequential(parallelEvaluator.evaluateAll(expressions.stream().filter(e -> true).spliterator()));
+	}
+
+	@Test
+	public void testThrowingFunctionOnlyFailsItsItem() {
+		OperatorRegistry registry = new OperatorRegistry();
+		registry.registerFunction("fail", 1, 1, (arguments, offset, count) -> {
+			throw new IllegalStateException("Cannot evaluate " + arguments[offset]);
+		});
+		List<String> batch = new ArrayList<String>();
+		for (int cntr = 0; cntr < 1000; cntr++)
+			batch.add(cntr % 10 == 3 ? "1+fail(" + cntr + ")" : cntr + "*2");
+
+		BatchResult result = new ParallelEvaluator(pool, 64, registry).evaluateAll(batch);
+
+		assertEquals(100, result.getErrorCount());
+		for (int index = 0; index < batch.size(); index++) {
+			if (index % 10 == 3) {
+				assertEquals("java.lang.IllegalStateException: Cannot evaluate " + (double) index,
+						result.getError(index));
+			} else {
+				assertEquals(null, result.getError(index));
+				assertEquals(index * 2, result.getValue(index), 0);
+			}
+		}
+	}
+
+	private void assertMatchesSequential(BatchResult result) {
+		Evaluator evaluator = new Evaluator();
+		int errorCount = 0;
+
+		assertEquals(expressions.size(), result.size());
+		for (int index = 0; index < expressions.size(); index++) {
+			try {
+				double expected = evaluator.evaluate(expressions.get(index));
+				assertEquals(null, result.getError(index));
+				assertEquals(expected, result.getValue(index), 0);
+			} catch (InfixParsingException e) {
+				assertEquals(e.getMessage(), result.getError(index));
+				errorCount++;
+			} catch (PostfixParsingException e) {
+				assertEquals(e.getMessage(), result.getError(index));
+				errorCount++;
+			}
+		}
+
+		assertEquals(errorCount, result.getErrorCount());
+	}
+}
@@ -0,0 +1,82 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Queue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestPostfixReuse {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private String infixString;
+	private String expectedPostfix;
+
+	public EvaluatorTestPostfixReuse(String input, String expectedPostfix) {
+		this.infixString = input;
+		this.expectedPostfix = expectedPostfix;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> expressionAndExpectedPostfix() {
+		return Arrays.asList(new Object[][] {
+				{ "(500*1.7/-5.3)+2-0.75/1.45", "[500, 1.7, *, -5.3, /, 2, +, 0.75, 1.45, /, -]" },
+				{ "68+(2+9-18)/1.2*5.3", "[68, 2, 9, +, 18, -, 1.2, /, 5.3, *, +]" },
+				{ "price*qty-discount", "[price, qty, *, discount, -]" },
+				{ "(((((56.9*0.09)))))/((3-4.4)-(79-0.3)/(3/2.4))/0.5-2",
+						"[56.9, 0.09, *, 3, 4.4, -, 79, 0.3, -, 3, 2.4, /, /, -, /, 0.5, /, 2, -]" } });
+	}
+
+	@Test
+	public void testTokensAndQueueGiveSamePostfix() throws InfixParsingException, PostfixParsingException {
+		log.info("Parameterized String is : " + infixString);
+
+		Infix infix = new Infix();
+		infix.setInfixQueue(infixString);
+		Postfix fromTokens = new Postfix();
+		fromTokens.parsePostfix(infix);
+
+		infix.setInfixQueue(infixString);
+		Queue<String> infixQueue = new ArrayDeque<String>(infix.getInfixQueue());
+		Postfix fromQueue = new Postfix();
+		fromQueue.parsePostfix(infix);
+
+		assertEquals(expectedPostfix, fromTokens.getPostFixQueue().toString());
+		assertEquals(expectedPostfix, fromQueue.getPostFixQueue().toString());
+		assertTrue(infix.getInfixQueue().isEmpty());
+
+		fromQueue.parsePostfix(infixQueue);
+		assertEquals(expectedPostfix, fromQueue.getPostFixQueue().toString());
+		assertTrue(infixQueue.isEmpty());
+	}
+
+	@Test
+	public void testReusedPostfixStartsOver() throws InfixParsingException, PostfixParsingException {
+		Infix infix = new Infix();
+		Postfix postfix = new Postfix();
+
+		infix.setInfixQueue("1+2*3");
+		postfix.parsePostfix(infix);
+		try {
+			infix.setInfixQueue("(5*)");
+		} catch (InfixParsingException e) {
+			// The failed expression leaves nothing behind
+		}
+		infix.setInfixQueue(infixString);
+		postfix.parsePostfix(infix);
+
+		assertEquals(expectedPostfix, postfix.getPostFixQueue().toString());
+	}
+}
@@ -0,0 +1,143 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.EvaluatorUtility;
+import com.brandonbalala.utility.OperatorRegistry;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestRpn {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private String infixString;
+	private double[] bindings;
+
+	public EvaluatorTestRpn(String input, double[] bindings) {
+		this.infixString = input;
+		this.bindings = bindings;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> expressionAndBindings() {
+		return Arrays.asList(new Object[][] {
+				{ "(500*1.7/-5.3)+2-0.75/1.45", new double[0] },
+				{ "68+(2+9-18)/1.2*5.3", new double[0] },
+				{ "price*qty-discount", new double[] { 2.5, 4, 1.25 } },
+				{ "-rate*(base_2+10)-rate", new double[] { 0.5, 30 } },
+				{ "2^x^-y%7-sqrt(abs(y))+pow(x,2)", new double[] { 1.5, -2 } },
+				{ "1/x", new double[] { 0 } } });
+	}
+
+	@Test
+	public void testSameAsCompiled() throws InfixParsingException, PostfixParsingException, IOException {
+		log.info("Parameterized String is : " + infixString);
+
+		CompiledExpression expression = CompiledExpression.compile(infixString);
+		String rpn = expression.toString();
+		Map<String, Double> values = new HashMap<String, Double>();
+		for (int slot = 0; slot < bindings.length; slot++)
+			values.put(expression.getVariables().get(slot), bindings[slot]);
+
+		long expected = Double.doubleToLongBits(expression.evaluate(bindings));
+		RpnEvaluator evaluator = new RpnEvaluator();
+
+		assertEquals(expected, Double.doubleToLongBits(evaluator.evaluate(rpn, values)));
+		assertEquals(expected, Double.doubleToLongBits(evaluator.evaluate(new StringReader(rpn), values)));
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(rpn.length() + 2);
+		buffer.put(("\t" + rpn + "\n").getBytes(StandardCharsets.US_ASCII));
+		buffer.flip();
+		assertEquals(expected, Double.doubleToLongBits(evaluator.evaluate(buffer, values)));
+		assertEquals(0, buffer.remaining());
+	}
+
+	@Test
+	public void testVariadicFunctions() throws PostfixParsingException, IOException {
+		RpnEvaluator evaluator = new RpnEvaluator();
+
+		assertEquals(7, evaluator.evaluate("1 2 + 7 -4 max:3"), 0);
+		assertEquals(-4, evaluator.evaluate(new StringReader("3\n7  -4 min:3 ")), 0);
+		assertEquals(5, evaluator.evaluate("5 max:1"), 0);
+	}
+
+	@Test
+	public void testElementsSpanningReads() throws PostfixParsingException, IOException {
+		// Longer than the buffer of a read, elements are cut between reads
+		StringBuilder rpn = new StringBuilder("0");
+		for (int cntr = 1; cntr <= 2000; cntr++)
+			rpn.append(' ').append(cntr).append(".25 +");
+
+		assertEquals(2000 * 2001 / 2 + 2000 * 0.25, new RpnEvaluator().evaluate(new StringReader(rpn.toString())), 0);
+	}
+
+	@Test
+	public void testRejected() {
+		RpnEvaluator evaluator = new RpnEvaluator(OperatorRegistry.getDefault(), 3);
+		Map<String, Double> values = new HashMap<String, Double>();
+		values.put("x", 2.0);
+
+		assertRejected(evaluator, "1 +", null, EvaluatorUtility.STACK_UNDERFLOW_ERR_MSG);
+		assertRejected(evaluator, "1 sqrt sqrt pow", null, EvaluatorUtility.STACK_UNDERFLOW_ERR_MSG);
+		assertRejected(evaluator, "1 2 3 4 + + +", null, EvaluatorUtility.STACK_OVERFLOW_ERR_MSG);
+		assertRejected(evaluator, "1 2", null, EvaluatorUtility.OPERANDS_LEFT_ERR_MSG);
+		assertRejected(evaluator, " \n ", null, EvaluatorUtility.EMPTY_ERR_MSG);
+		assertRejected(evaluator, "1 2 max", null, EvaluatorUtility.ARITY_ERR_MSG);
+		assertRejected(evaluator, "1 2 pow:3", null, EvaluatorUtility.ARITY_ERR_MSG);
+		assertRejected(evaluator, "1 2 max:x", null, EvaluatorUtility.ARITY_ERR_MSG);
+		assertRejected(evaluator, "1 2 $", null, EvaluatorUtility.CHARACTER_ERR_MSG);
+		assertRejected(evaluator, "1.2.3 2 +", null, EvaluatorUtility.NUMBER_FORMAT_ERR_MSG);
+		assertRejected(evaluator, "x 2 *", null, EvaluatorUtility.VARIABLE_ERR_MSG);
+		assertRejected(evaluator, "x y *", values, EvaluatorUtility.UNBOUND_VARIABLE_ERR_MSG);
+		assertRejected(evaluator, "5 0 /", null, EvaluatorUtility.DIVIDE_BY_ZERO_MSG);
+		assertRejected(evaluator, "5 -0.00 % 1 +", null, EvaluatorUtility.DIVIDE_BY_ZERO_MSG);
+	}
+
+	@Test
+	public void testDivisorComputedToZero() throws PostfixParsingException {
+		// Only a literal 0 is rejected, like by Infix
+		RpnEvaluator evaluator = new RpnEvaluator();
+		Map<String, Double> values = new HashMap<String, Double>();
+		values.put("x", 0.0);
+
+		assertEquals(Double.POSITIVE_INFINITY, evaluator.evaluate("5 1 1 - /"), 0);
+		assertEquals(Double.POSITIVE_INFINITY, evaluator.evaluate("5 x /", values), 0);
+		assertEquals(0, evaluator.evaluate("0 5 /"), 0);
+	}
+
+	@Test
+	public void testReusedAfterRejection() throws PostfixParsingException {
+		RpnEvaluator evaluator = new RpnEvaluator();
+		assertRejected(evaluator, "1 2 3 +", null, EvaluatorUtility.OPERANDS_LEFT_ERR_MSG);
+
+		Map<String, Double> values = new HashMap<String, Double>();
+		values.put("x", 2.0);
+		assertEquals(-6, evaluator.evaluate("-x 3 *", values), 0);
+	}
+
+	private void assertRejected(RpnEvaluator evaluator, String rpn, Map<String, Double> values, String message) {
+		try {
+			evaluator.evaluate(rpn, values);
+			fail("Expected " + rpn + " to be rejected");
+		} catch (PostfixParsingException e) {
+			assertEquals(message, e.getMessage());
+		}
+	}
+}
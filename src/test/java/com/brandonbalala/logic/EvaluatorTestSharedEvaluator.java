@@ -0,0 +1,72 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.utility.EvaluatorUtility;
+
+public class EvaluatorTestSharedEvaluator {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private static final String[] EXPRESSIONS = { "(500*1.7/-5.3)+2-0.75/1.45", "(-96/7)+(0.99*70)/(1.07*2)",
+			"68+(2+9-18)/1.2*5.3", "-99+3+1-2/(-4+0.5)", "(100/0.3*0.5+4)*0.75", "30/(50+0.5)*10/-5" };
+	private static final double[] EXPECTED = { -158.89, 18.67, 37.08, -94.43, 128, -1.19 };
+
+	private final Evaluator evaluator = new Evaluator();
+
+	@Test
+	public void testEvaluatorReusableAfterFailure() throws InfixParsingException, PostfixParsingException {
+		try {
+			evaluator.evaluate("(5*)");
+			fail("Expected an InfixParsingException");
+		} catch (InfixParsingException e) {
+			assertEquals(EvaluatorUtility.CLOSING_PARENTHESIS_ERR_MSG, e.getMessage());
+		}
+
+		assertEquals(21, evaluator.evaluate("(((9+10)))+2"), 0);
+		assertEquals(8, evaluator.evaluate("(2*3/1)+2"), 0);
+	}
+
+	@Test
+	public void testEvaluatorSharedBetweenThreads() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int thread = 0; thread < 4; thread++) {
+				final int offset = thread;
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						for (int cntr = 0; cntr < 2000; cntr++) {
+							int index = (cntr + offset) % EXPRESSIONS.length;
+							double result = Math.round(evaluator.evaluate(EXPRESSIONS[index]) * 100.0) / 100.0;
+							assertEquals(EXPECTED[index], result, 0);
+						}
+						return null;
+					}
+				}));
+			}
+
+			for (Future<Void> future : futures)
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+
+		log.info("Evaluated " + 4 * 2000 + " expressions on 4 threads");
+	}
+}
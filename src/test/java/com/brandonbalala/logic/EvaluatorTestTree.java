@@ -0,0 +1,142 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestTree {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private static final String[] EXPRESSIONS = { "(500*1.7/-5.3)+2-0.75/1.45", "68+(2+9-18)/1.2*5.3",
+			"a-(b-(c-d))*2-a*-0", "(a+b)*(c-d)/(a*e)+(b-c)*2.5-d/(e+1)", "max(a+b,c*d,e-a)*a*b*c-sqrt(d)+e%3",
+			"2^a^-b-pow(c,2)+abs(d-e)" };
+	private static final double[] BINDINGS = { 1.5, -2, 3.25, 4, 0.5 };
+
+	private int threshold;
+	private ForkJoinPool pool;
+
+	public EvaluatorTestTree(int threshold) {
+		this.threshold = threshold;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> thresholds() {
+		return Arrays.asList(new Object[][] { { 1 }, { 3 }, { 64 } });
+	}
+
+	@Before
+	public void initialize() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testMatchesCompiledExpression() throws InfixParsingException, PostfixParsingException {
+		for (String infixString : EXPRESSIONS) {
+			log.info("Threshold " + threshold + ", expression : " + infixString);
+
+			CompiledExpression expression = CompiledExpression.compile(infixString);
+			double expected = expression.evaluate(BINDINGS);
+
+			assertEquals(expected, new TreeEvaluator(expression, pool, threshold, false).evaluate(BINDINGS),
+					Math.ulp(expected) * 8);
+			assertEquals(expected, new TreeEvaluator(expression, pool, threshold, true).evaluate(BINDINGS),
+					Math.ulp(expected) * 8);
+		}
+	}
+
+	@Test
+	public void testLargeSumOfProducts() throws InfixParsingException, PostfixParsingException {
+		// Integer products and sums are exact, whatever the order
+		StringBuilder sb = new StringBuilder("x*y");
+		for (int cntr = 1; cntr < 20000; cntr++)
+			sb.append(cntr % 3 == 0 ? '-' : '+').append(cntr % 7).append("*x*(y-").append(cntr % 5).append(')');
+
+		CompiledExpression expression = CompiledExpression.compile(sb.toString());
+		double[] bindings = { 3, 4 };
+
+		assertEquals(expression.evaluate(bindings),
+				new TreeEvaluator(expression, pool, threshold, false).evaluate(bindings), 0);
+		assertEquals(expression.evaluate(bindings),
+				new TreeEvaluator(expression, pool, threshold, true).evaluate(bindings), 0);
+	}
+
+	@Test
+	public void testLargeOperandsOfAnOperator() throws InfixParsingException, PostfixParsingException {
+		StringBuilder sum = new StringBuilder("x");
+		for (int cntr = 1; cntr < 5000; cntr++)
+			sum.append("+x*").append(cntr % 9);
+
+		CompiledExpression expression = CompiledExpression
+				.compile("max(" + sum + ",y)/(" + sum + ")-(" + sum + ")%(" + sum + "-y)");
+		double[] bindings = { 2, 5 };
+
+		assertEquals(expression.evaluate(bindings),
+				new TreeEvaluator(expression, pool, threshold, false).evaluate(bindings), 0);
+	}
+
+	@Test
+	public void testCompensatedSummation() throws InfixParsingException, PostfixParsingException {
+		// Every 1 added to 10^16 is lost to the rounding left to right
+		StringBuilder sb = new StringBuilder("10000000000000000");
+		for (int cntr = 0; cntr < 1000; cntr++)
+			sb.append("+1");
+		sb.append("-10000000000000000");
+
+		CompiledExpression expression = CompiledExpression.compile(sb.toString());
+
+		assertEquals(0, expression.evaluate(), 0);
+		assertEquals(1000, new TreeEvaluator(expression, pool, threshold, true).evaluate(), 0);
+	}
+
+	@Test
+	public void testDeeplyNestedExpression() throws InfixParsingException, PostfixParsingException {
+		// Nothing to flatten, every level holds a multiplication and an
+		// addition
+		StringBuilder sb = new StringBuilder();
+		for (int cntr = 0; cntr < 20000; cntr++)
+			sb.append('(');
+		sb.append('x');
+		for (int cntr = 0; cntr < 20000; cntr++)
+			sb.append("*0.5+1)");
+
+		CompiledExpression expression = CompiledExpression.compile(sb.toString());
+		double[] bindings = { 7 };
+
+		assertEquals(expression.evaluate(bindings),
+				new TreeEvaluator(expression, pool, threshold, false).evaluate(bindings), 0);
+	}
+
+	@Test
+	public void testBuildFromPostfix() throws InfixParsingException, PostfixParsingException {
+		Infix infix = new Infix();
+		infix.setInfixQueue("(1+8-5/2)*2+4");
+		Postfix postfix = new Postfix();
+		postfix.parsePostfix(infix);
+
+		assertEquals(17, TreeEvaluator.build(postfix).evaluate(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThresholdMustBePositive() throws InfixParsingException, PostfixParsingException {
+		new TreeEvaluator(CompiledExpression.compile("1+2"), pool, 0, false);
+	}
+}
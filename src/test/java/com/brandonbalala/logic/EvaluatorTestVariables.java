@@ -0,0 +1,83 @@
+package com.brandonbalala.logic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Queue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestVariables {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private String infixString;
+	private String expectedPostfix;
+	private String[] variables;
+	private double[] bindings;
+	private Double expectedResult;
+
+	public EvaluatorTestVariables(String input, String expectedPostfix, String[] variables, double[] bindings,
+			Double expectedResult) {
+		this.infixString = input;
+		this.expectedPostfix = expectedPostfix;
+		this.variables = variables;
+		this.bindings = bindings;
+		this.expectedResult = expectedResult;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> expressionAndExpectedResults() {
+		return Arrays.asList(new Object[][] {
+				{ "price*qty-discount", "priceqty*discount-", new String[] { "price", "qty", "discount" },
+						new double[] { 2.5, 4, 1.25 }, new Double(8.75) },
+				{ "(x+1)/(x-1)", "x1+x1-/", new String[] { "x" }, new double[] { 3 }, new Double(2) },
+				{ "-rate*(base_2+10)", "-ratebase_210+*", new String[] { "rate", "base_2" },
+						new double[] { 0.5, 30 }, new Double(-20) },
+				{ "a--b", "a-b-", new String[] { "a", "b" }, new double[] { 1, 2 }, new Double(3) } });
+	}
+
+	@Test
+	public void testCorrectPostfixExpression() throws InfixParsingException, PostfixParsingException {
+		log.info("Parameterized String is : " + infixString);
+
+		Infix infix = new Infix();
+		infix.setInfixQueue(infixString);
+		Postfix postfix = new Postfix();
+		postfix.parsePostfix(infix);
+
+		Queue<String> postfixQueue = postfix.getPostFixQueue();
+		StringBuilder sb = new StringBuilder();
+		while (!postfixQueue.isEmpty()) {
+			sb.append(postfixQueue.poll());
+		}
+
+		assertEquals(expectedPostfix, sb.toString());
+	}
+
+	@Test
+	public void testEvaluateWithBindings() throws InfixParsingException, PostfixParsingException {
+		CompiledExpression expression = CompiledExpression.compile(infixString);
+
+		assertEquals(Arrays.asList(variables), expression.getVariables());
+		assertEquals(expectedResult, expression.evaluate(bindings), 1e-9);
+	}
+
+	@Test(expected = PostfixParsingException.class)
+	public void testSolveWithoutBindings() throws InfixParsingException, PostfixParsingException {
+		Infix infix = new Infix();
+		infix.setInfixQueue(infixString);
+		Postfix postfix = new Postfix();
+		postfix.parsePostfix(infix);
+
+		postfix.solvePostfixExpression();
+	}
+}
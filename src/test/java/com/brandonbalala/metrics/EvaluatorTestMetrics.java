@@ -0,0 +1,136 @@
+package com.brandonbalala.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.LinkedList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.brandonbalala.exception.InfixParsingException;
+import com.brandonbalala.exception.PostfixParsingException;
+import com.brandonbalala.logic.Evaluator;
+import com.brandonbalala.logic.Postfix;
+import com.brandonbalala.utility.EvaluatorUtility;
+
+public class EvaluatorTestMetrics {
+	private Evaluator evaluator;
+
+	@Before
+	public void initialize() {
+		evaluator = new Evaluator();
+		EvaluatorMetrics.reset();
+	}
+
+	@Test
+	public void testBucketsHoldTheirValues() {
+		for (long value = 0; value < 1L << 40; value = value * 3 / 2 + 1) {
+			int bucket = Histogram.getBucket(value);
+
+			assertTrue(Histogram.getLowestValue(bucket) <= value && value <= Histogram.getHighestValue(bucket));
+			assertTrue(Histogram.getHighestValue(bucket) - Histogram.getLowestValue(bucket) <= value / 16);
+		}
+
+		assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.getBucket(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testPercentiles() {
+		Histogram histogram = new Histogram();
+		for (int value = 1; value <= 1000; value++)
+			histogram.record(value);
+
+		Histogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(500.5, snapshot.getMean(), 0);
+		assertEquals(1000, snapshot.getMax());
+		assertEquals(1, snapshot.getValueAtPercentile(0));
+		assertEquals(1000, snapshot.getValueAtPercentile(100));
+		assertTrue(snapshot.getValueAtPercentile(50) >= 500 && snapshot.getValueAtPercentile(50) <= 500 * 17 / 16);
+		assertEquals(9, snapshot.getCountBetween(0, 9));
+	}
+
+	@Test
+	public void testPhasesAndSizesRecorded() throws InfixParsingException, PostfixParsingException {
+		assumeRecorded();
+
+		for (int cntr = 0; cntr < 10; cntr++)
+			evaluator.evaluate("(1+8-5/2)*2+4");
+
+		EvaluatorMetrics.Snapshot snapshot = EvaluatorMetrics.snapshot();
+		for (EvaluatorMetrics.Phase phase : EvaluatorMetrics.Phase.values())
+			assertEquals(10, snapshot.getPhase(phase).getCount());
+
+		assertEquals(10, snapshot.getTokens().getCount());
+		assertEquals(13, snapshot.getTokens().getMax());
+		// 1 8 + 5 2 / - 2 * 4 +
+		assertEquals(3, snapshot.getStackDepths().getMax());
+		assertTrue(snapshot.getFailures().isEmpty());
+	}
+
+	@Test
+	public void testFailuresCountedByMessage() throws InfixParsingException, PostfixParsingException {
+		assumeRecorded();
+
+		String[] expressions = { "5/0", "(5*)", "5/0", "(1+8)(5/2)", "max(1,2,)", "5&2" };
+		LinkedList<String> messages = new LinkedList<String>();
+
+		for (String expression : expressions) {
+			try {
+				evaluator.evaluate(expression);
+				fail("Expected a failure for " + expression);
+			} catch (InfixParsingException e) {
+				messages.add(e.getMessage());
+			} catch (PostfixParsingException e) {
+				messages.add(e.getMessage());
+			}
+		}
+
+		// Nothing to solve
+		try {
+			new Postfix().solvePostfixExpression();
+			fail("Expected a failure");
+		} catch (PostfixParsingException e) {
+			messages.add(e.getMessage());
+		}
+
+		EvaluatorMetrics.Snapshot snapshot = EvaluatorMetrics.snapshot();
+		assertEquals(2, snapshot.getFailureCount(EvaluatorUtility.DIVIDE_BY_ZERO_MSG));
+		assertEquals(1, snapshot.getFailureCount(EvaluatorUtility.SOLVE_ERROR_MSG));
+		for (String message : messages)
+			assertEquals(message, messages.stream().filter(message::equals).count(), snapshot.getFailureCount(message));
+		assertEquals(0, snapshot.getPhase(EvaluatorMetrics.Phase.SOLVE).getCount());
+	}
+
+	@Test
+	public void testResetForgetsEverything() throws InfixParsingException, PostfixParsingException {
+		assumeRecorded();
+
+		evaluator.evaluate("1+2");
+		try {
+			evaluator.evaluate("1/0");
+		} catch (InfixParsingException e) {
+			// Counted
+		}
+
+		EvaluatorMetrics.reset();
+
+		EvaluatorMetrics.Snapshot snapshot = EvaluatorMetrics.snapshot();
+		for (EvaluatorMetrics.Phase phase : EvaluatorMetrics.Phase.values())
+			assertEquals(0, snapshot.getPhase(phase).getCount());
+		assertEquals(0, snapshot.getTokens().getCount());
+		assertEquals(0, snapshot.getStackDepths().getValueAtPercentile(99));
+		assertTrue(snapshot.getFailures().isEmpty());
+	}
+
+	/**
+	 * Skips a test needing recorded metrics unless they are on, with
+	 * -Dcom.brandonbalala.metrics=true, which the build sets for the tests
+	 */
+	private static void assumeRecorded() {
+		assumeTrue(EvaluatorMetrics.ENABLED);
+	}
+}
@@ -0,0 +1,56 @@
+package com.brandonbalala.utility;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@RunWith(Parameterized.class)
+public class EvaluatorTestNumeric {
+	private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+	private String token;
+	private boolean expectedNumeric;
+
+	public EvaluatorTestNumeric(String token, boolean expectedNumeric) {
+		this.token = token;
+		this.expectedNumeric = expectedNumeric;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> tokensAndExpectedResults() {
+		return Arrays.asList(new Object[][] { { "0", true }, { "5", true }, { "-72", true }, { "+3", true },
+				{ "2.50", true }, { ".5", true }, { "-.5", true }, { "7.", true }, { "-0.00", true },
+				{ "0.1", true }, { "1.45", true }, { "123456789012345", true },
+				{ "1234567890123456789.0123456789", true }, { "0.000000000000000000000000123", true },
+				{ "+", false }, { "-", false }, { "*", false }, { "/", false }, { "(", false }, { ")", false },
+				{ ".", false }, { "-.", false }, { "", false }, { "1.2.3", false }, { "--5", false },
+				{ "1e5", false }, { "NaN", false }, { "Infinity", false }, { "5d", false }, { " 5", false },
+				{ "HELLO KEN", false } });
+	}
+
+	@Test
+	public void testIsNumeric() {
+		log.info("Token : " + token);
+		assertEquals(expectedNumeric, EvaluatorUtility.isNumeric(token));
+	}
+
+	@Test
+	public void testParseNumberMatchesParseDouble() {
+		if (expectedNumeric) {
+			double expected = Double.parseDouble(token);
+			double actual = EvaluatorUtility.parseNumber(token);
+
+			log.info("Expected Value : " + expected);
+			log.info("Actual Value : " + actual);
+
+			assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+		}
+	}
+}